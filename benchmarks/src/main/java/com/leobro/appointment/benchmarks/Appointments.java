@@ -0,0 +1,47 @@
+package com.leobro.appointment.benchmarks;
+
+import com.leobro.appointment.service.Appointment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates the appointments the benchmarks work with. The same seed gives the same appointments, so that the runs
+ * are comparable.
+ */
+public class Appointments {
+
+	public static final LocalDate START_DATE = LocalDate.of(2030, 1, 1);
+
+	private static final String[] CLIENT_NAMES = {"Gillian Anderson", "Kevin Bacon", "Arthur Cohn", "Danny DeVito"};
+	private static final Appointment.AppStatus[] STATUSES = Appointment.AppStatus.values();
+
+	private Appointments() {
+	}
+
+	/**
+	 * Creates the appointments spread evenly over the days from {@link #START_DATE}, each to a round work hour,
+	 * with random prices.
+	 *
+	 * @param count the number of appointments,
+	 * @param days  the number of days.
+	 */
+	public static List<Appointment> create(int count, int days) {
+		Random random = new Random(42);
+		List<Appointment> appointments = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			Appointment app = new Appointment();
+
+			app.setClientName(CLIENT_NAMES[random.nextInt(CLIENT_NAMES.length)]);
+			app.setTime(START_DATE.plusDays(i % days).atTime(9 + random.nextInt(8), 0));
+			app.setPrice(random.nextInt(2000) / 10.0);
+			app.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+
+			appointments.add(app);
+		}
+		return appointments;
+	}
+}
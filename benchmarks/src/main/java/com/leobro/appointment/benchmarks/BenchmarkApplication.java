@@ -0,0 +1,24 @@
+package com.leobro.appointment.benchmarks;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The service and the data components without the Web server, started by the benchmarks which need the Spring
+ * context, like the ones of the JPA storage.
+ */
+@SpringBootApplication(scanBasePackages = "com.leobro.appointment")
+public class BenchmarkApplication {
+
+	/**
+	 * Starts the context with the in-memory H2 database.
+	 */
+	public static ConfigurableApplicationContext start() {
+		return new SpringApplicationBuilder(BenchmarkApplication.class)
+				.web(WebApplicationType.NONE)
+				.logStartupInfo(false)
+				.run();
+	}
+}
@@ -0,0 +1,72 @@
+package com.leobro.appointment.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.leobro.appointment.service.Appointment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a date range result to JSON: as one array, like the {@code /appointments} endpoint by default,
+ * and as newline delimited JSON, like its streaming variant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+	@Param({"10", "1000", "100000"})
+	private int size;
+
+	private List<Appointment> appointments;
+	private ObjectMapper mapper;
+	private ObjectWriter lineWriter;
+
+	@Setup
+	public void setUp() {
+		appointments = Appointments.create(size, 30);
+		// configured like the mapper of Spring Boot
+		mapper = Jackson2ObjectMapperBuilder.json()
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.build();
+		lineWriter = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	}
+
+	@Benchmark
+	public byte[] array() throws IOException {
+		return mapper.writeValueAsBytes(appointments);
+	}
+
+	@Benchmark
+	public byte[] lines() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (JsonGenerator generator = lineWriter.getFactory().createGenerator(out)) {
+			generator.setRootValueSeparator(null);
+			for (Appointment app : appointments) {
+				lineWriter.writeValue(generator, app);
+				generator.writeRaw('\n');
+			}
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,83 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.benchmarks.Appointments;
+import com.leobro.appointment.benchmarks.BenchmarkApplication;
+import com.leobro.appointment.service.Appointment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations of {@link AppointmentStorageImpl} on the in-memory H2 database without the caches in front of it.
+ * The appointment created by a benchmark is deleted in the same benchmark, so that the table keeps its size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JpaStorageBenchmark {
+
+	private static final int APPOINTMENT_COUNT = 10000;
+	private static final int DAYS = 100;
+
+	private ConfigurableApplicationContext context;
+	private AppointmentStorageImpl storage;
+	private long[] ids;
+	private Appointment newAppointment;
+
+	@Setup
+	public void setUp() {
+		context = BenchmarkApplication.start();
+		storage = context.getBean(AppointmentStorageImpl.class);
+		ids = storage.createAppointments(Appointments.create(APPOINTMENT_COUNT, DAYS)).stream()
+				.mapToLong(Long::longValue)
+				.toArray();
+		newAppointment = Appointments.create(1, 1).get(0);
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	private long randomId() {
+		return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+	}
+
+	@Benchmark
+	public Appointment createAndDelete() {
+		return storage.deleteAppointment(storage.createAppointment(newAppointment));
+	}
+
+	@Benchmark
+	public Appointment getAppointment() {
+		return storage.getAppointment(randomId());
+	}
+
+	@Benchmark
+	public List<Appointment> getAllAppointments() {
+		LocalDate day = Appointments.START_DATE.plusDays(ThreadLocalRandom.current().nextInt(DAYS));
+		return storage.getAllAppointments(day, day);
+	}
+
+	@Benchmark
+	public void updateAppointmentStatus() {
+		storage.updateAppointmentStatus(randomId(), Appointment.AppStatus.WAIT);
+	}
+}
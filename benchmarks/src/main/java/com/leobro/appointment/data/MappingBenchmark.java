@@ -0,0 +1,49 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.benchmarks.Appointments;
+import com.leobro.appointment.service.Appointment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping between {@link Appointment} and {@link AppointmentEntity} in {@link AppointmentStorageImpl}, done for
+ * every appointment read from or written to the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+	private Appointment appointment;
+	private AppointmentEntity entity;
+
+	@Setup
+	public void setUp() {
+		appointment = Appointments.create(1, 1).get(0);
+		entity = AppointmentStorageImpl.mapAppointmentEntity(appointment);
+		entity.setId(1L);
+	}
+
+	@Benchmark
+	public AppointmentEntity mapAppointmentEntity() {
+		return AppointmentStorageImpl.mapAppointmentEntity(appointment);
+	}
+
+	@Benchmark
+	public Appointment mapAppointment() {
+		return AppointmentStorageImpl.mapAppointment(entity);
+	}
+}
@@ -0,0 +1,64 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.benchmarks.Appointments;
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date range queries of the storages keeping the appointments in memory, which find the appointments of the range
+ * and sort them by price. The JPA storage leaves the sorting to the database, see {@link JpaStorageBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeQueryBenchmark {
+
+	private static final int DAYS = 365;
+
+	@Param({StorageProfiles.MEMORY, StorageProfiles.COLUMNAR})
+	private String storageType;
+
+	@Param({"100000"})
+	private int appointmentCount;
+
+	@Param({"1", "30"})
+	private int rangeDays;
+
+	private AppointmentStorage storage;
+	private LocalDate startDate;
+	private LocalDate endDate;
+
+	@Setup
+	public void setUp() {
+		storage = StorageProfiles.MEMORY.equals(storageType)
+				? new InMemoryAppointmentStorage()
+				: new ColumnarAppointmentStorage();
+		storage.createAppointments(Appointments.create(appointmentCount, DAYS));
+
+		startDate = Appointments.START_DATE.plusDays(DAYS / 2);
+		endDate = startDate.plusDays(rangeDays - 1);
+	}
+
+	@Benchmark
+	public List<Appointment> getAllAppointments() {
+		return storage.getAllAppointments(startDate, endDate);
+	}
+}
@@ -0,0 +1,52 @@
+package com.leobro.appointment.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of the random appointments by {@link RandomHelper#getRandomAppointments} for the date ranges of
+ * different lengths. The benchmark is in the package of the helper, which is not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomHelperBenchmark {
+
+	@Param({"7", "90", "3650"})
+	private int horizonDays;
+
+	@Param({"50", "1000"})
+	private int quantity;
+
+	private LocalDateTime now;
+	private LocalDate endDate;
+
+	@Setup
+	public void setUp() {
+		// before the work hours, so that today has all the slots
+		now = LocalDate.of(2030, 1, 1).atTime(8, 0);
+		endDate = now.toLocalDate().plusDays(horizonDays - 1);
+	}
+
+	@Benchmark
+	public void getRandomAppointments(Blackhole blackhole) {
+		RandomHelper.getRandomAppointments(quantity, endDate, now).forEach(blackhole::consume);
+	}
+}
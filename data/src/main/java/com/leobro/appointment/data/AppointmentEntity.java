@@ -10,11 +10,32 @@ import java.util.Objects;
  * Data entity for mapping the object to the database table.
  */
 @Entity
-@Table(name = "appointment")
+@Table(name = "appointment", indexes = {
+		@Index(name = AppointmentEntity.TIME_PRICE_INDEX, columnList = "time, price"),
+		@Index(name = AppointmentEntity.STATUS_TIME_INDEX, columnList = "status, time")
+})
 class AppointmentEntity {
 
+	/**
+	 * Serves the date range queries, which are sorted by price. It finds the rows of the date range, but doesn't
+	 * give their order by price, so a range query and each of its pages sort the whole range.
+	 */
+	static final String TIME_PRICE_INDEX = "appointment_time_price_idx";
+	/**
+	 * Serves the bulk operations selecting the appointments by status within a date range.
+	 */
+	static final String STATUS_TIME_INDEX = "appointment_status_time_idx";
+
+	/**
+	 * The number of IDs reserved by one sequence call. Hibernate hands them out from memory, so inserting
+	 * a batch of appointments doesn't need a sequence round trip per row. Must match the sequence increment.
+	 */
+	static final int ID_ALLOCATION_SIZE = 50;
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "appointment_seq")
+	@SequenceGenerator(name = "appointment_seq", sequenceName = "appointment_seq",
+			allocationSize = ID_ALLOCATION_SIZE)
 	private Long id;
 
 	@Column(name = "client_name")
@@ -26,6 +47,14 @@ class AppointmentEntity {
 	@Enumerated(EnumType.STRING)
 	private Appointment.AppStatus status;
 
+	/**
+	 * Increased by every update statement of {@link AppointmentRepository}, which changes the status. Checked by
+	 * Hibernate, when a changed entity is flushed, and by the conditional update of the status.
+	 */
+	@Version
+	@Column(nullable = false)
+	private long version;
+
 	Long getId() {
 		return id;
 	}
@@ -66,6 +95,14 @@ class AppointmentEntity {
 		this.status = status;
 	}
 
+	long getVersion() {
+		return version;
+	}
+
+	void setVersion(long version) {
+		this.version = version;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -75,11 +112,12 @@ class AppointmentEntity {
 				Objects.equals(id, that.id) &&
 				Objects.equals(clientName, that.clientName) &&
 				Objects.equals(time, that.time) &&
-				status == that.status;
+				status == that.status &&
+				version == that.version;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(id, clientName, time, price, status);
+		return Objects.hash(id, clientName, time, price, status, version);
 	}
 }
@@ -0,0 +1,315 @@
+package com.leobro.appointment.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log stored in numbered segment files. Every record is framed by its length and
+ * checksum, so that a record torn by a crash is recognized when the log is replayed; the rest of its segment is
+ * ignored.
+ * <p>The writers don't force the records to the disk themselves. A background thread forces the segment
+ * repeatedly and a writer waits until a force covers its records, so the concurrent writers share one
+ * {@code fsync} (group commit).
+ */
+class AppointmentLog implements Closeable {
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final int FRAME_HEADER_SIZE = 2 * Integer.BYTES;
+
+	private final Path directory;
+	/**
+	 * Keeps a segment from being closed while it is forced.
+	 */
+	private final Object forceLock = new Object();
+	private final Thread flusher;
+
+	private FileChannel channel;
+	private long segment;
+	/**
+	 * The number of bytes appended to the log since it was opened.
+	 */
+	private long appended;
+	/**
+	 * The number of the appended bytes known to be on the disk.
+	 */
+	private long durable;
+	private IOException failure;
+	private boolean closed;
+
+	/**
+	 * Opens the log for appending. The records are appended to a new segment following the existing ones, but
+	 * not less than the passed number.
+	 *
+	 * @param directory    the directory of the segment files,
+	 * @param firstSegment the minimal number of the new segment.
+	 */
+	AppointmentLog(Path directory, long firstSegment) throws IOException {
+		this.directory = directory;
+		Files.createDirectories(directory);
+
+		List<Long> segments = getSegments();
+		segment = segments.isEmpty() ? firstSegment : Math.max(firstSegment, segments.get(segments.size() - 1) + 1);
+		channel = openSegment(segment);
+
+		flusher = new Thread(this::flush, "appointment-log-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Passes the records of the segments following the passed one to the consumer in the order they were
+	 * appended. The segments are memory-mapped, so they are not copied to the heap.
+	 *
+	 * @param afterSegment the number of the last segment, which must not be replayed,
+	 * @param consumer     the action to be performed on the payload of each record.
+	 */
+	void replay(long afterSegment, Consumer<ByteBuffer> consumer) throws IOException {
+		for (long number : getSegments()) {
+			if (number <= afterSegment) {
+				continue;
+			}
+			try (FileChannel segmentChannel = FileChannel.open(segmentPath(number), StandardOpenOption.READ)) {
+				replay(segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size()), consumer);
+			}
+		}
+	}
+
+	private static void replay(ByteBuffer buffer, Consumer<ByteBuffer> consumer) {
+		while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+			int length = buffer.getInt();
+			int checksum = buffer.getInt();
+			if (length <= 0 || length > buffer.remaining()) {
+				return;
+			}
+
+			ByteBuffer payload = buffer.slice();
+			payload.limit(length);
+			if (checksum(payload.duplicate()) != checksum) {
+				return;
+			}
+			consumer.accept(payload);
+			buffer.position(buffer.position() + length);
+		}
+	}
+
+	/**
+	 * Appends the records to the log. They are not durable until {@link #awaitDurable(long)} returns.
+	 *
+	 * @param payloads the payloads of the records.
+	 * @return The position in the log after the records.
+	 */
+	synchronized long append(List<ByteBuffer> payloads) {
+		checkWritable();
+
+		int size = 0;
+		for (ByteBuffer payload : payloads) {
+			size += FRAME_HEADER_SIZE + payload.remaining();
+		}
+		ByteBuffer frames = ByteBuffer.allocate(size);
+		for (ByteBuffer payload : payloads) {
+			frames.putInt(payload.remaining());
+			frames.putInt(checksum(payload.duplicate()));
+			frames.put(payload.duplicate());
+		}
+		frames.flip();
+
+		try {
+			while (frames.hasRemaining()) {
+				channel.write(frames);
+			}
+		} catch (IOException e) {
+			fail(e);
+			throw new UncheckedIOException("Failed to append to the log", e);
+		}
+		appended += size;
+		notifyAll();
+		return appended;
+	}
+
+	/**
+	 * Waits until the log is forced to the disk up to the passed position.
+	 *
+	 * @param position the position returned by {@link #append(List)}.
+	 */
+	synchronized void awaitDurable(long position) {
+		boolean interrupted = false;
+		while (durable < position && failure == null) {
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				// the record is already in the log, so the writer has to learn whether it is durable
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (durable < position) {
+			throw new UncheckedIOException("Failed to force the log", failure);
+		}
+	}
+
+	/**
+	 * Throws, if the log has failed and doesn't accept records anymore. A failed write may have left a part of
+	 * its records in the segment, so the records appended after them would be lost on replay.
+	 */
+	synchronized void checkWritable() {
+		if (closed) {
+			throw new IllegalStateException("The log is closed");
+		}
+		if (failure != null) {
+			throw new UncheckedIOException("The log has failed", failure);
+		}
+	}
+
+	/**
+	 * Forces and closes the current segment and continues in a new one.
+	 *
+	 * @return The number of the closed segment.
+	 */
+	synchronized long rotate() {
+		checkWritable();
+		long closedSegment = segment;
+
+		try {
+			FileChannel next = openSegment(closedSegment + 1);
+			synchronized (forceLock) {
+				channel.force(false);
+				channel.close();
+			}
+			channel = next;
+			segment = closedSegment + 1;
+		} catch (IOException e) {
+			fail(e);
+			throw new UncheckedIOException("Failed to rotate the log", e);
+		}
+		durable = appended;
+		notifyAll();
+		return closedSegment;
+	}
+
+	/**
+	 * Deletes the segments, which are not needed anymore.
+	 *
+	 * @param lastSegment the number of the last segment to be deleted.
+	 */
+	void deleteSegments(long lastSegment) throws IOException {
+		for (long number : getSegments()) {
+			if (number <= lastSegment) {
+				Files.deleteIfExists(segmentPath(number));
+			}
+		}
+	}
+
+	private void flush() {
+		while (true) {
+			FileChannel target;
+			long position;
+
+			synchronized (this) {
+				while (durable == appended && !closed && failure == null) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (durable == appended || failure != null) {
+					return;
+				}
+				target = channel;
+				position = appended;
+			}
+
+			try {
+				synchronized (forceLock) {
+					// a closed segment has been forced by the rotation
+					if (target.isOpen()) {
+						target.force(false);
+					}
+				}
+			} catch (IOException e) {
+				synchronized (this) {
+					fail(e);
+				}
+				return;
+			}
+
+			synchronized (this) {
+				durable = Math.max(durable, position);
+				notifyAll();
+			}
+		}
+	}
+
+	private void fail(IOException e) {
+		if (failure == null) {
+			failure = e;
+		}
+		notifyAll();
+	}
+
+	/**
+	 * Forces the rest of the records to the disk and closes the log.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+		}
+		try {
+			flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (forceLock) {
+			channel.close();
+		}
+	}
+
+	private List<Long> getSegments() throws IOException {
+		List<Long> segments = new ArrayList<>();
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+						name.length() - SEGMENT_SUFFIX.length())));
+			}
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	private FileChannel openSegment(long number) throws IOException {
+		return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+	}
+
+	private Path segmentPath(long number) {
+		return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+	}
+
+	private static int checksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		crc.update(buffer);
+		return (int) crc.getValue();
+	}
+}
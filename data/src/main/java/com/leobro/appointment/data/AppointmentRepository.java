@@ -1,16 +1,73 @@
 package com.leobro.appointment.data;
 
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-interface AppointmentRepository extends CrudRepository<AppointmentEntity, Long> {
+interface AppointmentRepository extends CrudRepository<AppointmentEntity, Long>, AppointmentRepositoryCustom {
 
-	@Query(value = "SELECT * FROM appointment WHERE time BETWEEN ?1 AND ?2",
-			nativeQuery = true)
+	// the time ranges are half-open: from the first day to the start of the day after the last day
+	String FIND_BY_TIME_BETWEEN = "SELECT * FROM appointment WHERE time >= ?1 AND time < ?2 ORDER BY price, id";
+
+	String FIND_FIRST_PAGE = "SELECT * FROM appointment WHERE time >= ?1 AND time < ?2 ORDER BY price, id LIMIT ?3";
+	String FIND_PAGE_AFTER = "SELECT * FROM appointment WHERE time >= ?1 AND time < ?2 " +
+			"AND (price > ?3 OR price = ?3 AND id > ?4) ORDER BY price, id LIMIT ?5";
+
+	String FIND_TIME_BY_ID = "SELECT time FROM appointment WHERE id = ?1";
+
+	String UPDATE_STATUS = "UPDATE appointment SET status = ?2, version = version + 1 WHERE id = ?1";
+	String UPDATE_STATUS_IF_VERSION = "UPDATE appointment SET status = ?2, version = version + 1 " +
+			"WHERE id = ?1 AND version = ?3";
+	String UPDATE_STATUS_BY_IDS = "UPDATE appointment SET status = ?3, version = version + 1 " +
+			"WHERE id IN (?1) AND status = ?2";
+	String UPDATE_STATUS_BY_TIME_BETWEEN = "UPDATE appointment SET status = ?4, version = version + 1 " +
+			"WHERE time >= ?1 AND time < ?2 AND status = ?3";
+
+	String DELETE_BY_TIME_BETWEEN_AND_STATUS = "DELETE FROM appointment " +
+			"WHERE time >= ?1 AND time < ?2 AND status = ?3 LIMIT ?4";
+
+	@Query(value = FIND_BY_TIME_BETWEEN, nativeQuery = true)
 	List<AppointmentEntity> findByTimeBetween(LocalDate startDate, LocalDate endDate);
+
+	@Query(value = FIND_FIRST_PAGE, nativeQuery = true)
+	List<AppointmentEntity> findFirstPage(LocalDate startDate, LocalDate endDate, int limit);
+
+	@Query(value = FIND_PAGE_AFTER, nativeQuery = true)
+	List<AppointmentEntity> findPageAfter(LocalDate startDate, LocalDate endDate, double price, long id, int limit);
+
+	@Query(value = FIND_TIME_BY_ID, nativeQuery = true)
+	List<Timestamp> findTimeById(long id);
+
+	@Modifying
+	@Transactional
+	@Query(value = UPDATE_STATUS, nativeQuery = true)
+	int updateStatus(long id, String status);
+
+	@Modifying
+	@Transactional
+	@Query(value = UPDATE_STATUS_IF_VERSION, nativeQuery = true)
+	int updateStatusIfVersion(long id, String status, long version);
+
+	@Modifying
+	@Transactional
+	@Query(value = UPDATE_STATUS_BY_IDS, nativeQuery = true)
+	int updateStatusByIds(Collection<Long> ids, String fromStatus, String toStatus);
+
+	@Modifying
+	@Transactional
+	@Query(value = UPDATE_STATUS_BY_TIME_BETWEEN, nativeQuery = true)
+	int updateStatusByTimeBetween(LocalDate startDate, LocalDate endDate, String fromStatus, String toStatus);
+
+	@Modifying
+	@Transactional
+	@Query(value = DELETE_BY_TIME_BETWEEN_AND_STATUS, nativeQuery = true)
+	int deleteByTimeBetweenAndStatus(LocalDate startDate, LocalDate endDate, String status, int limit);
 }
@@ -0,0 +1,32 @@
+package com.leobro.appointment.data;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Repository operations that can't be expressed with Spring Data query methods.
+ * Implemented by {@link AppointmentRepositoryImpl}.
+ */
+interface AppointmentRepositoryCustom {
+
+	/**
+	 * Reads the appointments within the time interval sorted by price with a database cursor and passes them
+	 * to the action one by one. The entities are detached after the action, so the memory consumption doesn't
+	 * depend on the number of rows.
+	 *
+	 * @param startDate start of the time interval,
+	 * @param endDate   end of the time interval,
+	 * @param action    the action to be performed on each entity.
+	 */
+	void forEachByTimeBetween(LocalDate startDate, LocalDate endDate, Consumer<AppointmentEntity> action);
+
+	/**
+	 * Deletes the appointment in a single transaction: reads the row locking it and deletes it by the primary key.
+	 * The lock makes a concurrent delete of the same appointment wait and then find nothing.
+	 *
+	 * @param id ID of the appointment.
+	 * @return The deleted appointment or empty, if there is no appointment with this ID.
+	 */
+	Optional<AppointmentEntity> deleteAndGet(long id);
+}
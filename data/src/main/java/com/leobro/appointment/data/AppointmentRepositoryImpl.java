@@ -0,0 +1,57 @@
+package com.leobro.appointment.data;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link AppointmentRepositoryCustom}, Spring Data merges it into {@link AppointmentRepository}.
+ */
+class AppointmentRepositoryImpl implements AppointmentRepositoryCustom {
+
+	/**
+	 * The number of rows the JDBC driver fetches from the database at once while a cursor is read.
+	 */
+	static final int FETCH_SIZE = 500;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	@Transactional(readOnly = true)
+	@SuppressWarnings("unchecked")
+	public void forEachByTimeBetween(LocalDate startDate, LocalDate endDate, Consumer<AppointmentEntity> action) {
+		Stream<AppointmentEntity> entities = entityManager
+				.createNativeQuery(AppointmentRepository.FIND_BY_TIME_BETWEEN, AppointmentEntity.class)
+				.setParameter(1, startDate)
+				.setParameter(2, endDate)
+				.setHint(QueryHints.HINT_FETCH_SIZE, FETCH_SIZE)
+				.setHint(QueryHints.HINT_READONLY, true)
+				.getResultStream();
+
+		try (Stream<AppointmentEntity> stream = entities) {
+			stream.forEach(entity -> {
+				action.accept(entity);
+				entityManager.detach(entity);
+			});
+		}
+	}
+
+	@Override
+	@Transactional
+	public Optional<AppointmentEntity> deleteAndGet(long id) {
+		AppointmentEntity entity = entityManager.find(AppointmentEntity.class, id, LockModeType.PESSIMISTIC_WRITE);
+		if (entity == null) {
+			return Optional.empty();
+		}
+		entityManager.remove(entity);
+		return Optional.of(entity);
+	}
+}
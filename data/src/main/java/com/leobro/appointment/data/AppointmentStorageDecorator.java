@@ -0,0 +1,89 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import com.leobro.appointment.service.PageCursor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Base class for the {@link AppointmentStorage} implementations adding some behaviour to another storage.
+ * Passes every call to the wrapped storage, subclasses override only the methods they are interested in.
+ */
+abstract class AppointmentStorageDecorator implements AppointmentStorage {
+
+	protected final AppointmentStorage delegate;
+
+	AppointmentStorageDecorator(AppointmentStorage delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public long createAppointment(Appointment appointment) {
+		return delegate.createAppointment(appointment);
+	}
+
+	@Override
+	public List<Long> createAppointments(List<Appointment> appointments) {
+		return delegate.createAppointments(appointments);
+	}
+
+	@Override
+	public Appointment getAppointment(long id) throws NoSuchElementException {
+		return delegate.getAppointment(id);
+	}
+
+	@Override
+	public List<Appointment> getAllAppointments(LocalDate startDate, LocalDate endDate) {
+		return delegate.getAllAppointments(startDate, endDate);
+	}
+
+	@Override
+	public void forEachAppointment(LocalDate startDate, LocalDate endDate, Consumer<Appointment> consumer) {
+		delegate.forEachAppointment(startDate, endDate, consumer);
+	}
+
+	@Override
+	public List<Appointment> getAppointmentsPage(LocalDate startDate, LocalDate endDate, PageCursor after,
+												 int limit) {
+		return delegate.getAppointmentsPage(startDate, endDate, after, limit);
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status) throws NoSuchElementException {
+		return delegate.updateAppointmentStatus(id, status);
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status, long version)
+			throws NoSuchElementException {
+		return delegate.updateAppointmentStatus(id, status, version);
+	}
+
+	@Override
+	public int updateAppointmentStatuses(Collection<Long> ids, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		return delegate.updateAppointmentStatuses(ids, fromStatus, toStatus);
+	}
+
+	@Override
+	public int updateAppointmentStatuses(LocalDate startDate, LocalDate endDate, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		return delegate.updateAppointmentStatuses(startDate, endDate, fromStatus, toStatus);
+	}
+
+	@Override
+	public Appointment deleteAppointment(long id) throws NoSuchElementException {
+		return delegate.deleteAppointment(id);
+	}
+
+	@Override
+	public int deleteAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status) {
+		return delegate.deleteAppointments(startDate, endDate, status);
+	}
+}
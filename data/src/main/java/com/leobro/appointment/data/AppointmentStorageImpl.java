@@ -2,21 +2,52 @@ package com.leobro.appointment.data;
 
 import com.leobro.appointment.service.Appointment;
 import com.leobro.appointment.service.AppointmentStorage;
+import com.leobro.appointment.service.PageCursor;
+import com.leobro.appointment.service.Trace;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Proxy to a concrete data storage. Contains data manipulation methods. Implements {@link AppointmentStorage} API.
+ * <p>The reads run in read-only transactions, so Hibernate skips the dirty checking, and with a read replica they
+ * are sent to the replica, see {@link ReadWriteRoutingDataSource}. Every operation declares its appointments by
+ * a {@link RoutingScope}, so that a read goes to the primary database only after a write of the same appointments.
  */
 @Repository
+@Profile(StorageProfiles.SINGLE_TABLE)
+@Qualifier(StorageConfiguration.ENGINE)
 public class AppointmentStorageImpl implements AppointmentStorage {
 
+	/**
+	 * The number of appointments passed to one {@code saveAll} call by {@link #createAppointments(List)}.
+	 * Should be equal to the {@code hibernate.jdbc.batch_size} setting, so that a chunk is sent as one JDBC batch.
+	 */
+	static final int BATCH_SIZE = 50;
+
+	/**
+	 * The maximal number of IDs passed to one bulk statement.
+	 */
+	static final int MAX_IDS_PER_STATEMENT = 1000;
+
+	/**
+	 * The maximal number of appointments deleted by one statement of {@link #deleteAppointments}.
+	 */
+	static final int DELETE_CHUNK_SIZE = 1000;
+
 	private final AppointmentRepository repository;
 
 	@Autowired
@@ -25,13 +56,41 @@ public class AppointmentStorageImpl implements AppointmentStorage {
 	}
 
 	@Override
+	@Transactional
 	public long createAppointment(Appointment app) {
-		AppointmentEntity entity = mapAppointmentEntity(app);
-		AppointmentEntity newEntity = repository.save(entity);
-		return newEntity.getId();
+		try (RoutingScope scope = RoutingScope.appointments()) {
+			AppointmentEntity newEntity = repository.save(mapAppointmentEntity(app));
+			scope.add(newEntity.getId(), newEntity.getTime());
+			return newEntity.getId();
+		}
+	}
+
+	/**
+	 * Persists the appointments in one transaction, so that either all of them are created or none.
+	 */
+	@Override
+	@Transactional
+	public List<Long> createAppointments(List<Appointment> appointments) {
+		List<Long> ids = new ArrayList<>(appointments.size());
+
+		try (RoutingScope scope = RoutingScope.appointments()) {
+			for (int from = 0; from < appointments.size(); from += BATCH_SIZE) {
+				List<AppointmentEntity> chunk = appointments
+						.subList(from, Math.min(from + BATCH_SIZE, appointments.size()))
+						.stream()
+						.map(AppointmentStorageImpl::mapAppointmentEntity)
+						.collect(Collectors.toList());
+				// each saveAll call joins the transaction of this method and is flushed in batches on commit
+				for (AppointmentEntity entity : repository.saveAll(chunk)) {
+					ids.add(entity.getId());
+					scope.add(entity.getId(), entity.getTime());
+				}
+			}
+		}
+		return ids;
 	}
 
-	private static AppointmentEntity mapAppointmentEntity(Appointment app) {
+	static AppointmentEntity mapAppointmentEntity(Appointment app) {
 		AppointmentEntity entity = new AppointmentEntity();
 
 		entity.setClientName(app.getClientName());
@@ -43,14 +102,17 @@ public class AppointmentStorageImpl implements AppointmentStorage {
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Appointment getAppointment(long id) throws NoSuchElementException {
-		Optional<AppointmentEntity> optional = repository.findById(id);
-		// this can throw NoSuchElementException
-		AppointmentEntity entity = optional.get();
-		return mapAppointment(entity);
+		try (RoutingScope ignored = RoutingScope.id(id)) {
+			Optional<AppointmentEntity> optional = repository.findById(id);
+			// this can throw NoSuchElementException
+			AppointmentEntity entity = optional.get();
+			return mapAppointment(entity);
+		}
 	}
 
-	private Appointment mapAppointment(AppointmentEntity entity) {
+	static Appointment mapAppointment(AppointmentEntity entity) {
 		Appointment app = new Appointment();
 
 		app.setId(entity.getId());
@@ -58,35 +120,139 @@ public class AppointmentStorageImpl implements AppointmentStorage {
 		app.setTime(entity.getTime());
 		app.setPrice(entity.getPrice());
 		app.setStatus(entity.getStatus());
+		app.setVersion(entity.getVersion());
 
 		return app;
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public List<Appointment> getAllAppointments(LocalDate startDate, LocalDate endDate) {
 		// endDate contains only date portion, but the time field in the database is of TIMESTAMP type,
 		// so the comparison is made up to the beginning of the second date parameter
-		List<AppointmentEntity> entities = repository.findByTimeBetween(startDate, endDate.plusDays(1));
-		return entities.stream()
-				.map(this::mapAppointment)
-				.collect(Collectors.toList());
+		try (RoutingScope ignored = RoutingScope.days(startDate, endDate)) {
+			List<AppointmentEntity> entities = repository.findByTimeBetween(startDate, endDate.plusDays(1));
+			return mapAppointments(entities);
+		}
+	}
+
+	private static List<Appointment> mapAppointments(List<AppointmentEntity> entities) {
+		try (Trace.Span ignored = Trace.span("storage.mapping")) {
+			return entities.stream()
+					.map(AppointmentStorageImpl::mapAppointment)
+					.collect(Collectors.toList());
+		}
+	}
+
+	@Override
+	public void forEachAppointment(LocalDate startDate, LocalDate endDate, Consumer<Appointment> consumer) {
+		try (RoutingScope ignored = RoutingScope.days(startDate, endDate)) {
+			repository.forEachByTimeBetween(startDate, endDate.plusDays(1),
+					entity -> consumer.accept(mapAppointment(entity)));
+		}
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Appointment> getAppointmentsPage(LocalDate startDate, LocalDate endDate, PageCursor after,
+												 int limit) {
+		LocalDate endTime = endDate.plusDays(1);
+		try (RoutingScope ignored = RoutingScope.days(startDate, endDate)) {
+			List<AppointmentEntity> entities = after == null
+					? repository.findFirstPage(startDate, endTime, limit)
+					: repository.findPageAfter(startDate, endTime, after.getPrice(), after.getId(), limit);
+			return mapAppointments(entities);
+		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>The time is read by the primary key in the transaction of the update, after the update has locked the row.
+	 */
 	@Override
-	public void updateAppointmentStatus(long id, Appointment.AppStatus status) {
-		Optional<AppointmentEntity> optional = repository.findById(id);
-		// this can throw NoSuchElementException
-		AppointmentEntity entity = optional.get();
-		entity.setStatus(status);
-		repository.save(entity);
+	@Transactional
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status) throws NoSuchElementException {
+		try (RoutingScope scope = RoutingScope.id(id)) {
+			if (repository.updateStatus(id, status.name()) == 0) {
+				throw new NoSuchElementException("No appointment with ID " + id);
+			}
+			LocalDateTime time = repository.findTimeById(id).get(0).toLocalDateTime();
+			scope.add(id, time);
+			return time;
+		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>A single update statement with the version in the condition: a concurrent update of the same row waits
+	 * only for the statement. The time read afterwards in the same transaction also tells a missed update apart
+	 * from a missing appointment.
+	 */
 	@Override
-	public Appointment deleteAppointment(long id) {
-		Optional<AppointmentEntity> optional = repository.findById(id);
-		// this can throw NoSuchElementException
-		AppointmentEntity entity = optional.get();
-		repository.deleteById(id);
-		return mapAppointment(entity);
+	@Transactional
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status, long version)
+			throws NoSuchElementException {
+		try (RoutingScope scope = RoutingScope.id(id)) {
+			int updated = repository.updateStatusIfVersion(id, status.name(), version);
+			List<Timestamp> times = repository.findTimeById(id);
+			if (times.isEmpty()) {
+				throw new NoSuchElementException("No appointment with ID " + id);
+			}
+			LocalDateTime time = times.get(0).toLocalDateTime();
+			scope.add(id, time);
+			return updated > 0 ? time : null;
+		}
+	}
+
+	@Override
+	public int updateAppointmentStatuses(Collection<Long> ids, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		List<Long> idList = new ArrayList<>(ids);
+		int count = 0;
+
+		// keeps the IN list of a statement within a reasonable size
+		for (int from = 0; from < idList.size(); from += MAX_IDS_PER_STATEMENT) {
+			List<Long> chunk = idList.subList(from, Math.min(from + MAX_IDS_PER_STATEMENT, idList.size()));
+			try (RoutingScope ignored = RoutingScope.ids(chunk)) {
+				count += repository.updateStatusByIds(chunk, fromStatus.name(), toStatus.name());
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int updateAppointmentStatuses(LocalDate startDate, LocalDate endDate, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		try (RoutingScope ignored = RoutingScope.days(startDate, endDate)) {
+			return repository.updateStatusByTimeBetween(startDate, endDate.plusDays(1), fromStatus.name(),
+					toStatus.name());
+		}
+	}
+
+	@Override
+	public Appointment deleteAppointment(long id) throws NoSuchElementException {
+		// the day is not known before the commit, so the reads of all days wait for the replica
+		try (RoutingScope ignored = RoutingScope.id(id)) {
+			Optional<AppointmentEntity> optional = repository.deleteAndGet(id);
+			// this can throw NoSuchElementException
+			AppointmentEntity entity = optional.get();
+			return mapAppointment(entity);
+		}
+	}
+
+	@Override
+	public int deleteAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status) {
+		int count = 0;
+		int deleted;
+
+		// every chunk is deleted in its own short transaction, so the rows are not locked for long
+		try (RoutingScope ignored = RoutingScope.days(startDate, endDate)) {
+			do {
+				deleted = repository.deleteByTimeBetweenAndStatus(startDate, endDate.plusDays(1), status.name(),
+						DELETE_CHUNK_SIZE);
+				count += deleted;
+			} while (deleted == DELETE_CHUNK_SIZE);
+		}
+		return count;
 	}
 }
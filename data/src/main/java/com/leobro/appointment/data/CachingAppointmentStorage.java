@@ -0,0 +1,141 @@
+package com.leobro.appointment.data;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Read-through cache of the appointments by ID in front of another storage. The cache is bounded by size and time,
+ * the least valuable entries are evicted by the W-TinyLFU policy of Caffeine, which suits the lookups skewed
+ * towards a small set of appointments. The entries are invalidated by every update or delete through this storage.
+ * The hit, miss and eviction counters are available as JMX attributes and as the {@code cache.*} metrics.
+ * <p>The cached {@link Appointment} objects are shared between the callers, so they must not be modified.
+ */
+@ManagedResource(objectName = "com.leobro.appointment:type=AppointmentCache")
+public class CachingAppointmentStorage extends AppointmentStorageDecorator implements MeterBinder {
+
+	private final Cache<Long, Appointment> cache;
+
+	CachingAppointmentStorage(AppointmentStorage delegate, long maximumSize, Duration expireAfterWrite) {
+		super(delegate);
+		cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWrite)
+				.recordStats()
+				.build();
+	}
+
+	@Override
+	public Appointment getAppointment(long id) throws NoSuchElementException {
+		// NoSuchElementException from the delegate is passed through, nothing is cached then
+		return cache.get(id, delegate::getAppointment);
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status) throws NoSuchElementException {
+		try {
+			return delegate.updateAppointmentStatus(id, status);
+		} finally {
+			cache.invalidate(id);
+		}
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status, long version)
+			throws NoSuchElementException {
+		try {
+			return delegate.updateAppointmentStatus(id, status, version);
+		} finally {
+			cache.invalidate(id);
+		}
+	}
+
+	@Override
+	public int updateAppointmentStatuses(Collection<Long> ids, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		try {
+			return delegate.updateAppointmentStatuses(ids, fromStatus, toStatus);
+		} finally {
+			cache.invalidateAll(ids);
+		}
+	}
+
+	@Override
+	public int updateAppointmentStatuses(LocalDate startDate, LocalDate endDate, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		try {
+			return delegate.updateAppointmentStatuses(startDate, endDate, fromStatus, toStatus);
+		} finally {
+			invalidateIf(app -> isWithin(app, startDate, endDate) && app.getStatus() == fromStatus);
+		}
+	}
+
+	@Override
+	public Appointment deleteAppointment(long id) throws NoSuchElementException {
+		try {
+			return delegate.deleteAppointment(id);
+		} finally {
+			cache.invalidate(id);
+		}
+	}
+
+	@Override
+	public int deleteAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status) {
+		try {
+			return delegate.deleteAppointments(startDate, endDate, status);
+		} finally {
+			invalidateIf(app -> isWithin(app, startDate, endDate) && app.getStatus() == status);
+		}
+	}
+
+	/**
+	 * The IDs of the appointments changed by a date range are unknown, so the whole cache is scanned. This is cheap,
+	 * because the cache is bounded.
+	 */
+	private void invalidateIf(Predicate<Appointment> predicate) {
+		cache.asMap().values().removeIf(predicate);
+	}
+
+	private static boolean isWithin(Appointment app, LocalDate startDate, LocalDate endDate) {
+		LocalDate date = app.getTime().toLocalDate();
+		return !date.isBefore(startDate) && !date.isAfter(endDate);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, cache, "appointments");
+	}
+
+	@ManagedAttribute(description = "Number of lookups served from the cache")
+	public long getHitCount() {
+		return cache.stats().hitCount();
+	}
+
+	@ManagedAttribute(description = "Number of lookups passed to the data storage")
+	public long getMissCount() {
+		return cache.stats().missCount();
+	}
+
+	@ManagedAttribute(description = "Number of appointments evicted because of the size or time limit")
+	public long getEvictionCount() {
+		return cache.stats().evictionCount();
+	}
+
+	@ManagedAttribute(description = "Approximate number of cached appointments")
+	public long getSize() {
+		return cache.estimatedSize();
+	}
+}
@@ -0,0 +1,538 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import com.leobro.appointment.service.PageCursor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the appointments in memory in primitive columns instead of objects: 33 bytes per appointment (the ID
+ * and the time take 8 bytes each, the price, the version, the name ID and the position in the time order 4 bytes
+ * each and the status 1 byte), and the scans don't chase pointers. Selected by the {@value StorageProfiles#COLUMNAR} profile.
+ * <p>A row is appended per appointment, so the rows are ordered by ID. The time is kept in seconds since the epoch,
+ * which holds every date without an overflow, the fractions of a second are dropped. The price is kept in cents and
+ * the client name as an ID of the interned name. A permutation of the rows
+ * ordered by time serves the date range queries with a binary search. The rows appended since the last merge
+ * are not in the permutation yet and are scanned; a few of them are merged at once. The result is sorted by
+ * price and ID as a primitive array of the keys, which pack the price and the row.
+ * <p>A deleted row is only marked. The columns are compacted, when the most of the rows are deleted.
+ * <p>The readers share a read lock, the writers hold the write lock.
+ */
+@Repository
+@Profile(StorageProfiles.COLUMNAR)
+@Qualifier(StorageConfiguration.ENGINE)
+public class ColumnarAppointmentStorage implements AppointmentStorage {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/**
+	 * The maximal number of the rows, which are not in the time order yet. They are scanned by every range query.
+	 */
+	static final int MAX_UNSORTED_ROWS = 1024;
+
+	private static final byte DELETED = -1;
+	private static final int NO_NAME = -1;
+	private static final long ROW_MASK = 0xFFFFFFFFL;
+	private static final Appointment.AppStatus[] STATUSES = Appointment.AppStatus.values();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private long[] ids = new long[INITIAL_CAPACITY];
+	private long[] times = new long[INITIAL_CAPACITY];
+	private int[] prices = new int[INITIAL_CAPACITY];
+	private byte[] statuses = new byte[INITIAL_CAPACITY];
+	private int[] versions = new int[INITIAL_CAPACITY];
+	private int[] names = new int[INITIAL_CAPACITY];
+	private int rows;
+	private int deletedRows;
+
+	/**
+	 * The rows from 0 to {@link #sortedRows} ordered by time and ID.
+	 */
+	private int[] timeOrder = new int[INITIAL_CAPACITY];
+	private int sortedRows;
+
+	private List<String> nameTable = new ArrayList<>();
+	private Map<String, Integer> nameIds = new HashMap<>();
+
+	private long lastId;
+
+	@Override
+	public long createAppointment(Appointment app) {
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			return append(app);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public List<Long> createAppointments(List<Appointment> apps) {
+		List<Long> created = new ArrayList<>(apps.size());
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			for (Appointment app : apps) {
+				created.add(append(app));
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		return created;
+	}
+
+	private long append(Appointment app) {
+		if (rows == ids.length) {
+			grow();
+		}
+
+		int row = rows++;
+		ids[row] = ++lastId;
+		times[row] = toSeconds(app.getTime());
+		prices[row] = toCents(app.getPrice());
+		statuses[row] = (byte) app.getStatus().ordinal();
+		versions[row] = 0;
+		names[row] = internName(app.getClientName());
+
+		if (rows - sortedRows > MAX_UNSORTED_ROWS) {
+			mergeTimeOrder();
+		}
+		return ids[row];
+	}
+
+	private void grow() {
+		int capacity = ids.length + (ids.length >> 1);
+
+		ids = Arrays.copyOf(ids, capacity);
+		times = Arrays.copyOf(times, capacity);
+		prices = Arrays.copyOf(prices, capacity);
+		statuses = Arrays.copyOf(statuses, capacity);
+		versions = Arrays.copyOf(versions, capacity);
+		names = Arrays.copyOf(names, capacity);
+		timeOrder = Arrays.copyOf(timeOrder, capacity);
+	}
+
+	private int internName(String name) {
+		if (name == null) {
+			return NO_NAME;
+		}
+		return nameIds.computeIfAbsent(name, key -> {
+			nameTable.add(key);
+			return nameTable.size() - 1;
+		});
+	}
+
+	/**
+	 * Merges the unsorted rows into the time order. The merge runs from the end, so that it needs no new array.
+	 */
+	private void mergeTimeOrder() {
+		int[] unsorted = sortByTime(sortedRows, rows);
+		int i = sortedRows - 1;
+		int j = unsorted.length - 1;
+
+		for (int k = rows - 1; j >= 0; k--) {
+			timeOrder[k] = i >= 0 && compareByTime(timeOrder[i], unsorted[j]) > 0 ? timeOrder[i--] : unsorted[j--];
+		}
+		sortedRows = rows;
+	}
+
+	/**
+	 * Sorts the rows by a bottom-up merge sort of the primitive row numbers, which boxes nothing.
+	 */
+	private int[] sortByTime(int fromRow, int toRow) {
+		int[] order = new int[toRow - fromRow];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = fromRow + i;
+		}
+
+		int[] merged = new int[order.length];
+		for (int width = 1; width < order.length; width *= 2) {
+			for (int left = 0; left < order.length - width; left += 2 * width) {
+				int middle = left + width;
+				int right = Math.min(left + 2 * width, order.length);
+				int i = left;
+				int j = middle;
+				for (int k = left; k < right; k++) {
+					merged[k] = j >= right || i < middle && compareByTime(order[i], order[j]) <= 0
+							? order[i++] : order[j++];
+				}
+				System.arraycopy(merged, left, order, left, right - left);
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * Rows are ordered by ID, so the rows at the same time are ordered by ID too.
+	 */
+	private int compareByTime(int row1, int row2) {
+		int result = Long.compare(times[row1], times[row2]);
+		return result != 0 ? result : Integer.compare(row1, row2);
+	}
+
+	@Override
+	public Appointment getAppointment(long id) throws NoSuchElementException {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			return toAppointment(findRow(id));
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	private int findRow(long id) throws NoSuchElementException {
+		int row = Arrays.binarySearch(ids, 0, rows, id);
+		if (row < 0 || statuses[row] == DELETED) {
+			throw new NoSuchElementException("No appointment with ID " + id);
+		}
+		return row;
+	}
+
+	@Override
+	public List<Appointment> getAllAppointments(LocalDate startDate, LocalDate endDate) {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			return toAppointments(selectByPrice(startDate, endDate, null), Integer.MAX_VALUE);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * The appointments are passed to the consumer after the lock is released, so that a slow consumer doesn't
+	 * block the writers.
+	 */
+	@Override
+	public void forEachAppointment(LocalDate startDate, LocalDate endDate, Consumer<Appointment> consumer) {
+		getAllAppointments(startDate, endDate).forEach(consumer);
+	}
+
+	@Override
+	public List<Appointment> getAppointmentsPage(LocalDate startDate, LocalDate endDate, PageCursor after,
+												 int limit) {
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try {
+			return toAppointments(selectByPrice(startDate, endDate, after), limit);
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Selects the rows scheduled between the dates and positioned after the cursor.
+	 *
+	 * @return The keys of the selected rows sorted by price and ID.
+	 */
+	private KeyArray selectByPrice(LocalDate startDate, LocalDate endDate, PageCursor after) {
+		long from = toSeconds(startDate.atStartOfDay());
+		long to = toSeconds(endDate.plusDays(1).atStartOfDay());
+		// the row may be -1, then the key precedes all rows of the price
+		long afterKey = after == null ? Long.MIN_VALUE
+				: toKey(toCents(after.getPrice()), 0) + rowAfter(after.getId());
+
+		int start = lowerBound(from);
+		int end = lowerBound(to);
+		KeyArray keys = new KeyArray(end - start);
+
+		for (int i = start; i < end; i++) {
+			addKey(keys, timeOrder[i], afterKey);
+		}
+		for (int row = sortedRows; row < rows; row++) {
+			if (times[row] >= from && times[row] < to) {
+				addKey(keys, row, afterKey);
+			}
+		}
+		keys.sort();
+		return keys;
+	}
+
+	private void addKey(KeyArray keys, int row, long afterKey) {
+		if (statuses[row] != DELETED) {
+			long key = toKey(prices[row], row);
+			if (key > afterKey) {
+				keys.add(key);
+			}
+		}
+	}
+
+	/**
+	 * Returns the last row, whose ID is not greater than the passed one. The rows are ordered by ID, so the keys
+	 * of the rows after the cursor are greater than the key of this row.
+	 */
+	private int rowAfter(long id) {
+		int row = Arrays.binarySearch(ids, 0, rows, id);
+		return row >= 0 ? row : -row - 2;
+	}
+
+	/**
+	 * Returns the first position in the time order, whose row is not earlier than the passed time.
+	 */
+	private int lowerBound(long time) {
+		int low = 0;
+		int high = sortedRows;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (times[timeOrder[middle]] < time) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static long toKey(int price, int row) {
+		return (long) price << Integer.SIZE | row & ROW_MASK;
+	}
+
+	private List<Appointment> toAppointments(KeyArray keys, int limit) {
+		int size = Math.min(keys.size, limit);
+		List<Appointment> apps = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			apps.add(toAppointment((int) (keys.keys[i] & ROW_MASK)));
+		}
+		return apps;
+	}
+
+	private Appointment toAppointment(int row) {
+		Appointment app = new Appointment();
+
+		app.setId(ids[row]);
+		app.setClientName(names[row] == NO_NAME ? null : nameTable.get(names[row]));
+		app.setTime(toTime(times[row]));
+		app.setPrice(prices[row] / 100.0);
+		app.setStatus(STATUSES[statuses[row]]);
+		app.setVersion(versions[row]);
+
+		return app;
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status) throws NoSuchElementException {
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			int row = findRow(id);
+			statuses[row] = (byte) status.ordinal();
+			versions[row]++;
+			return toTime(times[row]);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status, long version)
+			throws NoSuchElementException {
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			int row = findRow(id);
+			if (versions[row] != version) {
+				return null;
+			}
+			statuses[row] = (byte) status.ordinal();
+			versions[row]++;
+			return toTime(times[row]);
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public int updateAppointmentStatuses(Collection<Long> appIds, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		int count = 0;
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			for (long id : appIds) {
+				int row = Arrays.binarySearch(ids, 0, rows, id);
+				if (row >= 0 && statuses[row] == fromStatus.ordinal()) {
+					statuses[row] = (byte) toStatus.ordinal();
+					versions[row]++;
+					count++;
+				}
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		return count;
+	}
+
+	@Override
+	public int updateAppointmentStatuses(LocalDate startDate, LocalDate endDate, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			return replaceStatus(startDate, endDate, (byte) fromStatus.ordinal(), (byte) toStatus.ordinal());
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public Appointment deleteAppointment(long id) throws NoSuchElementException {
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			int row = findRow(id);
+			Appointment deleted = toAppointment(row);
+			statuses[row] = DELETED;
+			deletedRows++;
+			compactIfSparse();
+			return deleted;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	@Override
+	public int deleteAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status) {
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try {
+			int count = replaceStatus(startDate, endDate, (byte) status.ordinal(), DELETED);
+			deletedRows += count;
+			compactIfSparse();
+			return count;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private int replaceStatus(LocalDate startDate, LocalDate endDate, byte fromStatus, byte toStatus) {
+		long from = toSeconds(startDate.atStartOfDay());
+		long to = toSeconds(endDate.plusDays(1).atStartOfDay());
+		int count = 0;
+
+		for (int i = lowerBound(from), end = lowerBound(to); i < end; i++) {
+			int row = timeOrder[i];
+			if (statuses[row] == fromStatus) {
+				statuses[row] = toStatus;
+				versions[row]++;
+				count++;
+			}
+		}
+		for (int row = sortedRows; row < rows; row++) {
+			if (times[row] >= from && times[row] < to && statuses[row] == fromStatus) {
+				statuses[row] = toStatus;
+				versions[row]++;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Removes the deleted rows, when they are the most of the rows. The IDs of the rows keep their order,
+	 * and so does the time order. The names, which are not used anymore, are removed too.
+	 */
+	private void compactIfSparse() {
+		if (rows <= INITIAL_CAPACITY || deletedRows * 2 <= rows) {
+			return;
+		}
+
+		int[] newRows = new int[rows];
+		List<String> newNameTable = new ArrayList<>();
+		Map<String, Integer> newNameIds = new HashMap<>();
+		int liveRows = 0;
+
+		for (int row = 0; row < rows; row++) {
+			if (statuses[row] == DELETED) {
+				newRows[row] = -1;
+				continue;
+			}
+			ids[liveRows] = ids[row];
+			times[liveRows] = times[row];
+			prices[liveRows] = prices[row];
+			statuses[liveRows] = statuses[row];
+			versions[liveRows] = versions[row];
+			if (names[row] == NO_NAME) {
+				names[liveRows] = NO_NAME;
+			} else {
+				names[liveRows] = newNameIds.computeIfAbsent(nameTable.get(names[row]), key -> {
+					newNameTable.add(key);
+					return newNameTable.size() - 1;
+				});
+			}
+			newRows[row] = liveRows++;
+		}
+
+		int sortedLiveRows = 0;
+		for (int i = 0; i < sortedRows; i++) {
+			int row = newRows[timeOrder[i]];
+			if (row >= 0) {
+				timeOrder[sortedLiveRows++] = row;
+			}
+		}
+		// the unsorted rows are appended last, so they stay after the sorted ones
+		sortedRows = sortedLiveRows;
+		rows = liveRows;
+		deletedRows = 0;
+		nameTable = newNameTable;
+		nameIds = newNameIds;
+	}
+
+	private static long toSeconds(LocalDateTime time) {
+		return time.toEpochSecond(ZoneOffset.UTC);
+	}
+
+	private static LocalDateTime toTime(long seconds) {
+		return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+	}
+
+	/**
+	 * The prices are kept in cents, the smaller parts are rounded.
+	 */
+	private static int toCents(double price) {
+		return Math.toIntExact(Math.round(price * 100));
+	}
+
+	/**
+	 * Growing array of the keys of the selected rows.
+	 */
+	private static class KeyArray {
+
+		private long[] keys;
+		private int size;
+
+		KeyArray(int capacity) {
+			keys = new long[Math.max(capacity, 16)];
+		}
+
+		void add(long key) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size + (size >> 1));
+			}
+			keys[size++] = key;
+		}
+
+		void sort() {
+			Arrays.sort(keys, 0, size);
+		}
+	}
+}
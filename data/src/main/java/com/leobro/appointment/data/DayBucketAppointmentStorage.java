@@ -0,0 +1,306 @@
+package com.leobro.appointment.data;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the results of the date range queries per calendar day in front of another storage. A day bucket holds
+ * the appointments of the day sorted by price and ID. A multi-day request is answered by the k-way merge of
+ * the cached buckets, only the days missing in the cache are read from the other storage. Overlapping requests,
+ * like "this week" and "today", thus share the cached days.
+ * <p>A write through this storage invalidates only the days it affects. The day of an appointment changed by ID
+ * is known, if the appointment is in a cached bucket; otherwise its day is not cached and there is nothing to
+ * invalidate. A bucket read from the other storage concurrently with a write is discarded, because it may miss
+ * the write.
+ * <p>The cached {@link Appointment} objects are shared between the callers, so they must not be modified.
+ */
+@ManagedResource(objectName = "com.leobro.appointment:type=AppointmentDayCache")
+public class DayBucketAppointmentStorage extends AppointmentStorageDecorator implements MeterBinder {
+
+	private static final Comparator<Appointment> PRICE_ORDER = Comparator.comparingDouble(Appointment::getPrice)
+			.thenComparing(Appointment::getId);
+
+	private final Cache<LocalDate, Bucket> buckets;
+	private final Map<Long, Bucket> bucketsById = new ConcurrentHashMap<>();
+
+	/**
+	 * Changes with every write, so that a reader can tell that its result may be outdated.
+	 */
+	private final AtomicLong writeGeneration = new AtomicLong();
+
+	DayBucketAppointmentStorage(AppointmentStorage delegate, long maximumDays, Duration expireAfterWrite) {
+		super(delegate);
+		buckets = Caffeine.newBuilder()
+				.maximumSize(maximumDays)
+				.expireAfterWrite(expireAfterWrite)
+				.removalListener(this::onRemoval)
+				.recordStats()
+				.build();
+	}
+
+	private void onRemoval(LocalDate day, Bucket bucket, RemovalCause cause) {
+		if (bucket != null && cause != RemovalCause.REPLACED) {
+			// the same appointment may already belong to a newer bucket of this day
+			bucket.appointments.forEach(app -> bucketsById.remove(app.getId(), bucket));
+		}
+	}
+
+	@Override
+	public List<Appointment> getAllAppointments(LocalDate startDate, LocalDate endDate) {
+		List<List<Appointment>> dayLists = new ArrayList<>();
+		LocalDate missingFrom = null;
+
+		for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+			Bucket bucket = buckets.getIfPresent(day);
+			if (bucket == null) {
+				if (missingFrom == null) {
+					missingFrom = day;
+				}
+				continue;
+			}
+			if (missingFrom != null) {
+				dayLists.addAll(load(missingFrom, day.minusDays(1)));
+				missingFrom = null;
+			}
+			dayLists.add(bucket.appointments);
+		}
+		if (missingFrom != null) {
+			dayLists.addAll(load(missingFrom, endDate));
+		}
+		return merge(dayLists);
+	}
+
+	/**
+	 * Reads the appointments of the contiguous missing days with one request and caches them per day.
+	 */
+	private List<List<Appointment>> load(LocalDate startDate, LocalDate endDate) {
+		long generation = writeGeneration.get();
+		List<Appointment> appointments = delegate.getAllAppointments(startDate, endDate);
+
+		Map<LocalDate, List<Appointment>> byDay = new TreeMap<>();
+		for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+			byDay.put(day, new ArrayList<>());
+		}
+		// the appointments are sorted by price, so every day list stays sorted
+		for (Appointment app : appointments) {
+			List<Appointment> dayList = byDay.get(app.getTime().toLocalDate());
+			// a storage must not return the appointments of other days, but one that does mustn't break the cache
+			if (dayList != null) {
+				dayList.add(app);
+			}
+		}
+
+		for (Map.Entry<LocalDate, List<Appointment>> entry : byDay.entrySet()) {
+			Bucket bucket = new Bucket(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+			bucket.appointments.forEach(app -> bucketsById.put(app.getId(), bucket));
+			buckets.put(bucket.day, bucket);
+		}
+		if (writeGeneration.get() != generation) {
+			buckets.invalidateAll(byDay.keySet());
+		}
+		return new ArrayList<>(byDay.values());
+	}
+
+	private static List<Appointment> merge(List<List<Appointment>> dayLists) {
+		int size = 0;
+		PriorityQueue<PeekingIterator> heads = new PriorityQueue<>(Math.max(1, dayLists.size()),
+				(first, second) -> PRICE_ORDER.compare(first.peek(), second.peek()));
+
+		for (List<Appointment> dayList : dayLists) {
+			size += dayList.size();
+			if (!dayList.isEmpty()) {
+				heads.add(new PeekingIterator(dayList.iterator()));
+			}
+		}
+
+		List<Appointment> merged = new ArrayList<>(size);
+		while (!heads.isEmpty()) {
+			PeekingIterator head = heads.poll();
+			merged.add(head.next());
+			if (head.hasNext()) {
+				heads.add(head);
+			}
+		}
+		return merged;
+	}
+
+	@Override
+	public long createAppointment(Appointment appointment) {
+		try {
+			return delegate.createAppointment(appointment);
+		} finally {
+			invalidateDay(appointment.getTime().toLocalDate());
+		}
+	}
+
+	@Override
+	public List<Long> createAppointments(List<Appointment> appointments) {
+		try {
+			return delegate.createAppointments(appointments);
+		} finally {
+			writeGeneration.incrementAndGet();
+			Set<LocalDate> days = new HashSet<>();
+			appointments.forEach(app -> days.add(app.getTime().toLocalDate()));
+			buckets.invalidateAll(days);
+		}
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status) throws NoSuchElementException {
+		try {
+			return delegate.updateAppointmentStatus(id, status);
+		} finally {
+			invalidateDayOf(Collections.singleton(id));
+		}
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status, long version)
+			throws NoSuchElementException {
+		try {
+			return delegate.updateAppointmentStatus(id, status, version);
+		} finally {
+			invalidateDayOf(Collections.singleton(id));
+		}
+	}
+
+	@Override
+	public int updateAppointmentStatuses(Collection<Long> ids, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		try {
+			return delegate.updateAppointmentStatuses(ids, fromStatus, toStatus);
+		} finally {
+			invalidateDayOf(ids);
+		}
+	}
+
+	@Override
+	public int updateAppointmentStatuses(LocalDate startDate, LocalDate endDate, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		try {
+			return delegate.updateAppointmentStatuses(startDate, endDate, fromStatus, toStatus);
+		} finally {
+			invalidateDays(startDate, endDate);
+		}
+	}
+
+	@Override
+	public Appointment deleteAppointment(long id) throws NoSuchElementException {
+		try {
+			return delegate.deleteAppointment(id);
+		} finally {
+			invalidateDayOf(Collections.singleton(id));
+		}
+	}
+
+	@Override
+	public int deleteAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status) {
+		try {
+			return delegate.deleteAppointments(startDate, endDate, status);
+		} finally {
+			invalidateDays(startDate, endDate);
+		}
+	}
+
+	private void invalidateDay(LocalDate day) {
+		writeGeneration.incrementAndGet();
+		buckets.invalidate(day);
+	}
+
+	private void invalidateDayOf(Collection<Long> ids) {
+		writeGeneration.incrementAndGet();
+		for (Long id : ids) {
+			Bucket bucket = bucketsById.get(id);
+			if (bucket != null) {
+				buckets.invalidate(bucket.day);
+			}
+		}
+	}
+
+	/**
+	 * The date range may be much longer than the number of the cached days, so the cached days are scanned.
+	 */
+	private void invalidateDays(LocalDate startDate, LocalDate endDate) {
+		writeGeneration.incrementAndGet();
+		buckets.asMap().keySet().removeIf(day -> !day.isBefore(startDate) && !day.isAfter(endDate));
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, buckets, "appointment-days");
+	}
+
+	@ManagedAttribute(description = "Number of days served from the cache")
+	public long getHitCount() {
+		return buckets.stats().hitCount();
+	}
+
+	@ManagedAttribute(description = "Number of days read from the data storage")
+	public long getMissCount() {
+		return buckets.stats().missCount();
+	}
+
+	@ManagedAttribute(description = "Number of days evicted because of the size or time limit")
+	public long getEvictionCount() {
+		return buckets.stats().evictionCount();
+	}
+
+	@ManagedAttribute(description = "Approximate number of cached days")
+	public long getSize() {
+		return buckets.estimatedSize();
+	}
+
+	/**
+	 * Appointments of one day sorted by price and ID.
+	 */
+	private static class Bucket {
+
+		private final LocalDate day;
+		private final List<Appointment> appointments;
+
+		Bucket(LocalDate day, List<Appointment> appointments) {
+			this.day = day;
+			this.appointments = appointments;
+		}
+	}
+
+	private static class PeekingIterator {
+
+		private final Iterator<Appointment> iterator;
+		private Appointment next;
+
+		PeekingIterator(Iterator<Appointment> iterator) {
+			this.iterator = iterator;
+			next = iterator.next();
+		}
+
+		Appointment peek() {
+			return next;
+		}
+
+		boolean hasNext() {
+			return next != null;
+		}
+
+		Appointment next() {
+			Appointment current = next;
+			next = iterator.hasNext() ? iterator.next() : null;
+			return current;
+		}
+	}
+}
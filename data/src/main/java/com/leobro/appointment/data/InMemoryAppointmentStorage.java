@@ -0,0 +1,367 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import com.leobro.appointment.service.PageCursor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the appointments in the memory of the process instead of a database. Selected by
+ * the {@value StorageProfiles#MEMORY} profile for the deployments, which need the lowest latency and can lose
+ * the data on restart.
+ * <p>The appointments are held in a map by ID and in a sorted map by time, which serves the date range queries.
+ * The stored objects are never modified: a change replaces the object in both maps. So the readers never lock,
+ * they see every appointment either before or after a change. The writers of the same appointment are serialized
+ * by one of the striped locks, the writers of different appointments mostly don't contend.
+ */
+@Repository
+@Profile(StorageProfiles.MEMORY)
+@Qualifier(StorageConfiguration.ENGINE)
+public class InMemoryAppointmentStorage implements AppointmentStorage {
+
+	private static final int LOCK_STRIPES = 64;
+
+	private static final Comparator<Appointment> PRICE_ORDER = Comparator.comparingDouble(Appointment::getPrice)
+			.thenComparing(Appointment::getId);
+
+	private final ConcurrentMap<Long, Appointment> appointments = new ConcurrentHashMap<>();
+	private final ConcurrentNavigableMap<TimeKey, Appointment> timeIndex = new ConcurrentSkipListMap<>();
+	private final AtomicLong sequence = new AtomicLong();
+	private final Lock[] locks = new Lock[LOCK_STRIPES];
+
+	InMemoryAppointmentStorage() {
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	@Override
+	public long createAppointment(Appointment app) {
+		long id = sequence.incrementAndGet();
+		Appointment stored = copy(app, id);
+		stored.setVersion(0);
+
+		timeIndex.put(TimeKey.of(stored), stored);
+		appointments.put(id, stored);
+		return id;
+	}
+
+	@Override
+	public List<Long> createAppointments(List<Appointment> apps) {
+		List<Long> ids = new ArrayList<>(apps.size());
+		for (Appointment app : apps) {
+			ids.add(createAppointment(app));
+		}
+		return ids;
+	}
+
+	@Override
+	public Appointment getAppointment(long id) throws NoSuchElementException {
+		Appointment stored = appointments.get(id);
+		if (stored == null) {
+			throw new NoSuchElementException("No appointment with ID " + id);
+		}
+		return copy(stored, id);
+	}
+
+	@Override
+	public List<Appointment> getAllAppointments(LocalDate startDate, LocalDate endDate) {
+		return range(startDate, endDate).stream()
+				.sorted(PRICE_ORDER)
+				.map(app -> copy(app, app.getId()))
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public void forEachAppointment(LocalDate startDate, LocalDate endDate, Consumer<Appointment> consumer) {
+		// sorting holds only the references to the stored objects, the copies are made one by one
+		range(startDate, endDate).stream()
+				.sorted(PRICE_ORDER)
+				.forEachOrdered(app -> consumer.accept(copy(app, app.getId())));
+	}
+
+	@Override
+	public List<Appointment> getAppointmentsPage(LocalDate startDate, LocalDate endDate, PageCursor after,
+												 int limit) {
+		// keeps the first appointments of the page order without sorting the whole date range
+		PriorityQueue<Appointment> page = new PriorityQueue<>(limit + 1, PRICE_ORDER.reversed());
+
+		for (Appointment app : range(startDate, endDate)) {
+			if (after == null || isAfter(app, after)) {
+				page.add(app);
+				if (page.size() > limit) {
+					page.poll();
+				}
+			}
+		}
+		return page.stream()
+				.sorted(PRICE_ORDER)
+				.map(app -> copy(app, app.getId()))
+				.collect(Collectors.toList());
+	}
+
+	private static boolean isAfter(Appointment app, PageCursor cursor) {
+		return app.getPrice() > cursor.getPrice()
+				|| app.getPrice() == cursor.getPrice() && app.getId() > cursor.getId();
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status) throws NoSuchElementException {
+		Lock lock = lockFor(id);
+		lock.lock();
+		try {
+			Appointment stored = appointments.get(id);
+			if (stored == null) {
+				throw new NoSuchElementException("No appointment with ID " + id);
+			}
+			replaceStatus(stored, status);
+			return stored.getTime();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status, long version)
+			throws NoSuchElementException {
+		Lock lock = lockFor(id);
+		lock.lock();
+		try {
+			Appointment stored = appointments.get(id);
+			if (stored == null) {
+				throw new NoSuchElementException("No appointment with ID " + id);
+			}
+			if (stored.getVersion() != version) {
+				return null;
+			}
+			replaceStatus(stored, status);
+			return stored.getTime();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int updateAppointmentStatuses(Collection<Long> ids, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		int count = 0;
+		for (long id : ids) {
+			if (updateIfStatus(id, fromStatus, toStatus)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int updateAppointmentStatuses(LocalDate startDate, LocalDate endDate, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		int count = 0;
+		for (Appointment app : range(startDate, endDate)) {
+			if (app.getStatus() == fromStatus && updateIfStatus(app.getId(), fromStatus, toStatus)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private boolean updateIfStatus(long id, Appointment.AppStatus fromStatus, Appointment.AppStatus toStatus) {
+		Lock lock = lockFor(id);
+		lock.lock();
+		try {
+			Appointment stored = appointments.get(id);
+			if (stored == null || stored.getStatus() != fromStatus) {
+				return false;
+			}
+			replaceStatus(stored, toStatus);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void replaceStatus(Appointment stored, Appointment.AppStatus status) {
+		Appointment changed = copy(stored, stored.getId());
+		changed.setStatus(status);
+		changed.setVersion(stored.getVersion() + 1);
+
+		timeIndex.put(TimeKey.of(changed), changed);
+		appointments.put(changed.getId(), changed);
+	}
+
+	@Override
+	public Appointment deleteAppointment(long id) throws NoSuchElementException {
+		Lock lock = lockFor(id);
+		lock.lock();
+		try {
+			Appointment removed = appointments.remove(id);
+			if (removed == null) {
+				throw new NoSuchElementException("No appointment with ID " + id);
+			}
+			timeIndex.remove(TimeKey.of(removed));
+			return copy(removed, id);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int deleteAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status) {
+		int count = 0;
+		for (Appointment app : range(startDate, endDate)) {
+			if (app.getStatus() == status && deleteIfStatus(app.getId(), status)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private boolean deleteIfStatus(long id, Appointment.AppStatus status) {
+		Lock lock = lockFor(id);
+		lock.lock();
+		try {
+			Appointment stored = appointments.get(id);
+			if (stored == null || stored.getStatus() != status) {
+				return false;
+			}
+			appointments.remove(id);
+			timeIndex.remove(TimeKey.of(stored));
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Puts the appointment with its ID as is. Used to restore the appointments saved elsewhere.
+	 */
+	void restoreAppointment(Appointment app) {
+		Appointment stored = copy(app, app.getId());
+
+		timeIndex.put(TimeKey.of(stored), stored);
+		appointments.put(stored.getId(), stored);
+		restoreLastId(stored.getId());
+	}
+
+	/**
+	 * Makes sure that the new appointments get IDs greater than the passed one.
+	 */
+	void restoreLastId(long id) {
+		sequence.accumulateAndGet(id, Math::max);
+	}
+
+	long getLastId() {
+		return sequence.get();
+	}
+
+	/**
+	 * Returns the stored appointment with the ID, or {@code null}, if there is none. The caller must not modify it.
+	 */
+	Appointment getStoredAppointment(long id) {
+		return appointments.get(id);
+	}
+
+	/**
+	 * Tells, whether an appointment with the status is scheduled between the dates, the end date inclusive.
+	 */
+	boolean hasAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status) {
+		for (Appointment app : range(startDate, endDate)) {
+			if (app.getStatus() == status) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the stored appointments. They are never modified, so they may be read later without a lock,
+	 * but the caller must not modify them.
+	 */
+	List<Appointment> getStoredAppointments() {
+		return new ArrayList<>(appointments.values());
+	}
+
+	/**
+	 * Returns a live view of the appointments scheduled between the dates, the end date inclusive.
+	 */
+	private Collection<Appointment> range(LocalDate startDate, LocalDate endDate) {
+		return timeIndex.subMap(TimeKey.first(startDate.atStartOfDay()),
+				TimeKey.first(endDate.plusDays(1).atStartOfDay())).values();
+	}
+
+	private Lock lockFor(long id) {
+		return locks[(int) Math.floorMod(id, (long) LOCK_STRIPES)];
+	}
+
+	private static Appointment copy(Appointment app, long id) {
+		Appointment copy = new Appointment();
+
+		copy.setId(id);
+		copy.setClientName(app.getClientName());
+		copy.setTime(app.getTime());
+		copy.setPrice(app.getPrice());
+		copy.setStatus(app.getStatus());
+		copy.setVersion(app.getVersion());
+
+		return copy;
+	}
+
+	/**
+	 * Position of an appointment in the time index. Appointments at the same time are told apart by ID.
+	 */
+	private static class TimeKey implements Comparable<TimeKey> {
+
+		private final LocalDateTime time;
+		private final long id;
+
+		private TimeKey(LocalDateTime time, long id) {
+			this.time = time;
+			this.id = id;
+		}
+
+		static TimeKey of(Appointment app) {
+			return new TimeKey(app.getTime(), app.getId());
+		}
+
+		/**
+		 * Returns the key preceding all appointments at the passed time.
+		 */
+		static TimeKey first(LocalDateTime time) {
+			return new TimeKey(time, Long.MIN_VALUE);
+		}
+
+		@Override
+		public int compareTo(TimeKey other) {
+			int result = time.compareTo(other.time);
+			return result != 0 ? result : Long.compare(id, other.id);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (o == null || getClass() != o.getClass()) return false;
+			TimeKey that = (TimeKey) o;
+			return id == that.id && time.equals(that.time);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(time, id);
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.AppointmentStorage;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Assembles the {@link AppointmentStorage} used by the service from a storage keeping the appointments in memory.
+ * Only the calls to it are measured, see {@link StorageConfiguration} for the storage in the database.
+ */
+@Configuration
+@Profile(StorageProfiles.IN_MEMORY)
+class InMemoryStorageConfiguration {
+
+	@Bean
+	@Primary
+	MeteredAppointmentStorage meteredAppointmentStorage(
+			@Qualifier(StorageConfiguration.ENGINE) AppointmentStorage storage) {
+		return new MeteredAppointmentStorage(storage);
+	}
+}
@@ -0,0 +1,17 @@
+package com.leobro.appointment.data;
+
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Enables the JPA repositories and entities of this package unless the in-memory storage is used, which needs
+ * no database.
+ */
+@Configuration
+@Profile(StorageProfiles.JPA)
+@EnableJpaRepositories
+@EntityScan
+class JpaConfiguration {
+}
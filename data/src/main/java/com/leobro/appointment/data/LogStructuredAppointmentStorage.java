@@ -0,0 +1,529 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import com.leobro.appointment.service.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the appointments in memory like {@link InMemoryAppointmentStorage} and makes every change durable in
+ * an {@link AppointmentLog} on the local disk. Selected by the {@value StorageProfiles#LOG} profile.
+ * <p>A change is appended to the log and then applied in memory under one lock, so the log has the changes in
+ * the order they were applied, and replaying the log repeats them exactly. A change, which fails to be appended,
+ * is not applied, so the readers never see a change missing in the log. The writer then waits for the log to be
+ * forced to the disk outside of the lock. A change is thus visible to the readers shortly before the writer
+ * returns.
+ * <p>After the given number of records, the log is compacted: all appointments are written to a snapshot file,
+ * and the log segments it covers are deleted. On start, the snapshot is loaded and the rest of the log is
+ * replayed.
+ */
+@Repository
+@Profile(StorageProfiles.LOG)
+@Qualifier(StorageConfiguration.ENGINE)
+public class LogStructuredAppointmentStorage implements AppointmentStorage, Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredAppointmentStorage.class);
+
+	private static final String SNAPSHOT_FILE = "snapshot";
+	private static final String SNAPSHOT_TEMP_FILE = "snapshot.tmp";
+	/**
+	 * Starts the snapshot, which keeps the version after every appointment. The versions in the log are not
+	 * stored, they are repeated by replaying the changes.
+	 */
+	private static final int SNAPSHOT_MAGIC = 0x41505056;
+	private static final int SNAPSHOT_BUFFER_SIZE = 64 * 1024;
+
+	private static final byte CREATE = 1;
+	private static final byte UPDATE_STATUS = 2;
+	private static final byte UPDATE_STATUSES_BY_IDS = 3;
+	private static final byte UPDATE_STATUSES_BY_DATES = 4;
+	private static final byte DELETE = 5;
+	private static final byte DELETE_BY_DATES = 6;
+
+	private static final byte STATUS_OBTAIN = 0;
+	private static final byte STATUS_WAIT = 1;
+	private static final byte STATUS_PASS = 2;
+
+	private static final int STATUS_SIZE = Byte.BYTES;
+	private static final int DATE_SIZE = Long.BYTES;
+	private static final int APPOINTMENT_SIZE = Long.BYTES + 2 * Long.BYTES + Double.BYTES + STATUS_SIZE
+			+ Integer.BYTES;
+
+	private final InMemoryAppointmentStorage memory = new InMemoryAppointmentStorage();
+	private final Object writeLock = new Object();
+	private final Path directory;
+	private final AppointmentLog log;
+
+	private final long snapshotRecords;
+	private final AtomicLong recordsSinceSnapshot = new AtomicLong();
+	private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+	private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "appointment-log-snapshot");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Restores the appointments from the snapshot and the log in the directory.
+	 *
+	 * @param directory       the directory of the snapshot and log files,
+	 * @param snapshotRecords the number of the log records, after which a new snapshot is made.
+	 */
+	@Autowired
+	LogStructuredAppointmentStorage(@Value("${appointment.log.directory:appointment-log}") String directory,
+									@Value("${appointment.log.snapshot-records:100000}") long snapshotRecords)
+			throws IOException {
+		this.directory = Paths.get(directory);
+		this.snapshotRecords = snapshotRecords;
+
+		Files.createDirectories(this.directory);
+		long lastSnapshotSegment = loadSnapshot();
+		log = new AppointmentLog(this.directory, lastSnapshotSegment + 1);
+		log.replay(lastSnapshotSegment, this::replay);
+	}
+
+	@Override
+	public long createAppointment(Appointment app) {
+		long id;
+		long position;
+
+		synchronized (writeLock) {
+			// the sequence advances only under the lock, so the memory assigns the same ID
+			id = memory.getLastId() + 1;
+			position = log.append(Collections.singletonList(encodeCreate(id, app)));
+			memory.createAppointment(app);
+		}
+		awaitDurable(position, 1);
+		return id;
+	}
+
+	@Override
+	public List<Long> createAppointments(List<Appointment> apps) {
+		List<Long> ids;
+		long position;
+
+		synchronized (writeLock) {
+			long lastId = memory.getLastId();
+			List<ByteBuffer> records = new ArrayList<>(apps.size());
+			for (int i = 0; i < apps.size(); i++) {
+				records.add(encodeCreate(lastId + 1 + i, apps.get(i)));
+			}
+			position = log.append(records);
+			ids = memory.createAppointments(apps);
+		}
+		// all records share one force of the log
+		awaitDurable(position, apps.size());
+		return ids;
+	}
+
+	@Override
+	public Appointment getAppointment(long id) throws NoSuchElementException {
+		return memory.getAppointment(id);
+	}
+
+	@Override
+	public List<Appointment> getAllAppointments(LocalDate startDate, LocalDate endDate) {
+		return memory.getAllAppointments(startDate, endDate);
+	}
+
+	@Override
+	public void forEachAppointment(LocalDate startDate, LocalDate endDate, Consumer<Appointment> consumer) {
+		memory.forEachAppointment(startDate, endDate, consumer);
+	}
+
+	@Override
+	public List<Appointment> getAppointmentsPage(LocalDate startDate, LocalDate endDate, PageCursor after,
+												 int limit) {
+		return memory.getAppointmentsPage(startDate, endDate, after, limit);
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status) throws NoSuchElementException {
+		LocalDateTime time;
+		long position;
+
+		synchronized (writeLock) {
+			getStoredAppointment(id);
+			position = log.append(Collections.singletonList(encodeUpdateStatus(id, status)));
+			time = memory.updateAppointmentStatus(id, status);
+		}
+		awaitDurable(position, 1);
+		return time;
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status, long version)
+			throws NoSuchElementException {
+		LocalDateTime time;
+		long position;
+
+		synchronized (writeLock) {
+			if (getStoredAppointment(id).getVersion() != version) {
+				return null;
+			}
+			// replayed as an unconditional update, which increases the version the same way
+			position = log.append(Collections.singletonList(encodeUpdateStatus(id, status)));
+			time = memory.updateAppointmentStatus(id, status);
+		}
+		awaitDurable(position, 1);
+		return time;
+	}
+
+	@Override
+	public int updateAppointmentStatuses(Collection<Long> ids, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		int count;
+		long position;
+
+		synchronized (writeLock) {
+			if (ids.stream().map(memory::getStoredAppointment)
+					.noneMatch(app -> app != null && app.getStatus() == fromStatus)) {
+				return 0;
+			}
+			ByteBuffer record = ByteBuffer.allocate(Byte.BYTES + 2 * STATUS_SIZE + Integer.BYTES
+					+ ids.size() * Long.BYTES)
+					.put(UPDATE_STATUSES_BY_IDS);
+			putStatus(record, fromStatus);
+			putStatus(record, toStatus);
+			record.putInt(ids.size());
+			ids.forEach(record::putLong);
+			position = log.append(Collections.singletonList(flip(record)));
+			count = memory.updateAppointmentStatuses(ids, fromStatus, toStatus);
+		}
+		awaitDurable(position, 1);
+		return count;
+	}
+
+	@Override
+	public int updateAppointmentStatuses(LocalDate startDate, LocalDate endDate, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		int count;
+		long position;
+
+		synchronized (writeLock) {
+			if (!memory.hasAppointments(startDate, endDate, fromStatus)) {
+				return 0;
+			}
+			// the record of the range is replayed on the same appointments, because the log keeps the order
+			ByteBuffer record = ByteBuffer.allocate(Byte.BYTES + 2 * DATE_SIZE + 2 * STATUS_SIZE)
+					.put(UPDATE_STATUSES_BY_DATES)
+					.putLong(startDate.toEpochDay())
+					.putLong(endDate.toEpochDay());
+			putStatus(record, fromStatus);
+			putStatus(record, toStatus);
+			position = log.append(Collections.singletonList(flip(record)));
+			count = memory.updateAppointmentStatuses(startDate, endDate, fromStatus, toStatus);
+		}
+		awaitDurable(position, 1);
+		return count;
+	}
+
+	@Override
+	public Appointment deleteAppointment(long id) throws NoSuchElementException {
+		Appointment deleted;
+		long position;
+
+		synchronized (writeLock) {
+			getStoredAppointment(id);
+			ByteBuffer record = ByteBuffer.allocate(Byte.BYTES + Long.BYTES)
+					.put(DELETE)
+					.putLong(id);
+			position = log.append(Collections.singletonList(flip(record)));
+			deleted = memory.deleteAppointment(id);
+		}
+		awaitDurable(position, 1);
+		return deleted;
+	}
+
+	@Override
+	public int deleteAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status) {
+		int count;
+		long position;
+
+		synchronized (writeLock) {
+			if (!memory.hasAppointments(startDate, endDate, status)) {
+				return 0;
+			}
+			ByteBuffer record = ByteBuffer.allocate(Byte.BYTES + 2 * DATE_SIZE + STATUS_SIZE)
+					.put(DELETE_BY_DATES)
+					.putLong(startDate.toEpochDay())
+					.putLong(endDate.toEpochDay());
+			putStatus(record, status);
+			position = log.append(Collections.singletonList(flip(record)));
+			count = memory.deleteAppointments(startDate, endDate, status);
+		}
+		awaitDurable(position, 1);
+		return count;
+	}
+
+	/**
+	 * Returns the stored appointment, which is about to be changed.
+	 *
+	 * @throws NoSuchElementException if there is no appointment with the ID.
+	 */
+	private Appointment getStoredAppointment(long id) throws NoSuchElementException {
+		Appointment stored = memory.getStoredAppointment(id);
+		if (stored == null) {
+			throw new NoSuchElementException("No appointment with ID " + id);
+		}
+		return stored;
+	}
+
+	private void awaitDurable(long position, int records) {
+		log.awaitDurable(position);
+
+		if (recordsSinceSnapshot.addAndGet(records) >= snapshotRecords && snapshotScheduled.compareAndSet(false, true)) {
+			snapshotExecutor.execute(() -> {
+				try {
+					snapshot();
+				} catch (IOException | RuntimeException e) {
+					// the log stays complete, so only the compaction is lost
+					LOGGER.error("Failed to write the snapshot of the appointments", e);
+				} finally {
+					snapshotScheduled.set(false);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Writes all appointments to a new snapshot and deletes the log segments it covers.
+	 */
+	void snapshot() throws IOException {
+		long lastSegment;
+		long lastId;
+		List<Appointment> apps;
+
+		// only the references are copied under the lock, the stored appointments are never modified
+		synchronized (writeLock) {
+			lastSegment = log.rotate();
+			lastId = memory.getLastId();
+			apps = memory.getStoredAppointments();
+			recordsSinceSnapshot.set(0);
+		}
+
+		Path tempFile = directory.resolve(SNAPSHOT_TEMP_FILE);
+		try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), SNAPSHOT_BUFFER_SIZE);
+			ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + 2 * Long.BYTES + Integer.BYTES)
+					.putInt(SNAPSHOT_MAGIC)
+					.putLong(lastSegment)
+					.putLong(lastId)
+					.putInt(apps.size());
+			out.write(header.array());
+			ByteBuffer version = ByteBuffer.allocate(Long.BYTES);
+			for (Appointment app : apps) {
+				out.write(encodeAppointment(app, app.getId()).array());
+				version.clear();
+				out.write(version.putLong(app.getVersion()).array());
+			}
+			out.flush();
+			channel.force(true);
+		}
+		// a crash leaves either the old or the new snapshot complete
+		Files.move(tempFile, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		log.deleteSegments(lastSegment);
+	}
+
+	/**
+	 * Loads the appointments from the snapshot, if there is one.
+	 *
+	 * @return The number of the last log segment covered by the snapshot.
+	 */
+	private long loadSnapshot() throws IOException {
+		Path file = directory.resolve(SNAPSHOT_FILE);
+		if (!Files.exists(file)) {
+			return 0;
+		}
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.getInt() != SNAPSHOT_MAGIC) {
+				throw new IOException("Not a snapshot of the appointments: " + file);
+			}
+			long lastSegment = buffer.getLong();
+			memory.restoreLastId(buffer.getLong());
+			int count = buffer.getInt();
+			for (int i = 0; i < count; i++) {
+				Appointment app = getAppointment(buffer);
+				app.setVersion(buffer.getLong());
+				memory.restoreAppointment(app);
+			}
+			return lastSegment;
+		}
+	}
+
+	private void replay(ByteBuffer record) {
+		byte type = record.get();
+
+		switch (type) {
+			case CREATE:
+				memory.restoreAppointment(getAppointment(record));
+				break;
+			case UPDATE_STATUS:
+				memory.updateAppointmentStatus(record.getLong(), getStatus(record));
+				break;
+			case UPDATE_STATUSES_BY_IDS: {
+				Appointment.AppStatus fromStatus = getStatus(record);
+				Appointment.AppStatus toStatus = getStatus(record);
+				List<Long> ids = new ArrayList<>();
+				for (int count = record.getInt(); count > 0; count--) {
+					ids.add(record.getLong());
+				}
+				memory.updateAppointmentStatuses(ids, fromStatus, toStatus);
+				break;
+			}
+			case UPDATE_STATUSES_BY_DATES:
+				memory.updateAppointmentStatuses(LocalDate.ofEpochDay(record.getLong()),
+						LocalDate.ofEpochDay(record.getLong()), getStatus(record), getStatus(record));
+				break;
+			case DELETE:
+				memory.deleteAppointment(record.getLong());
+				break;
+			case DELETE_BY_DATES:
+				memory.deleteAppointments(LocalDate.ofEpochDay(record.getLong()),
+						LocalDate.ofEpochDay(record.getLong()), getStatus(record));
+				break;
+			default:
+				throw new IllegalStateException("Unknown log record type " + type);
+		}
+	}
+
+	private static ByteBuffer encodeCreate(long id, Appointment app) {
+		ByteBuffer appointment = encodeAppointment(app, id);
+		return flip(ByteBuffer.allocate(Byte.BYTES + appointment.capacity())
+				.put(CREATE)
+				.put(appointment));
+	}
+
+	private static ByteBuffer encodeAppointment(Appointment app, long id) {
+		byte[] name = app.getClientName() == null ? null : app.getClientName().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(APPOINTMENT_SIZE + (name == null ? 0 : name.length))
+				.putLong(id)
+				.putLong(app.getTime().toLocalDate().toEpochDay())
+				.putLong(app.getTime().toLocalTime().toNanoOfDay())
+				.putDouble(app.getPrice());
+		putStatus(buffer, app.getStatus());
+		if (name == null) {
+			buffer.putInt(-1);
+		} else {
+			buffer.putInt(name.length).put(name);
+		}
+		return flip(buffer);
+	}
+
+	private static Appointment getAppointment(ByteBuffer buffer) {
+		Appointment app = new Appointment();
+
+		app.setId(buffer.getLong());
+		app.setTime(LocalDateTime.of(LocalDate.ofEpochDay(buffer.getLong()), LocalTime.ofNanoOfDay(buffer.getLong())));
+		app.setPrice(buffer.getDouble());
+		app.setStatus(getStatus(buffer));
+		int nameLength = buffer.getInt();
+		if (nameLength >= 0) {
+			byte[] name = new byte[nameLength];
+			buffer.get(name);
+			app.setClientName(new String(name, StandardCharsets.UTF_8));
+		}
+
+		return app;
+	}
+
+	private static ByteBuffer encodeUpdateStatus(long id, Appointment.AppStatus status) {
+		ByteBuffer record = ByteBuffer.allocate(Byte.BYTES + Long.BYTES + STATUS_SIZE)
+				.put(UPDATE_STATUS)
+				.putLong(id);
+		putStatus(record, status);
+		return flip(record);
+	}
+
+	/**
+	 * The statuses are stored by their explicit codes, which don't depend on the order of the enum and must never
+	 * be reused.
+	 */
+	private static void putStatus(ByteBuffer buffer, Appointment.AppStatus status) {
+		switch (status) {
+			case OBTAIN:
+				buffer.put(STATUS_OBTAIN);
+				break;
+			case WAIT:
+				buffer.put(STATUS_WAIT);
+				break;
+			case PASS:
+				buffer.put(STATUS_PASS);
+				break;
+			default:
+				throw new IllegalArgumentException("No log code for the status " + status);
+		}
+	}
+
+	private static Appointment.AppStatus getStatus(ByteBuffer buffer) {
+		byte code = buffer.get();
+
+		switch (code) {
+			case STATUS_OBTAIN:
+				return Appointment.AppStatus.OBTAIN;
+			case STATUS_WAIT:
+				return Appointment.AppStatus.WAIT;
+			case STATUS_PASS:
+				return Appointment.AppStatus.PASS;
+			default:
+				throw new IllegalStateException("Unknown status code " + code);
+		}
+	}
+
+	private static ByteBuffer flip(ByteBuffer buffer) {
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Waits for the running snapshot and closes the log.
+	 */
+	@Override
+	public void close() throws IOException {
+		snapshotExecutor.shutdown();
+		try {
+			snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		log.close();
+	}
+}
@@ -0,0 +1,147 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import com.leobro.appointment.service.PageCursor;
+import com.leobro.appointment.service.Trace;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Measures the time of every call to another storage. The {@value #TIMER} timer is tagged by the name of the
+ * storage method in the {@code operation} tag, the failed calls are counted by the {@value #ERRORS} counter tagged
+ * by the operation and the exception. The time of {@link #forEachAppointment} includes the time the consumer takes.
+ * <p>Nothing is measured until the storage is bound to a {@link MeterRegistry}, which Spring Boot does, when
+ * the application has one. Every call is also recorded as the {@code storage.<operation>} span of the {@link Trace}
+ * of the request.
+ */
+class MeteredAppointmentStorage extends AppointmentStorageDecorator implements MeterBinder {
+
+	static final String TIMER = "appointment.storage";
+	static final String ERRORS = "appointment.storage.errors";
+
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+	private volatile MeterRegistry registry;
+
+	MeteredAppointmentStorage(AppointmentStorage delegate) {
+		super(delegate);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	private <T> T time(String operation, Supplier<T> call) {
+		try (Trace.Span ignored = Trace.span("storage." + operation)) {
+			MeterRegistry registry = this.registry;
+			if (registry == null) {
+				return call.get();
+			}
+
+			long start = System.nanoTime();
+			try {
+				return call.get();
+			} catch (RuntimeException e) {
+				registry.counter(ERRORS, "operation", operation, "exception", e.getClass().getSimpleName())
+						.increment();
+				throw e;
+			} finally {
+				timers.computeIfAbsent(operation, key -> createTimer(registry, key))
+						.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	private void time(String operation, Runnable call) {
+		time(operation, () -> {
+			call.run();
+			return null;
+		});
+	}
+
+	private static Timer createTimer(MeterRegistry registry, String operation) {
+		return Timer.builder(TIMER)
+				.description("Time of the calls to the data storage")
+				.tag("operation", operation)
+				.register(registry);
+	}
+
+	@Override
+	public long createAppointment(Appointment appointment) {
+		return time("createAppointment", () -> delegate.createAppointment(appointment));
+	}
+
+	@Override
+	public List<Long> createAppointments(List<Appointment> appointments) {
+		return time("createAppointments", () -> delegate.createAppointments(appointments));
+	}
+
+	@Override
+	public Appointment getAppointment(long id) throws NoSuchElementException {
+		return time("getAppointment", () -> delegate.getAppointment(id));
+	}
+
+	@Override
+	public List<Appointment> getAllAppointments(LocalDate startDate, LocalDate endDate) {
+		return time("getAllAppointments", () -> delegate.getAllAppointments(startDate, endDate));
+	}
+
+	@Override
+	public void forEachAppointment(LocalDate startDate, LocalDate endDate, Consumer<Appointment> consumer) {
+		time("forEachAppointment", () -> delegate.forEachAppointment(startDate, endDate, consumer));
+	}
+
+	@Override
+	public List<Appointment> getAppointmentsPage(LocalDate startDate, LocalDate endDate, PageCursor after,
+												 int limit) {
+		return time("getAppointmentsPage", () -> delegate.getAppointmentsPage(startDate, endDate, after, limit));
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status) throws NoSuchElementException {
+		return time("updateAppointmentStatus", () -> delegate.updateAppointmentStatus(id, status));
+	}
+
+	@Override
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status, long version)
+			throws NoSuchElementException {
+		return time("updateAppointmentStatusIfVersion", () -> delegate.updateAppointmentStatus(id, status, version));
+	}
+
+	@Override
+	public int updateAppointmentStatuses(Collection<Long> ids, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		return time("updateAppointmentStatusesByIds",
+				() -> delegate.updateAppointmentStatuses(ids, fromStatus, toStatus));
+	}
+
+	@Override
+	public int updateAppointmentStatuses(LocalDate startDate, LocalDate endDate, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		return time("updateAppointmentStatusesByDates",
+				() -> delegate.updateAppointmentStatuses(startDate, endDate, fromStatus, toStatus));
+	}
+
+	@Override
+	public Appointment deleteAppointment(long id) throws NoSuchElementException {
+		return time("deleteAppointment", () -> delegate.deleteAppointment(id));
+	}
+
+	@Override
+	public int deleteAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status) {
+		return time("deleteAppointments", () -> delegate.deleteAppointments(startDate, endDate, status));
+	}
+}
@@ -0,0 +1,521 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import com.leobro.appointment.service.PageCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the appointments in the database in one table per month of their time, the partitions, through plain
+ * JDBC. Selected by the {@value StorageProfiles#PARTITIONED} profile, the caches and the read replica of the JPA
+ * storage apply.
+ * <p>A date range is read only from the partitions of its months by one {@code UNION ALL} statement, so the index
+ * of a partition covers a single month, and a month can be dropped as a whole table. The time of an appointment
+ * never changes, and its month is encoded in the lower bits of its ID, so an appointment is found by its ID in its
+ * partition without asking the other ones.
+ * <p>The partitions of the current and the next months are created in advance and checked every hour; a partition
+ * further in the future is created by the first appointment in it. Then another process using the same database
+ * reads it only after its own next check. If the retention is set, the partitions of the months before it are
+ * dropped by the same check.
+ * <p>Every write runs in a transaction, so that a batch spanning several partitions is committed as a whole and
+ * the commit is known to {@link ReadWriteRoutingDataSource} together with the {@link RoutingScope} of the write.
+ */
+@Repository
+@Profile(StorageProfiles.PARTITIONED)
+@Qualifier(StorageConfiguration.ENGINE)
+public class PartitionedAppointmentStorage implements AppointmentStorage {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PartitionedAppointmentStorage.class);
+
+	private static final String SEQUENCE = "appointment_partition_seq";
+	private static final String COLUMNS = "id, client_name, time, price, status, version";
+	private static final Pattern PARTITION_NAME = Pattern.compile("appointment_p(\\d{4})_(\\d{2})",
+			Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * The number of the lower bits of an ID keeping the month of the appointment.
+	 */
+	static final int MONTH_BITS = 16;
+	private static final YearMonth FIRST_MONTH = YearMonth.of(1970, 1);
+	private static final Duration MAINTENANCE_INTERVAL = Duration.ofHours(1);
+
+	private static final RowMapper<Appointment> APPOINTMENT_MAPPER = PartitionedAppointmentStorage::mapAppointment;
+
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final int monthsAhead;
+	private final int retentionMonths;
+	private final NavigableSet<YearMonth> partitions = new ConcurrentSkipListSet<>();
+	private final ScheduledExecutorService maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(
+			runnable -> {
+				Thread thread = new Thread(runnable, "appointment-partitions");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	private long nextSequence;
+	private long sequenceLimit;
+
+	/**
+	 * Creates the ID sequence, if it doesn't exist yet, and finds the existing partitions.
+	 *
+	 * @param jdbcTemplate       the access to the database,
+	 * @param transactionManager the transactions of the writes, which are not bound to a single method call,
+	 * @param monthsAhead        the number of the months after the current one, which partitions are created in
+	 *                           advance,
+	 * @param retentionMonths    the number of the past months kept besides the current one; zero or negative
+	 *                           keeps all of them.
+	 */
+	@Autowired
+	PartitionedAppointmentStorage(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+								  @Value("${appointment.partitions.months-ahead:12}") int monthsAhead,
+								  @Value("${appointment.partitions.retention-months:0}") int retentionMonths) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.monthsAhead = monthsAhead;
+		this.retentionMonths = retentionMonths;
+
+		jdbcTemplate.setFetchSize(AppointmentRepositoryImpl.FETCH_SIZE);
+		jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE + " START WITH 1 INCREMENT BY "
+				+ AppointmentEntity.ID_ALLOCATION_SIZE);
+		findPartitions();
+	}
+
+	private void findPartitions() {
+		for (String table : jdbcTemplate.queryForList("SELECT table_name FROM information_schema.tables",
+				String.class)) {
+			Matcher matcher = PARTITION_NAME.matcher(table);
+			if (matcher.matches()) {
+				partitions.add(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+			}
+		}
+	}
+
+	@PostConstruct
+	void startMaintenance() {
+		maintain(YearMonth.now());
+		maintenanceExecutor.scheduleWithFixedDelay(() -> maintain(YearMonth.now()), MAINTENANCE_INTERVAL.toMillis(),
+				MAINTENANCE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	void stopMaintenance() {
+		maintenanceExecutor.shutdownNow();
+	}
+
+	/**
+	 * Finds the partitions created by the other processes, creates the partitions of the current and the upcoming
+	 * months and drops the partitions older than the retention.
+	 */
+	void maintain(YearMonth current) {
+		try {
+			findPartitions();
+			for (int i = 0; i <= monthsAhead; i++) {
+				ensurePartition(current.plusMonths(i));
+			}
+			if (retentionMonths > 0) {
+				dropPartitionsBefore(current.minusMonths(retentionMonths));
+			}
+		} catch (RuntimeException e) {
+			LOGGER.error("Failed to maintain the appointment partitions", e);
+		}
+	}
+
+	/**
+	 * Drops the partitions of the months before the passed one with all their appointments. A partition is dropped
+	 * as a whole table, so it takes the same time regardless of the number of the appointments.
+	 *
+	 * @return The number of dropped partitions.
+	 */
+	int dropPartitionsBefore(YearMonth month) {
+		List<YearMonth> dropped = new ArrayList<>(partitions.headSet(month, false));
+		for (YearMonth partition : dropped) {
+			partitions.remove(partition);
+			jdbcTemplate.execute("DROP TABLE IF EXISTS " + tableOf(partition));
+			LOGGER.info("Dropped the appointment partition of {}", partition);
+		}
+		return dropped.size();
+	}
+
+	/**
+	 * Returns the months of the existing partitions in the order of time.
+	 */
+	List<YearMonth> getPartitions() {
+		return new ArrayList<>(partitions);
+	}
+
+	private void ensurePartition(YearMonth month) {
+		if (partitions.contains(month)) {
+			return;
+		}
+		synchronized (partitions) {
+			if (!partitions.contains(month)) {
+				String table = tableOf(month);
+				jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + " (" +
+						"id BIGINT PRIMARY KEY, " +
+						"client_name VARCHAR(255), " +
+						"time TIMESTAMP NOT NULL, " +
+						"price DOUBLE NOT NULL, " +
+						"status VARCHAR(16), " +
+						"version BIGINT DEFAULT 0 NOT NULL)");
+				// the same indexes as the single table of AppointmentEntity, but of one month each
+				jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_time_price_idx ON " + table +
+						" (time, price)");
+				jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table + "_status_time_idx ON " + table +
+						" (status, time)");
+				partitions.add(month);
+			}
+		}
+	}
+
+	static String tableOf(YearMonth month) {
+		return String.format("appointment_p%04d_%02d", month.getYear(), month.getMonthValue());
+	}
+
+	static long encodeId(long sequence, YearMonth month) {
+		long index = FIRST_MONTH.until(month, ChronoUnit.MONTHS);
+		if (index < 0 || index >= 1 << MONTH_BITS) {
+			throw new IllegalArgumentException("No partition for the time in " + month);
+		}
+		return sequence << MONTH_BITS | index;
+	}
+
+	static YearMonth monthOf(long id) {
+		return FIRST_MONTH.plusMonths(id & (1 << MONTH_BITS) - 1);
+	}
+
+	/**
+	 * Hands out the numbers of the sequence from a block reserved by one sequence call, like Hibernate does for
+	 * {@link AppointmentEntity}.
+	 */
+	private synchronized long nextSequence() {
+		if (nextSequence == sequenceLimit) {
+			nextSequence = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + SEQUENCE, Long.class);
+			sequenceLimit = nextSequence + AppointmentEntity.ID_ALLOCATION_SIZE;
+		}
+		return nextSequence++;
+	}
+
+	@Override
+	@Transactional
+	public long createAppointment(Appointment app) {
+		return createAppointments(Collections.singletonList(app)).get(0);
+	}
+
+	@Override
+	@Transactional
+	public List<Long> createAppointments(List<Appointment> appointments) {
+		List<Long> ids = new ArrayList<>(appointments.size());
+		Map<YearMonth, List<Object[]>> rowsByMonth = new LinkedHashMap<>();
+
+		try (RoutingScope scope = RoutingScope.appointments()) {
+			for (Appointment app : appointments) {
+				YearMonth month = YearMonth.from(app.getTime());
+				long id = encodeId(nextSequence(), month);
+				ids.add(id);
+				scope.add(id, app.getTime());
+				rowsByMonth.computeIfAbsent(month, key -> new ArrayList<>()).add(new Object[]{
+						id, app.getClientName(), Timestamp.valueOf(app.getTime()), app.getPrice(),
+						app.getStatus().name(), 0L});
+			}
+
+			// the DDL may commit the transaction, so the partitions are created before the first insert
+			rowsByMonth.keySet().forEach(this::ensurePartition);
+
+			// one JDBC batch per partition
+			for (Map.Entry<YearMonth, List<Object[]>> rows : rowsByMonth.entrySet()) {
+				jdbcTemplate.batchUpdate("INSERT INTO " + tableOf(rows.getKey()) + " (" + COLUMNS +
+						") VALUES (?, ?, ?, ?, ?, ?)", rows.getValue());
+			}
+		}
+		return ids;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public Appointment getAppointment(long id) throws NoSuchElementException {
+		YearMonth month = monthOf(id);
+		if (!partitions.contains(month)) {
+			throw new NoSuchElementException("No appointment with ID " + id);
+		}
+
+		List<Appointment> apps;
+		try (RoutingScope ignored = RoutingScope.id(id)) {
+			apps = jdbcTemplate.query("SELECT " + COLUMNS + " FROM " + tableOf(month) + " WHERE id = ?",
+					APPOINTMENT_MAPPER, id);
+		}
+		if (apps.isEmpty()) {
+			throw new NoSuchElementException("No appointment with ID " + id);
+		}
+		return apps.get(0);
+	}
+
+	private static Appointment mapAppointment(ResultSet rs, int rowNum) throws SQLException {
+		Appointment app = new Appointment();
+
+		app.setId(rs.getLong(1));
+		app.setClientName(rs.getString(2));
+		app.setTime(rs.getTimestamp(3).toLocalDateTime());
+		app.setPrice(rs.getDouble(4));
+		app.setStatus(Appointment.AppStatus.valueOf(rs.getString(5)));
+		app.setVersion(rs.getLong(6));
+
+		return app;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Appointment> getAllAppointments(LocalDate startDate, LocalDate endDate) {
+		RangeQuery query = new RangeQuery(startDate, endDate, "");
+		if (query.isEmpty()) {
+			return new ArrayList<>();
+		}
+		try (RoutingScope ignored = RoutingScope.days(startDate, endDate)) {
+			return jdbcTemplate.query(query.sql + " ORDER BY price, id", APPOINTMENT_MAPPER,
+					query.parameters.toArray());
+		}
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public void forEachAppointment(LocalDate startDate, LocalDate endDate, Consumer<Appointment> consumer) {
+		RangeQuery query = new RangeQuery(startDate, endDate, "");
+		if (!query.isEmpty()) {
+			try (RoutingScope ignored = RoutingScope.days(startDate, endDate)) {
+				jdbcTemplate.query(query.sql + " ORDER BY price, id",
+						(RowCallbackHandler) rs -> consumer.accept(mapAppointment(rs, 0)), query.parameters.toArray());
+			}
+		}
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Appointment> getAppointmentsPage(LocalDate startDate, LocalDate endDate, PageCursor after,
+												 int limit) {
+		RangeQuery query = after == null
+				? new RangeQuery(startDate, endDate, "")
+				: new RangeQuery(startDate, endDate, " AND (price > ? OR price = ? AND id > ?)",
+				after.getPrice(), after.getPrice(), after.getId());
+		if (query.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		query.parameters.add(limit);
+		try (RoutingScope ignored = RoutingScope.days(startDate, endDate)) {
+			return jdbcTemplate.query(query.sql + " ORDER BY price, id LIMIT ?", APPOINTMENT_MAPPER,
+					query.parameters.toArray());
+		}
+	}
+
+	@Override
+	@Transactional
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status) throws NoSuchElementException {
+		YearMonth month = monthOf(id);
+		try (RoutingScope scope = RoutingScope.id(id)) {
+			if (!partitions.contains(month) || jdbcTemplate.update("UPDATE " + tableOf(month) +
+					" SET status = ?, version = version + 1 WHERE id = ?", status.name(), id) == 0) {
+				throw new NoSuchElementException("No appointment with ID " + id);
+			}
+			LocalDateTime time = findTime(month, id).get(0).toLocalDateTime();
+			scope.add(id, time);
+			return time;
+		}
+	}
+
+	@Override
+	@Transactional
+	public LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status, long version)
+			throws NoSuchElementException {
+		YearMonth month = monthOf(id);
+		if (!partitions.contains(month)) {
+			throw new NoSuchElementException("No appointment with ID " + id);
+		}
+		try (RoutingScope scope = RoutingScope.id(id)) {
+			int updated = jdbcTemplate.update("UPDATE " + tableOf(month) +
+					" SET status = ?, version = version + 1 WHERE id = ? AND version = ?", status.name(), id, version);
+			List<Timestamp> times = findTime(month, id);
+			if (times.isEmpty()) {
+				throw new NoSuchElementException("No appointment with ID " + id);
+			}
+			LocalDateTime time = times.get(0).toLocalDateTime();
+			scope.add(id, time);
+			return updated > 0 ? time : null;
+		}
+	}
+
+	/**
+	 * Reads the time of the appointment in the transaction of its update, which has locked the row.
+	 */
+	private List<Timestamp> findTime(YearMonth month, long id) {
+		return jdbcTemplate.queryForList("SELECT time FROM " + tableOf(month) + " WHERE id = ?", Timestamp.class, id);
+	}
+
+	@Override
+	@Transactional
+	public int updateAppointmentStatuses(Collection<Long> ids, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		Map<YearMonth, List<Long>> idsByMonth = ids.stream()
+				.filter(id -> partitions.contains(monthOf(id)))
+				.collect(Collectors.groupingBy(PartitionedAppointmentStorage::monthOf));
+		int count = 0;
+
+		try (RoutingScope ignored = RoutingScope.ids(ids)) {
+			for (Map.Entry<YearMonth, List<Long>> monthIds : idsByMonth.entrySet()) {
+				List<Long> idList = monthIds.getValue();
+				// keeps the IN list of a statement within a reasonable size
+				for (int from = 0; from < idList.size(); from += AppointmentStorageImpl.MAX_IDS_PER_STATEMENT) {
+					List<Long> chunk = idList.subList(from,
+							Math.min(from + AppointmentStorageImpl.MAX_IDS_PER_STATEMENT, idList.size()));
+					List<Object> parameters = new ArrayList<>(chunk.size() + 2);
+					parameters.add(toStatus.name());
+					parameters.add(fromStatus.name());
+					parameters.addAll(chunk);
+
+					count += jdbcTemplate.update("UPDATE " + tableOf(monthIds.getKey()) +
+							" SET status = ?, version = version + 1 WHERE status = ? AND id IN (" +
+							String.join(", ", Collections.nCopies(chunk.size(), "?")) + ")", parameters.toArray());
+				}
+			}
+		}
+		return count;
+	}
+
+	@Override
+	@Transactional
+	public int updateAppointmentStatuses(LocalDate startDate, LocalDate endDate, Appointment.AppStatus fromStatus,
+										 Appointment.AppStatus toStatus) {
+		int count = 0;
+		try (RoutingScope ignored = RoutingScope.days(startDate, endDate)) {
+			for (YearMonth month : overlapping(startDate, endDate)) {
+				count += jdbcTemplate.update("UPDATE " + tableOf(month) +
+								" SET status = ?, version = version + 1 WHERE time >= ? AND time < ? AND status = ?",
+						toStatus.name(), startOf(startDate), startOf(endDate.plusDays(1)), fromStatus.name());
+			}
+		}
+		return count;
+	}
+
+	@Override
+	@Transactional
+	public Appointment deleteAppointment(long id) throws NoSuchElementException {
+		YearMonth month = monthOf(id);
+		if (!partitions.contains(month)) {
+			throw new NoSuchElementException("No appointment with ID " + id);
+		}
+
+		String table = tableOf(month);
+		try (RoutingScope scope = RoutingScope.id(id)) {
+			List<Appointment> apps = jdbcTemplate.query("SELECT " + COLUMNS + " FROM " + table +
+					" WHERE id = ? FOR UPDATE", APPOINTMENT_MAPPER, id);
+			if (apps.isEmpty()) {
+				throw new NoSuchElementException("No appointment with ID " + id);
+			}
+			jdbcTemplate.update("DELETE FROM " + table + " WHERE id = ?", id);
+			scope.add(id, apps.get(0).getTime());
+			return apps.get(0);
+		}
+	}
+
+	@Override
+	public int deleteAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status) {
+		int count = 0;
+
+		try (RoutingScope ignored = RoutingScope.days(startDate, endDate)) {
+			for (YearMonth month : overlapping(startDate, endDate)) {
+				int deleted;
+				// every chunk is deleted in its own short transaction, so the rows are not locked for long
+				do {
+					deleted = transactionTemplate.execute(transaction -> jdbcTemplate.update("DELETE FROM " +
+									tableOf(month) + " WHERE time >= ? AND time < ? AND status = ? LIMIT ?",
+							startOf(startDate), startOf(endDate.plusDays(1)), status.name(),
+							AppointmentStorageImpl.DELETE_CHUNK_SIZE));
+					count += deleted;
+				} while (deleted == AppointmentStorageImpl.DELETE_CHUNK_SIZE);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the existing partitions of the months the dates fall into, the end date inclusive.
+	 */
+	private List<YearMonth> overlapping(LocalDate startDate, LocalDate endDate) {
+		if (endDate.isBefore(startDate)) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<>(partitions.subSet(YearMonth.from(startDate), true, YearMonth.from(endDate), true));
+	}
+
+	private static Timestamp startOf(LocalDate date) {
+		return Timestamp.valueOf(date.atStartOfDay());
+	}
+
+	/**
+	 * The union of the date range queries of the partitions overlapping the range. Every partition is read by its
+	 * own index, and the database sorts the union.
+	 */
+	private class RangeQuery {
+
+		private final String sql;
+		private final List<Object> parameters = new ArrayList<>();
+
+		/**
+		 * @param condition           the condition added to the date range of every partition,
+		 * @param conditionParameters the parameters of the condition.
+		 */
+		RangeQuery(LocalDate startDate, LocalDate endDate, String condition, Object... conditionParameters) {
+			List<String> selects = new ArrayList<>();
+			for (YearMonth month : overlapping(startDate, endDate)) {
+				selects.add("SELECT " + COLUMNS + " FROM " + tableOf(month) + " WHERE time >= ? AND time < ?" +
+						condition);
+				parameters.add(startOf(startDate));
+				parameters.add(startOf(endDate.plusDays(1)));
+				Collections.addAll(parameters, conditionParameters);
+			}
+			sql = String.join(" UNION ALL ", selects);
+		}
+
+		boolean isEmpty() {
+			return sql.isEmpty();
+		}
+	}
+}
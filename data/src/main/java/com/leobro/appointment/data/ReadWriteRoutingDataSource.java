@@ -0,0 +1,112 @@
+package com.leobro.appointment.data;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Sends the connections of the read-only transactions to a replica of the database and all the others to
+ * the primary database. The transaction must be known when the connection is fetched, so the data source is used
+ * behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which fetches it at the first
+ * statement.
+ * <p>The replica lags behind the primary database. For the maximal lag after a write is committed, the reads of
+ * the appointments it may have changed are sent to the primary database as well, so that this process reads its own
+ * writes. Otherwise the caches in front of the storage could keep the stale appointments read from the replica right
+ * after they were changed. The storage declares the appointments of an operation by a {@link RoutingScope}: a write
+ * is recorded only with a scope, so the transactions, which write nothing, are not recorded, and a read without
+ * a scope may depend on every write.
+ */
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+	enum Route {
+		PRIMARY, REPLICA
+	}
+
+	private final long maxLagNanos;
+
+	/**
+	 * The writes committed within the maximal lag, in the order of their commits.
+	 */
+	private final Deque<Write> writes = new ConcurrentLinkedDeque<>();
+
+	/**
+	 * @param primary the database of the writes,
+	 * @param replica the database of the reads,
+	 * @param maxLag  the maximal time a change takes to reach the replica.
+	 */
+	ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Duration maxLag) {
+		this.maxLagNanos = maxLag.toNanos();
+
+		Map<Object, Object> targets = new HashMap<>();
+		targets.put(Route.PRIMARY, primary);
+		targets.put(Route.REPLICA, replica);
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+		afterPropertiesSet();
+	}
+
+	@Override
+	protected Route determineCurrentLookupKey() {
+		RoutingScope scope = RoutingScope.current();
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			return isReplicaCurrent(scope) ? Route.REPLICA : Route.PRIMARY;
+		}
+
+		if (scope != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					long now = System.nanoTime();
+					writes.addLast(new Write(scope.snapshot(), now));
+					removeReplicated(now);
+				}
+			});
+		}
+		return Route.PRIMARY;
+	}
+
+	/**
+	 * Tells, whether all the writes committed by this process, which may have changed the appointments of
+	 * the scope, have reached the replica.
+	 *
+	 * @param scope the appointments of the read, {@code null}, if they are unknown.
+	 */
+	boolean isReplicaCurrent(RoutingScope scope) {
+		long now = System.nanoTime();
+		removeReplicated(now);
+		for (Write write : writes) {
+			if (now - write.commitNanos < maxLagNanos && (scope == null || write.scope.overlaps(scope))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Forgets the writes committed longer than the maximal lag ago, which are at the head.
+	 */
+	private void removeReplicated(long now) {
+		Write oldest;
+		while ((oldest = writes.peekFirst()) != null && now - oldest.commitNanos >= maxLagNanos) {
+			writes.remove(oldest);
+		}
+	}
+
+	private static class Write {
+
+		final RoutingScope scope;
+		final long commitNanos;
+
+		Write(RoutingScope scope, long commitNanos) {
+			this.scope = scope;
+			this.commitNanos = commitNanos;
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.leobro.appointment.data;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the database into the primary database configured by the usual {@code spring.datasource} properties and
+ * a read replica configured by the {@code appointment.replica.datasource} properties, each with its own connection
+ * pool. The data source used by JPA routes the read-only transactions to the replica by
+ * {@link ReadWriteRoutingDataSource}.
+ * <p>The pools are not beans: Spring Boot initializes the database through the only data source bean, and it must
+ * be the routing one.
+ */
+@Configuration
+@Profile(StorageProfiles.REPLICA)
+class ReplicaConfiguration {
+
+	private final List<HikariDataSource> pools = new ArrayList<>();
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	HikariConfig primaryPoolConfig(DataSourceProperties properties) {
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("primary");
+		config.setJdbcUrl(properties.determineUrl());
+		config.setUsername(properties.determineUsername());
+		config.setPassword(properties.determinePassword());
+		return config;
+	}
+
+	@Bean
+	@ConfigurationProperties("appointment.replica.datasource")
+	HikariConfig replicaPoolConfig() {
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("replica");
+		config.setReadOnly(true);
+		return config;
+	}
+
+	@Bean
+	@Primary
+	DataSource dataSource(HikariConfig primaryPoolConfig, HikariConfig replicaPoolConfig,
+						  @Value("${appointment.replica.max-lag:PT1S}") Duration maxLag,
+						  ObjectProvider<MeterRegistry> meterRegistry) {
+		DataSource primary = createPool(primaryPoolConfig, meterRegistry.getIfAvailable());
+		DataSource replica = createPool(replicaPoolConfig, meterRegistry.getIfAvailable());
+		return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica, maxLag));
+	}
+
+	private DataSource createPool(HikariConfig config, MeterRegistry meterRegistry) {
+		if (meterRegistry != null) {
+			config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+		}
+		HikariDataSource pool = new HikariDataSource(config);
+		pools.add(pool);
+		return pool;
+	}
+
+	@PreDestroy
+	void closePools() {
+		pools.forEach(HikariDataSource::close);
+	}
+}
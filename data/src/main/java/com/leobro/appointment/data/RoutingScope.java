@@ -0,0 +1,162 @@
+package com.leobro.appointment.data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The appointments a storage operation reads or writes, declared by the storage for the current thread before its
+ * statements run. {@link ReadWriteRoutingDataSource} records a committed write with its scope, and sends a read to
+ * the replica only if no write committed within the maximal lag may have changed an appointment of the read's scope.
+ * <p>An appointment is told by its day and its ID. Either of them may be unknown to the operation, for example the
+ * IDs of a date range or the days of a list of IDs: then the scope may hold any appointment in that respect.
+ * <p>Usage:
+ * <pre>
+ * try (RoutingScope ignored = RoutingScope.days(startDate, endDate)) {
+ *     // the statements of the operation
+ * }
+ * </pre>
+ */
+final class RoutingScope implements AutoCloseable {
+
+	private static final ThreadLocal<RoutingScope> CURRENT = new ThreadLocal<>();
+
+	private final RoutingScope previous;
+
+	/**
+	 * The date ranges of the scope, each is the first and the last day, or {@code null}, if the days are unknown.
+	 */
+	private List<LocalDate[]> days;
+
+	/**
+	 * The IDs of the scope, or {@code null}, if the IDs are unknown.
+	 */
+	private Set<Long> ids;
+
+	private RoutingScope(List<LocalDate[]> days, Set<Long> ids) {
+		this.days = days;
+		this.ids = ids;
+		this.previous = CURRENT.get();
+		CURRENT.set(this);
+	}
+
+	private RoutingScope(RoutingScope scope) {
+		this.days = scope.days == null ? null : new ArrayList<>(scope.days);
+		this.ids = scope.ids == null ? null : new HashSet<>(scope.ids);
+		this.previous = null;
+	}
+
+	/**
+	 * Declares the appointments of the date range, whose IDs are unknown.
+	 */
+	static RoutingScope days(LocalDate startDate, LocalDate endDate) {
+		List<LocalDate[]> days = new ArrayList<>();
+		days.add(new LocalDate[]{startDate, endDate});
+		return new RoutingScope(days, null);
+	}
+
+	/**
+	 * Declares the appointments with the IDs, whose days are unknown.
+	 */
+	static RoutingScope ids(Collection<Long> ids) {
+		return new RoutingScope(null, new HashSet<>(ids));
+	}
+
+	/**
+	 * Declares the appointment with the ID, whose day is unknown until it is {@link #add added}.
+	 */
+	static RoutingScope id(long id) {
+		return ids(Collections.singleton(id));
+	}
+
+	/**
+	 * Declares no appointments yet, they are {@link #add added} one by one, as they become known.
+	 */
+	static RoutingScope appointments() {
+		return new RoutingScope(new ArrayList<>(), new HashSet<>());
+	}
+
+	/**
+	 * The scope declared for the current thread, or {@code null}, if the storage has declared none.
+	 */
+	static RoutingScope current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Adds the appointment to the scope. A scope with unknown days learns the day of the appointment, so all the
+	 * appointments of such a scope must be added.
+	 *
+	 * @param id   the ID of the appointment,
+	 * @param time the time of the appointment.
+	 */
+	void add(long id, LocalDateTime time) {
+		LocalDate day = time.toLocalDate();
+		if (days == null) {
+			days = new ArrayList<>();
+		}
+		days.add(new LocalDate[]{day, day});
+		if (ids != null) {
+			ids.add(id);
+		}
+	}
+
+	/**
+	 * Returns a copy of the scope, which is not changed by the later additions and is not bound to a thread.
+	 */
+	RoutingScope snapshot() {
+		return new RoutingScope(this);
+	}
+
+	/**
+	 * Tells, whether the scopes may hold the same appointment.
+	 */
+	boolean overlaps(RoutingScope other) {
+		return overlapsDays(other) && overlapsIds(other);
+	}
+
+	private boolean overlapsDays(RoutingScope other) {
+		if (days == null || other.days == null) {
+			return true;
+		}
+		for (LocalDate[] range : days) {
+			for (LocalDate[] otherRange : other.days) {
+				if (!range[0].isAfter(otherRange[1]) && !otherRange[0].isAfter(range[1])) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private boolean overlapsIds(RoutingScope other) {
+		if (ids == null || other.ids == null) {
+			return true;
+		}
+		Set<Long> smaller = ids.size() <= other.ids.size() ? ids : other.ids;
+		Set<Long> larger = smaller == ids ? other.ids : ids;
+		for (Long id : smaller) {
+			if (larger.contains(id)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Ends the scope, the scope declared before it is current again.
+	 */
+	@Override
+	public void close() {
+		if (previous == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(previous);
+		}
+	}
+}
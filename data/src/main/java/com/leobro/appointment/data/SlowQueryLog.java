@@ -0,0 +1,79 @@
+package com.leobro.appointment.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs the SQL statements, which take longer than the threshold, with their bind parameters, the number of rows
+ * and, if enabled, the plan the database chose for them. The plan is read by {@code EXPLAIN} with the same
+ * parameters on the connection of the statement, so it costs another round trip, but only for the slow statements.
+ */
+class SlowQueryLog {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+
+	private final long thresholdNanos;
+	private final boolean explain;
+
+	/**
+	 * @param threshold the minimal time of a logged statement; zero or negative disables the log,
+	 * @param explain   whether to log the plans of the queries, updates and deletes.
+	 */
+	SlowQueryLog(Duration threshold, boolean explain) {
+		this.thresholdNanos = threshold.toNanos();
+		this.explain = explain;
+	}
+
+	boolean isSlow(long durationNanos) {
+		return thresholdNanos > 0 && durationNanos >= thresholdNanos;
+	}
+
+	/**
+	 * Logs the statement.
+	 *
+	 * @param connection    the connection, which executed the statement,
+	 * @param sql           the text of the statement,
+	 * @param parameters    the bind parameters by their indexes,
+	 * @param rows          the number of the rows read or changed or -1, if it is unknown,
+	 * @param durationNanos the time of the execution and of reading the result.
+	 */
+	void log(Connection connection, String sql, Map<Integer, Object> parameters, long rows, long durationNanos) {
+		String plan = explain ? explain(connection, sql, parameters) : null;
+
+		LOGGER.warn("Slow SQL statement took {} ms, {} rows: {} parameters {}{}",
+				String.format(Locale.ROOT, "%.3f", durationNanos / (double) TimeUnit.MILLISECONDS.toNanos(1)),
+				rows, sql, parameters.values(), plan == null ? "" : System.lineSeparator() + plan);
+	}
+
+	private static String explain(Connection connection, String sql, Map<Integer, Object> parameters) {
+		String command = sql.trim().toLowerCase(Locale.ROOT);
+		if (!command.startsWith("select") && !command.startsWith("update") && !command.startsWith("delete")) {
+			return null;
+		}
+
+		try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+			for (Map.Entry<Integer, Object> parameter : parameters.entrySet()) {
+				statement.setObject(parameter.getKey(), parameter.getValue());
+			}
+
+			StringBuilder plan = new StringBuilder();
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next()) {
+					plan.append(result.getString(1));
+				}
+			}
+			return plan.toString();
+		} catch (SQLException e) {
+			return "EXPLAIN failed: " + e.getMessage();
+		}
+	}
+}
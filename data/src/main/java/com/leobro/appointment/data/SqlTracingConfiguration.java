@@ -0,0 +1,36 @@
+package com.leobro.appointment.data;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the data source of the database into {@link SqlTracingDataSource}, so that every SQL statement is traced
+ * and the slow ones are logged.
+ */
+@Configuration
+@Profile(StorageProfiles.JPA)
+class SqlTracingConfiguration {
+
+	@Bean
+	static BeanPostProcessor sqlTracingPostProcessor(
+			@Value("${appointment.slow-query.threshold:PT0.1S}") Duration threshold,
+			@Value("${appointment.slow-query.explain:true}") boolean explain) {
+		SlowQueryLog slowQueryLog = new SlowQueryLog(threshold, explain);
+
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+				return bean instanceof DataSource && !(bean instanceof SqlTracingDataSource)
+						? new SqlTracingDataSource((DataSource) bean, slowQueryLog)
+						: bean;
+			}
+		};
+	}
+}
@@ -0,0 +1,178 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Trace;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Measures every SQL statement executed through the connections of another data source. The time from
+ * the execution to the end of reading the result is recorded as a {@code sql} span in the {@link Trace} of
+ * the request and passed to the {@link SlowQueryLog}. So the time of a query includes the time the caller
+ * takes to process the rows, while it reads them.
+ * <p>The connections, the statements and the result sets are wrapped by dynamic proxies, which pass every call
+ * through and watch only the calls executing statements, binding parameters and reading rows.
+ */
+class SqlTracingDataSource extends DelegatingDataSource {
+
+	/**
+	 * The maximal length of the statement text in the span name.
+	 */
+	private static final int SPAN_SQL_LENGTH = 80;
+
+	private final SlowQueryLog slowQueryLog;
+
+	SqlTracingDataSource(DataSource target, SlowQueryLog slowQueryLog) {
+		super(target);
+		this.slowQueryLog = slowQueryLog;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return trace(super.getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return trace(super.getConnection(username, password));
+	}
+
+	private Connection trace(Connection connection) {
+		return proxy(Connection.class, connection, (proxy, method, args) -> {
+			Object result = invoke(connection, method, args);
+			if (result instanceof Statement) {
+				String sql = result instanceof PreparedStatement ? (String) args[0] : null;
+				return proxy(method.getReturnType(), result, new StatementHandler((Statement) result, connection, sql));
+			}
+			return result;
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(SqlTracingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+	}
+
+	private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Watches a statement. A query ends, when its result set or the statement is closed, the other statements end
+	 * with the execution.
+	 */
+	private class StatementHandler implements InvocationHandler {
+
+		private final Statement statement;
+		private final Connection connection;
+		private final String preparedSql;
+		private final Map<Integer, Object> parameters = new TreeMap<>();
+
+		private String pendingSql;
+		private Map<Integer, Object> pendingParameters;
+		private long pendingStart;
+		private long pendingRows;
+
+		StatementHandler(Statement statement, Connection connection, String preparedSql) {
+			this.statement = statement;
+			this.connection = connection;
+			this.preparedSql = preparedSql;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+
+			if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+				parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+			} else if (name.equals("clearParameters")) {
+				parameters.clear();
+			} else if (name.startsWith("execute")) {
+				return execute(method, args);
+			} else if (name.equals("close")) {
+				endQuery();
+			}
+			return SqlTracingDataSource.invoke(statement, method, args);
+		}
+
+		private Object execute(Method method, Object[] args) throws Throwable {
+			endQuery();
+			String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+					: preparedSql != null ? preparedSql : "batch";
+			long start = System.nanoTime();
+			Object result = SqlTracingDataSource.invoke(statement, method, args);
+
+			if (result instanceof ResultSet) {
+				pendingSql = sql;
+				pendingParameters = new TreeMap<>(parameters);
+				pendingStart = start;
+				pendingRows = 0;
+				ResultSet resultSet = (ResultSet) result;
+				return proxy(ResultSet.class, resultSet, (resultSetProxy, resultSetMethod, resultSetArgs) -> {
+					Object value = SqlTracingDataSource.invoke(resultSet, resultSetMethod, resultSetArgs);
+					if (resultSetMethod.getName().equals("next") && Boolean.TRUE.equals(value)) {
+						pendingRows++;
+					} else if (resultSetMethod.getName().equals("close")) {
+						endQuery();
+					}
+					return value;
+				});
+			}
+			end(sql, parameters, countRows(result), start);
+			return result;
+		}
+
+		private long countRows(Object result) {
+			if (result instanceof Integer || result instanceof Long) {
+				return ((Number) result).longValue();
+			}
+			if (result instanceof int[]) {
+				long rows = 0;
+				for (int count : (int[]) result) {
+					rows += Math.max(count, 0);
+				}
+				return rows;
+			}
+			return -1;
+		}
+
+		private void endQuery() {
+			if (pendingSql != null) {
+				String sql = pendingSql;
+				pendingSql = null;
+				end(sql, pendingParameters, pendingRows, pendingStart);
+			}
+		}
+
+		private void end(String sql, Map<Integer, Object> parameters, long rows, long start) {
+			long end = System.nanoTime();
+			Trace trace = Trace.current();
+			if (trace != null) {
+				trace.record("sql " + abbreviate(sql), start, end);
+			}
+			if (slowQueryLog.isSlow(end - start)) {
+				slowQueryLog.log(connection, sql, parameters, rows, end - start);
+			}
+		}
+	}
+
+	private static String abbreviate(String sql) {
+		String text = sql.trim().replaceAll("\\s+", " ");
+		return text.length() <= SPAN_SQL_LENGTH ? text : text.substring(0, SPAN_SQL_LENGTH) + "...";
+	}
+}
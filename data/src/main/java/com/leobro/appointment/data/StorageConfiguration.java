@@ -0,0 +1,48 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.AppointmentStorage;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+/**
+ * Assembles the {@link AppointmentStorage} used by the service from the concrete storage and the decorators.
+ * The calls to the concrete storage are measured, the caches in front of it are not.
+ * The storages keeping the appointments in memory are used as is, the caches would only duplicate them.
+ */
+@Configuration
+@Profile(StorageProfiles.JPA)
+class StorageConfiguration {
+
+	/**
+	 * Qualifies the concrete storage, which the decorators are applied to.
+	 */
+	static final String ENGINE = "appointmentStorageEngine";
+
+	@Bean
+	MeteredAppointmentStorage meteredAppointmentStorage(@Qualifier(ENGINE) AppointmentStorage storage) {
+		return new MeteredAppointmentStorage(storage);
+	}
+
+	@Bean
+	DayBucketAppointmentStorage dayBucketAppointmentStorage(
+			MeteredAppointmentStorage storage,
+			@Value("${appointment.day-cache.maximum-days:400}") long maximumDays,
+			@Value("${appointment.day-cache.expire-after-write:PT5M}") Duration expireAfterWrite) {
+		return new DayBucketAppointmentStorage(storage, maximumDays, expireAfterWrite);
+	}
+
+	@Bean
+	@Primary
+	CachingAppointmentStorage cachingAppointmentStorage(
+			DayBucketAppointmentStorage storage,
+			@Value("${appointment.cache.maximum-size:10000}") long maximumSize,
+			@Value("${appointment.cache.expire-after-write:PT5M}") Duration expireAfterWrite) {
+		return new CachingAppointmentStorage(storage, maximumSize, expireAfterWrite);
+	}
+}
@@ -0,0 +1,52 @@
+package com.leobro.appointment.data;
+
+/**
+ * Spring profiles selecting the storage engine. Without any of them, the appointments are stored in the database
+ * through JPA.
+ */
+final class StorageProfiles {
+
+	/**
+	 * Selects {@link InMemoryAppointmentStorage}.
+	 */
+	static final String MEMORY = "memory";
+
+	/**
+	 * Selects {@link LogStructuredAppointmentStorage}.
+	 */
+	static final String LOG = "log";
+
+	/**
+	 * Selects {@link ColumnarAppointmentStorage}.
+	 */
+	static final String COLUMNAR = "columnar";
+
+	/**
+	 * Selects {@link PartitionedAppointmentStorage}. Unlike the other engines, it keeps the appointments in
+	 * the database, so it matches {@link #JPA} as well.
+	 */
+	static final String PARTITIONED = "partitioned";
+
+	/**
+	 * Matches when none of the other engines is selected, so the database is used.
+	 */
+	static final String JPA = "!" + MEMORY + " & !" + LOG + " & !" + COLUMNAR;
+
+	/**
+	 * Selects {@link AppointmentStorageImpl}, which keeps all appointments in one table.
+	 */
+	static final String SINGLE_TABLE = JPA + " & !" + PARTITIONED;
+
+	/**
+	 * Matches when one of the engines keeping the appointments in memory is selected.
+	 */
+	static final String IN_MEMORY = MEMORY + " | " + LOG + " | " + COLUMNAR;
+
+	/**
+	 * Adds a read replica of the database to the JPA storage, see {@link ReplicaConfiguration}.
+	 */
+	static final String REPLICA = "replica & " + JPA;
+
+	private StorageProfiles() {
+	}
+}
@@ -0,0 +1,153 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.test.context.transaction.BeforeTransaction;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs EXPLAIN for every query of {@link AppointmentRepository} and checks that the database uses the index designed
+ * for it. A query that falls back to the full table scan would take the service down on a big table.
+ * <p>The table is filled and analyzed in its own transactions before the test transaction and emptied after it,
+ * because ANALYZE commits the transaction it runs in. The test transaction itself only reads.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class AppointmentRepositoryQueryPlanTest {
+
+	private static final LocalDate START_DATE = LocalDate.of(2019, Month.AUGUST, 20);
+	private static final LocalDate END_DATE = START_DATE.plusDays(7);
+	private static final int ROW_COUNT = 1000;
+	private static final int LIMIT = 10;
+	private static final String WAIT = Appointment.AppStatus.WAIT.name();
+	private static final String PASS = Appointment.AppStatus.PASS.name();
+	/**
+	 * H2 names the primary key index itself.
+	 */
+	private static final String PRIMARY_KEY_INDEX = "primary_key";
+
+	/**
+	 * Query text mapped to the index, which the query must use, and the query parameters.
+	 */
+	private static final Map<String, ExpectedPlan> EXPECTED_PLANS = new LinkedHashMap<>();
+
+	static {
+		EXPECTED_PLANS.put(AppointmentRepository.FIND_BY_TIME_BETWEEN,
+				new ExpectedPlan(AppointmentEntity.TIME_PRICE_INDEX, START_DATE, END_DATE));
+		EXPECTED_PLANS.put(AppointmentRepository.FIND_FIRST_PAGE,
+				new ExpectedPlan(AppointmentEntity.TIME_PRICE_INDEX, START_DATE, END_DATE, LIMIT));
+		// only the use of the index is checked: the rows of the date range are still sorted by price, which
+		// the plan doesn't show
+		EXPECTED_PLANS.put(AppointmentRepository.FIND_PAGE_AFTER,
+				new ExpectedPlan(AppointmentEntity.TIME_PRICE_INDEX, START_DATE, END_DATE, 10.0, 1L, LIMIT));
+		EXPECTED_PLANS.put(AppointmentRepository.FIND_TIME_BY_ID,
+				new ExpectedPlan(PRIMARY_KEY_INDEX, 1L));
+		EXPECTED_PLANS.put(AppointmentRepository.UPDATE_STATUS,
+				new ExpectedPlan(PRIMARY_KEY_INDEX, 1L, WAIT));
+		EXPECTED_PLANS.put(AppointmentRepository.UPDATE_STATUS_IF_VERSION,
+				new ExpectedPlan(PRIMARY_KEY_INDEX, 1L, WAIT, 0L));
+		EXPECTED_PLANS.put(AppointmentRepository.UPDATE_STATUS_BY_IDS,
+				new ExpectedPlan(PRIMARY_KEY_INDEX, Arrays.asList(1L, 2L, 3L), WAIT, PASS));
+		EXPECTED_PLANS.put(AppointmentRepository.UPDATE_STATUS_BY_TIME_BETWEEN,
+				new ExpectedPlan(AppointmentEntity.STATUS_TIME_INDEX, START_DATE, END_DATE, WAIT, PASS));
+		EXPECTED_PLANS.put(AppointmentRepository.DELETE_BY_TIME_BETWEEN_AND_STATUS,
+				new ExpectedPlan(AppointmentEntity.STATUS_TIME_INDEX, START_DATE, END_DATE, PASS, LIMIT));
+	}
+
+	@Autowired
+	private AppointmentRepository repository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@BeforeTransaction
+	public void setUp() {
+		List<AppointmentEntity> entities = new ArrayList<>();
+		LocalDateTime time = START_DATE.minusMonths(6).atTime(9, 0);
+
+		for (int i = 0; i < ROW_COUNT; i++) {
+			AppointmentEntity entity = new AppointmentEntity();
+			entity.setClientName("Client " + i);
+			entity.setTime(time.plusHours(i * 7));
+			entity.setPrice(i % 20 * 10);
+			entity.setStatus(Appointment.AppStatus.values()[i % Appointment.AppStatus.values().length]);
+			entities.add(entity);
+		}
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.execute(status -> repository.saveAll(entities));
+		// H2 collects the selectivity of the columns automatically only after many changes. Without it,
+		// the plans would differ from the ones on a real table.
+		transactionTemplate.execute(status -> entityManager.createNativeQuery("ANALYZE").executeUpdate());
+	}
+
+	@AfterTransaction
+	public void tearDown() {
+		new TransactionTemplate(transactionManager).execute(status ->
+				entityManager.createNativeQuery("DELETE FROM appointment").executeUpdate());
+	}
+
+	@Test
+	public void when_explainRepositoryQueries_then_everyQueryUsesItsIndex() {
+		for (Map.Entry<String, ExpectedPlan> entry : EXPECTED_PLANS.entrySet()) {
+			String plan = explain(entry.getKey(), entry.getValue().parameters);
+
+			assertThat("Plan of " + entry.getKey(), plan.toLowerCase(), containsString(entry.getValue().index));
+		}
+	}
+
+	@Test
+	public void when_repositoryDeclaresQuery_then_itsPlanIsChecked() throws IllegalAccessException {
+		for (Field field : AppointmentRepository.class.getDeclaredFields()) {
+			if (field.getType() == String.class && Modifier.isStatic(field.getModifiers())) {
+				String query = (String) field.get(null);
+
+				assertThat("Plan of " + field.getName() + " is checked", EXPECTED_PLANS.containsKey(query), is(true));
+			}
+		}
+	}
+
+	private String explain(String sql, List<Object> parameters) {
+		Query query = entityManager.createNativeQuery("EXPLAIN " + sql);
+		for (int i = 0; i < parameters.size(); i++) {
+			query.setParameter(i + 1, parameters.get(i));
+		}
+		return String.valueOf(query.getSingleResult());
+	}
+
+	private static class ExpectedPlan {
+
+		private final String index;
+		private final List<Object> parameters;
+
+		ExpectedPlan(String index, Object... parameters) {
+			this.index = index;
+			this.parameters = Arrays.asList(parameters);
+		}
+	}
+}
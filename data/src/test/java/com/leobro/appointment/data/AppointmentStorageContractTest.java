@@ -0,0 +1,264 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import com.leobro.appointment.service.PageCursor;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * The behavior every {@link AppointmentStorage} implementation must have. A subclass runs it against a concrete
+ * storage.
+ */
+public abstract class AppointmentStorageContractTest {
+
+	private static final String CLIENT_NAME = "Test Client";
+	private static final LocalDate DATE = LocalDate.of(2030, Month.AUGUST, 20);
+	private static final Appointment.AppStatus APP_STATUS = Appointment.AppStatus.WAIT;
+	private static final long MISSING_ID = 999_999L;
+
+	protected abstract AppointmentStorage getStorage();
+
+	private static Appointment createAppointment(LocalDateTime time, double price, Appointment.AppStatus status) {
+		Appointment app = new Appointment();
+
+		app.setClientName(CLIENT_NAME);
+		app.setTime(time);
+		app.setPrice(price);
+		app.setStatus(status);
+
+		return app;
+	}
+
+	private long create(LocalDate date, double price, Appointment.AppStatus status) {
+		return getStorage().createAppointment(createAppointment(date.atTime(12, 0), price, status));
+	}
+
+	private static PageCursor cursorAfter(List<Appointment> page) {
+		Appointment last = page.get(page.size() - 1);
+		return new PageCursor(last.getPrice(), last.getId());
+	}
+
+	private static List<Long> ids(List<Appointment> apps) {
+		return apps.stream().map(Appointment::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	public void when_createAppointment_then_getAppointmentReturnsIt() {
+		LocalDateTime time = DATE.atTime(9, 30);
+		long id = getStorage().createAppointment(createAppointment(time, 30.5, APP_STATUS));
+
+		Appointment app = getStorage().getAppointment(id);
+
+		assertThat(app.getId(), is(id));
+		assertThat(app.getClientName(), is(CLIENT_NAME));
+		assertThat(app.getTime(), is(time));
+		assertThat(app.getPrice(), is(30.5));
+		assertThat(app.getStatus(), is(APP_STATUS));
+	}
+
+	@Test
+	public void when_createAppointments_then_returnsIdsInOrder() {
+		List<Appointment> apps = Arrays.asList(
+				createAppointment(DATE.atTime(9, 0), 10, APP_STATUS),
+				createAppointment(DATE.atTime(10, 0), 20, APP_STATUS),
+				createAppointment(DATE.atTime(11, 0), 30, APP_STATUS));
+
+		List<Long> ids = getStorage().createAppointments(apps);
+
+		assertThat(ids.size(), is(3));
+		for (int i = 0; i < ids.size(); i++) {
+			assertThat(getStorage().getAppointment(ids.get(i)).getTime(), is(apps.get(i).getTime()));
+		}
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void when_getAppointmentAndNotFound_then_throws() {
+		getStorage().getAppointment(MISSING_ID);
+	}
+
+	@Test
+	public void when_getAllAppointments_then_returnsDateRangeSortedByPrice() {
+		long id1 = create(DATE, 30, APP_STATUS);
+		long id2 = create(DATE.plusDays(1), 10, APP_STATUS);
+		long id3 = create(DATE.plusDays(1), 20, APP_STATUS);
+		create(DATE.minusDays(1), 5, APP_STATUS);
+		create(DATE.plusDays(2), 5, APP_STATUS);
+
+		List<Appointment> apps = getStorage().getAllAppointments(DATE, DATE.plusDays(1));
+
+		assertThat(ids(apps), is(Arrays.asList(id2, id3, id1)));
+	}
+
+	@Test
+	public void when_forEachAppointment_then_passesDateRangeSortedByPrice() {
+		long id1 = create(DATE, 30, APP_STATUS);
+		long id2 = create(DATE, 10, APP_STATUS);
+		create(DATE.plusDays(1), 5, APP_STATUS);
+		List<Appointment> apps = new ArrayList<>();
+
+		getStorage().forEachAppointment(DATE, DATE, apps::add);
+
+		assertThat(ids(apps), is(Arrays.asList(id2, id1)));
+	}
+
+	@Test
+	public void when_appointmentAtMidnight_then_belongsOnlyToItsOwnDay() {
+		LocalDate nextDay = DATE.plusDays(1);
+		long id = getStorage().createAppointment(createAppointment(nextDay.atStartOfDay(), 10, APP_STATUS));
+		List<Appointment> streamed = new ArrayList<>();
+		getStorage().forEachAppointment(DATE, DATE, streamed::add);
+
+		assertThat(getStorage().getAllAppointments(DATE, DATE).size(), is(0));
+		assertThat(streamed.size(), is(0));
+		assertThat(getStorage().getAppointmentsPage(DATE, DATE, null, 10).size(), is(0));
+		assertThat(getStorage().updateAppointmentStatuses(DATE, DATE, APP_STATUS, Appointment.AppStatus.PASS), is(0));
+		assertThat(getStorage().deleteAppointments(DATE, DATE, APP_STATUS), is(0));
+		assertThat(ids(getStorage().getAllAppointments(nextDay, nextDay)), is(Collections.singletonList(id)));
+	}
+
+	@Test
+	public void when_getAppointmentsPage_then_pagesBySortedPriceAndId() {
+		long id1 = create(DATE, 20, APP_STATUS);
+		long id2 = create(DATE, 10, APP_STATUS);
+		long id3 = create(DATE, 20, APP_STATUS);
+		long id4 = create(DATE, 30, APP_STATUS);
+
+		List<Appointment> first = getStorage().getAppointmentsPage(DATE, DATE, null, 2);
+		List<Appointment> second = getStorage().getAppointmentsPage(DATE, DATE,
+				cursorAfter(first), 2);
+		List<Appointment> last = getStorage().getAppointmentsPage(DATE, DATE,
+				cursorAfter(second), 2);
+
+		assertThat(ids(first), is(Arrays.asList(id2, id1)));
+		assertThat(ids(second), is(Arrays.asList(id3, id4)));
+		assertThat(last.isEmpty(), is(true));
+	}
+
+	@Test
+	public void when_updateAppointmentStatus_then_statusChangedAndTimeReturned() {
+		long id = create(DATE, 10, APP_STATUS);
+
+		LocalDateTime time = getStorage().updateAppointmentStatus(id, Appointment.AppStatus.PASS);
+
+		assertThat(time, is(DATE.atTime(12, 0)));
+		assertThat(getStorage().getAppointment(id).getStatus(), is(Appointment.AppStatus.PASS));
+		assertThat(getStorage().getAllAppointments(DATE, DATE).get(0).getStatus(), is(Appointment.AppStatus.PASS));
+	}
+
+	@Test
+	public void when_statusChanged_then_versionIncreased() {
+		long id1 = create(DATE, 10, APP_STATUS);
+		long id2 = create(DATE, 20, Appointment.AppStatus.OBTAIN);
+		assertThat(getStorage().getAppointment(id1).getVersion(), is(0L));
+
+		getStorage().updateAppointmentStatus(id1, Appointment.AppStatus.PASS);
+		getStorage().updateAppointmentStatuses(Arrays.asList(id1, id2), Appointment.AppStatus.PASS, APP_STATUS);
+
+		assertThat(getStorage().getAppointment(id1).getVersion(), is(2L));
+		assertThat(getStorage().getAppointment(id2).getVersion(), is(0L));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void when_updateAppointmentStatusAndNotFound_then_throws() {
+		getStorage().updateAppointmentStatus(MISSING_ID, Appointment.AppStatus.PASS);
+	}
+
+	@Test
+	public void when_updateAppointmentStatusWithVersion_then_onlyCurrentVersionUpdates() {
+		long id = create(DATE, 10, APP_STATUS);
+
+		LocalDateTime first = getStorage().updateAppointmentStatus(id, Appointment.AppStatus.PASS, 0);
+		LocalDateTime second = getStorage().updateAppointmentStatus(id, Appointment.AppStatus.OBTAIN, 0);
+
+		assertThat(first, is(DATE.atTime(12, 0)));
+		assertThat(second, is(nullValue()));
+		Appointment stored = getStorage().getAppointment(id);
+		assertThat(stored.getStatus(), is(Appointment.AppStatus.PASS));
+		assertThat(stored.getVersion(), is(1L));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void when_updateAppointmentStatusWithVersionAndNotFound_then_throws() {
+		getStorage().updateAppointmentStatus(MISSING_ID, Appointment.AppStatus.PASS, 0);
+	}
+
+	@Test
+	public void when_updateAppointmentStatusesByIds_then_changesOnlyMatchingStatus() {
+		long id1 = create(DATE, 10, APP_STATUS);
+		long id2 = create(DATE, 20, Appointment.AppStatus.OBTAIN);
+
+		int count = getStorage().updateAppointmentStatuses(Arrays.asList(id1, id2, MISSING_ID), APP_STATUS,
+				Appointment.AppStatus.PASS);
+
+		assertThat(count, is(1));
+		assertThat(getStorage().getAppointment(id1).getStatus(), is(Appointment.AppStatus.PASS));
+		assertThat(getStorage().getAppointment(id2).getStatus(), is(Appointment.AppStatus.OBTAIN));
+	}
+
+	@Test
+	public void when_updateAppointmentStatusesByDates_then_changesOnlyDateRangeAndMatchingStatus() {
+		long id1 = create(DATE, 10, APP_STATUS);
+		long id2 = create(DATE, 20, Appointment.AppStatus.OBTAIN);
+		long id3 = create(DATE.plusDays(1), 30, APP_STATUS);
+
+		int count = getStorage().updateAppointmentStatuses(DATE, DATE, APP_STATUS, Appointment.AppStatus.PASS);
+
+		assertThat(count, is(1));
+		assertThat(getStorage().getAppointment(id1).getStatus(), is(Appointment.AppStatus.PASS));
+		assertThat(getStorage().getAppointment(id2).getStatus(), is(Appointment.AppStatus.OBTAIN));
+		assertThat(getStorage().getAppointment(id3).getStatus(), is(APP_STATUS));
+	}
+
+	@Test
+	public void when_deleteAppointment_then_returnsIt_andRemoves() {
+		long id = create(DATE, 10, APP_STATUS);
+
+		Appointment deleted = getStorage().deleteAppointment(id);
+
+		assertThat(deleted.getId(), is(id));
+		assertThat(getStorage().getAllAppointments(DATE, DATE).isEmpty(), is(true));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void when_deleteAppointmentAndNotFound_then_throws() {
+		getStorage().deleteAppointment(MISSING_ID);
+	}
+
+	@Test
+	public void when_deleteAppointments_then_deletesOnlyDateRangeAndMatchingStatus() {
+		create(DATE, 10, APP_STATUS);
+		long id2 = create(DATE, 20, Appointment.AppStatus.OBTAIN);
+		long id3 = create(DATE.plusDays(1), 30, APP_STATUS);
+
+		int count = getStorage().deleteAppointments(DATE, DATE, APP_STATUS);
+
+		assertThat(count, is(1));
+		assertThat(ids(getStorage().getAllAppointments(DATE, DATE.plusDays(1))), is(Arrays.asList(id2, id3)));
+	}
+
+	@Test
+	public void when_returnedAppointmentModified_then_storageUnchanged() {
+		long id = create(DATE, 10, APP_STATUS);
+
+		getStorage().getAppointment(id).setStatus(Appointment.AppStatus.PASS);
+		getStorage().getAllAppointments(DATE, DATE).get(0).setPrice(99);
+
+		Appointment app = getStorage().getAppointment(id);
+		assertThat(app.getStatus(), is(APP_STATUS));
+		assertThat(app.getPrice(), is(10.0));
+	}
+}
@@ -1,17 +1,21 @@
 package com.leobro.appointment.data;
 
 import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.PageCursor;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -72,6 +76,7 @@ public class AppointmentStorageImplTest {
 		entity.setId(null);
 		AppointmentEntity entityWithId = new AppointmentEntity();
 		entityWithId.setId(ID);
+		entityWithId.setTime(DATE_TIME);
 		Mockito.when(repository.save(any(AppointmentEntity.class))).thenReturn(entityWithId);
 
 		long id = storage.createAppointment(appointment);
@@ -80,6 +85,24 @@ public class AppointmentStorageImplTest {
 		assertThat(id, is(ID));
 	}
 
+	@Test
+	public void when_createAppointments_then_callsRepositorySaveAllPerChunk_andReturnsIds() {
+		int count = AppointmentStorageImpl.BATCH_SIZE + 1;
+		List<Appointment> appointments = Collections.nCopies(count, appointment);
+		AppointmentEntity entityWithId = new AppointmentEntity();
+		entityWithId.setId(ID);
+		entityWithId.setTime(DATE_TIME);
+		Mockito.when(repository.saveAll(Mockito.anyList()))
+				.thenAnswer(invocation -> Collections.nCopies(
+						((List<?>) invocation.getArgument(0)).size(), entityWithId));
+
+		List<Long> ids = storage.createAppointments(appointments);
+
+		Mockito.verify(repository, Mockito.times(2)).saveAll(Mockito.anyList());
+		assertThat(ids.size(), is(count));
+		assertThat(ids.get(0), is(ID));
+	}
+
 	@Test
 	public void when_getAppointment_then_callsRepositoryFindById_andReturnsAppointment() {
 		Mockito.when(repository.findById(Mockito.anyLong())).thenReturn(Optional.of(entity));
@@ -113,35 +136,135 @@ public class AppointmentStorageImplTest {
 	}
 
 	@Test
-	public void when_updateAppointmentStatus_then_callsRepositorySave() {
-		Mockito.when(repository.findById(Mockito.anyLong())).thenReturn(Optional.of(entity));
+	public void when_forEachAppointment_then_callsRepositoryForEachByTimeBetween_andPassesAppointments() {
+		Mockito.doAnswer(invocation -> {
+			Consumer<AppointmentEntity> action = invocation.getArgument(2);
+			action.accept(entity);
+			return null;
+		}).when(repository).forEachByTimeBetween(Mockito.any(LocalDate.class), Mockito.any(LocalDate.class),
+				Mockito.any());
+		LocalDate startDate = LocalDate.now();
+		LocalDate endDate = startDate.plusDays(1);
+		List<Appointment> appointments = new ArrayList<>();
 
-		storage.updateAppointmentStatus(ID, APP_STATUS);
+		storage.forEachAppointment(startDate, endDate, appointments::add);
 
-		Mockito.verify(repository).save(Mockito.any(AppointmentEntity.class));
+		Mockito.verify(repository).forEachByTimeBetween(Mockito.eq(startDate), Mockito.eq(endDate.plusDays(1)),
+				Mockito.any());
+		assertThat(appointments.size(), is(1));
+		assertThat(appointments.get(0), is(appointment));
+	}
+
+	@Test
+	public void when_getAppointmentsPageWithoutCursor_then_callsRepositoryFindFirstPage() {
+		Mockito.when(repository.findFirstPage(Mockito.any(LocalDate.class), Mockito.any(LocalDate.class),
+				Mockito.anyInt()))
+				.thenReturn(Collections.singletonList(entity));
+		LocalDate startDate = LocalDate.now();
+		LocalDate endDate = startDate.plusDays(1);
+
+		List<Appointment> appointments = storage.getAppointmentsPage(startDate, endDate, null, 10);
+
+		Mockito.verify(repository).findFirstPage(startDate, endDate.plusDays(1), 10);
+		assertThat(appointments.get(0), is(appointment));
+	}
+
+	@Test
+	public void when_getAppointmentsPageWithCursor_then_callsRepositoryFindPageAfter() {
+		Mockito.when(repository.findPageAfter(Mockito.any(LocalDate.class), Mockito.any(LocalDate.class),
+				Mockito.anyDouble(), Mockito.anyLong(), Mockito.anyInt()))
+				.thenReturn(Collections.singletonList(entity));
+		LocalDate startDate = LocalDate.now();
+		LocalDate endDate = startDate.plusDays(1);
+
+		List<Appointment> appointments = storage.getAppointmentsPage(startDate, endDate,
+				new PageCursor(PRICE, ID), 10);
+
+		Mockito.verify(repository).findPageAfter(startDate, endDate.plusDays(1), PRICE, ID, 10);
+		assertThat(appointments.get(0), is(appointment));
+	}
+
+	@Test
+	public void when_updateAppointmentStatus_then_callsRepositoryUpdateStatusOnly_andReturnsTime() {
+		Mockito.when(repository.updateStatus(Mockito.anyLong(), Mockito.anyString())).thenReturn(1);
+		Mockito.when(repository.findTimeById(ID)).thenReturn(Collections.singletonList(Timestamp.valueOf(DATE_TIME)));
+
+		LocalDateTime time = storage.updateAppointmentStatus(ID, APP_STATUS);
+
+		Mockito.verify(repository).updateStatus(ID, APP_STATUS.name());
+		Mockito.verify(repository, Mockito.never()).findById(Mockito.anyLong());
+		assertThat(time, is(DATE_TIME));
 	}
 
 	@Test(expected = NoSuchElementException.class)
 	public void when_updateAppointmentStatusAndNotFound_then_throws() {
-		Mockito.when(repository.findById(Mockito.anyLong())).thenThrow(NoSuchElementException.class);
+		Mockito.when(repository.updateStatus(Mockito.anyLong(), Mockito.anyString())).thenReturn(0);
 
 		storage.updateAppointmentStatus(ID, APP_STATUS);
 	}
 
 	@Test
-	public void when_deleteAppointment_then_callsRepositoryDeleteById_andReturnsAppointment() {
-		Mockito.when(repository.findById(Mockito.anyLong())).thenReturn(Optional.of(entity));
+	public void when_updateAppointmentStatusesByIds_then_callsRepositoryPerChunk_andReturnsCount() {
+		List<Long> ids = new ArrayList<>();
+		for (long id = 0; id <= AppointmentStorageImpl.MAX_IDS_PER_STATEMENT; id++) {
+			ids.add(id);
+		}
+		Mockito.when(repository.updateStatusByIds(Mockito.anyCollection(), Mockito.anyString(), Mockito.anyString()))
+				.thenReturn(2);
+
+		int count = storage.updateAppointmentStatuses(ids, Appointment.AppStatus.WAIT, Appointment.AppStatus.PASS);
+
+		Mockito.verify(repository, Mockito.times(2)).updateStatusByIds(Mockito.anyCollection(),
+				Mockito.eq(Appointment.AppStatus.WAIT.name()), Mockito.eq(Appointment.AppStatus.PASS.name()));
+		assertThat(count, is(4));
+	}
+
+	@Test
+	public void when_updateAppointmentStatusesByDates_then_callsRepositoryUpdateStatusByTimeBetween() {
+		Mockito.when(repository.updateStatusByTimeBetween(Mockito.any(LocalDate.class), Mockito.any(LocalDate.class),
+				Mockito.anyString(), Mockito.anyString()))
+				.thenReturn(3);
+		LocalDate startDate = LocalDate.now();
+		LocalDate endDate = startDate.plusDays(1);
+
+		int count = storage.updateAppointmentStatuses(startDate, endDate, Appointment.AppStatus.WAIT,
+				Appointment.AppStatus.PASS);
+
+		Mockito.verify(repository).updateStatusByTimeBetween(startDate, endDate.plusDays(1),
+				Appointment.AppStatus.WAIT.name(), Appointment.AppStatus.PASS.name());
+		assertThat(count, is(3));
+	}
+
+	@Test
+	public void when_deleteAppointment_then_callsRepositoryDeleteAndGet_andReturnsAppointment() {
+		Mockito.when(repository.deleteAndGet(Mockito.anyLong())).thenReturn(Optional.of(entity));
 
 		Appointment app = storage.deleteAppointment(ID);
 
-		Mockito.verify(repository).deleteById(ID);
+		Mockito.verify(repository).deleteAndGet(ID);
+		Mockito.verify(repository, Mockito.never()).findById(Mockito.anyLong());
 		assertThat(app, is(appointment));
 	}
 
 	@Test(expected = NoSuchElementException.class)
 	public void when_deleteAppointmentAndNotFound_then_throws() {
-		Mockito.when(repository.findById(Mockito.anyLong())).thenThrow(NoSuchElementException.class);
+		Mockito.when(repository.deleteAndGet(Mockito.anyLong())).thenReturn(Optional.empty());
 
 		storage.deleteAppointment(ID);
 	}
+
+	@Test
+	public void when_deleteAppointments_then_callsRepositoryUntilChunkIsNotFull_andReturnsCount() {
+		Mockito.when(repository.deleteByTimeBetweenAndStatus(Mockito.any(LocalDate.class),
+				Mockito.any(LocalDate.class), Mockito.anyString(), Mockito.anyInt()))
+				.thenReturn(AppointmentStorageImpl.DELETE_CHUNK_SIZE, 1);
+		LocalDate startDate = LocalDate.now();
+		LocalDate endDate = startDate.plusDays(1);
+
+		int count = storage.deleteAppointments(startDate, endDate, APP_STATUS);
+
+		Mockito.verify(repository, Mockito.times(2)).deleteByTimeBetweenAndStatus(startDate, endDate.plusDays(1),
+				APP_STATUS.name(), AppointmentStorageImpl.DELETE_CHUNK_SIZE);
+		assertThat(count, is(AppointmentStorageImpl.DELETE_CHUNK_SIZE + 1));
+	}
 }
@@ -0,0 +1,113 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class CachingAppointmentStorageTest {
+
+	private static final long ID = 123L;
+	private static final LocalDateTime DATE_TIME = LocalDateTime.of(2019, Month.AUGUST, 20, 12, 0);
+	private static final LocalDate DATE = DATE_TIME.toLocalDate();
+	private static final Appointment.AppStatus APP_STATUS = Appointment.AppStatus.WAIT;
+
+	private AppointmentStorage delegate;
+	private CachingAppointmentStorage storage;
+	private Appointment appointment;
+
+	@Before
+	public void setUp() {
+		delegate = Mockito.mock(AppointmentStorage.class);
+		storage = new CachingAppointmentStorage(delegate, 100, Duration.ofMinutes(1));
+		appointment = new Appointment();
+		appointment.setId(ID);
+		appointment.setTime(DATE_TIME);
+		appointment.setStatus(APP_STATUS);
+		Mockito.when(delegate.getAppointment(ID)).thenReturn(appointment);
+	}
+
+	@Test
+	public void when_getAppointmentTwice_then_callsDelegateOnce_andCountsHitAndMiss() {
+		storage.getAppointment(ID);
+		Appointment app = storage.getAppointment(ID);
+
+		Mockito.verify(delegate, Mockito.times(1)).getAppointment(ID);
+		assertThat(app, is(sameInstance(appointment)));
+		assertThat(storage.getHitCount(), is(1L));
+		assertThat(storage.getMissCount(), is(1L));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void when_getAppointmentAndNotFound_then_throws() {
+		Mockito.when(delegate.getAppointment(ID)).thenThrow(NoSuchElementException.class);
+
+		storage.getAppointment(ID);
+	}
+
+	@Test
+	public void when_updateAppointmentStatus_then_nextGetCallsDelegate() {
+		storage.getAppointment(ID);
+
+		storage.updateAppointmentStatus(ID, Appointment.AppStatus.PASS);
+		storage.getAppointment(ID);
+
+		Mockito.verify(delegate).updateAppointmentStatus(ID, Appointment.AppStatus.PASS);
+		Mockito.verify(delegate, Mockito.times(2)).getAppointment(ID);
+	}
+
+	@Test
+	public void when_updateAppointmentStatusesByIds_then_nextGetCallsDelegate() {
+		storage.getAppointment(ID);
+
+		storage.updateAppointmentStatuses(Collections.singletonList(ID), APP_STATUS, Appointment.AppStatus.PASS);
+		storage.getAppointment(ID);
+
+		Mockito.verify(delegate, Mockito.times(2)).getAppointment(ID);
+	}
+
+	@Test
+	public void when_updateAppointmentStatusesByDates_then_invalidatesOnlyMatchingAppointments() {
+		storage.getAppointment(ID);
+
+		storage.updateAppointmentStatuses(DATE.plusDays(1), DATE.plusDays(2), APP_STATUS, Appointment.AppStatus.PASS);
+		storage.getAppointment(ID);
+		storage.updateAppointmentStatuses(DATE, DATE, APP_STATUS, Appointment.AppStatus.PASS);
+		storage.getAppointment(ID);
+
+		Mockito.verify(delegate, Mockito.times(2)).getAppointment(ID);
+	}
+
+	@Test
+	public void when_deleteAppointment_then_nextGetCallsDelegate() {
+		storage.getAppointment(ID);
+
+		storage.deleteAppointment(ID);
+		storage.getAppointment(ID);
+
+		Mockito.verify(delegate).deleteAppointment(ID);
+		Mockito.verify(delegate, Mockito.times(2)).getAppointment(ID);
+	}
+
+	@Test
+	public void when_deleteAppointments_then_nextGetCallsDelegate() {
+		storage.getAppointment(ID);
+
+		storage.deleteAppointments(DATE, DATE, APP_STATUS);
+		storage.getAppointment(ID);
+
+		Mockito.verify(delegate, Mockito.times(2)).getAppointment(ID);
+	}
+}
@@ -0,0 +1,138 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import com.leobro.appointment.service.PageCursor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ColumnarAppointmentStorageTest extends AppointmentStorageContractTest {
+
+	private static final LocalDate DATE = LocalDate.of(2030, Month.AUGUST, 20);
+	private static final int DAYS = 30;
+
+	private ColumnarAppointmentStorage storage;
+
+	@Before
+	public void setUp() {
+		storage = new ColumnarAppointmentStorage();
+	}
+
+	@Override
+	protected AppointmentStorage getStorage() {
+		return storage;
+	}
+
+	private static Appointment createAppointment(LocalDateTime time, double price, Appointment.AppStatus status) {
+		Appointment app = new Appointment();
+
+		app.setClientName("Client " + (int) price % 10);
+		app.setTime(time);
+		app.setPrice(price);
+		app.setStatus(status);
+
+		return app;
+	}
+
+	/**
+	 * Creates more appointments than fit into the unsorted rows, in random time order.
+	 */
+	private List<Appointment> createRandomAppointments(int count) {
+		Random random = new Random(42);
+		List<Appointment> apps = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+			LocalDateTime time = DATE.plusDays(random.nextInt(DAYS)).atTime(9 + random.nextInt(8), 0);
+			Appointment.AppStatus status = Appointment.AppStatus.values()[random.nextInt(3)];
+			apps.add(createAppointment(time, 10 + random.nextInt(20), status));
+		}
+		List<Long> ids = storage.createAppointments(apps);
+		for (int i = 0; i < count; i++) {
+			apps.get(i).setId(ids.get(i));
+		}
+		return apps;
+	}
+
+	private static List<Long> expectedIds(List<Appointment> apps, LocalDate startDate, LocalDate endDate) {
+		return apps.stream()
+				.filter(app -> !app.getTime().toLocalDate().isBefore(startDate)
+						&& !app.getTime().toLocalDate().isAfter(endDate))
+				.sorted(Comparator.comparingDouble(Appointment::getPrice).thenComparing(Appointment::getId))
+				.map(Appointment::getId)
+				.collect(Collectors.toList());
+	}
+
+	private static List<Long> ids(List<Appointment> apps) {
+		return apps.stream().map(Appointment::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	public void when_manyAppointmentsInRandomTimeOrder_then_getAllAppointmentsReturnsDateRangeSortedByPrice() {
+		List<Appointment> apps = createRandomAppointments(ColumnarAppointmentStorage.MAX_UNSORTED_ROWS * 3 + 100);
+
+		List<Appointment> result = storage.getAllAppointments(DATE.plusDays(5), DATE.plusDays(12));
+
+		assertThat(ids(result), is(expectedIds(apps, DATE.plusDays(5), DATE.plusDays(12))));
+	}
+
+	@Test
+	public void when_mostAppointmentsDeleted_then_remainingAppointmentsAreFound() {
+		List<Appointment> apps = createRandomAppointments(ColumnarAppointmentStorage.MAX_UNSORTED_ROWS * 3);
+
+		for (Appointment.AppStatus status : new Appointment.AppStatus[]{Appointment.AppStatus.WAIT,
+				Appointment.AppStatus.PASS}) {
+			storage.deleteAppointments(DATE, DATE.plusDays(DAYS), status);
+		}
+		List<Appointment> remaining = apps.stream()
+				.filter(app -> app.getStatus() == Appointment.AppStatus.OBTAIN)
+				.collect(Collectors.toList());
+
+		assertThat(ids(storage.getAllAppointments(DATE, DATE.plusDays(DAYS))),
+				is(expectedIds(remaining, DATE, DATE.plusDays(DAYS))));
+		Appointment last = remaining.get(remaining.size() - 1);
+		assertThat(storage.getAppointment(last.getId()).getClientName(), is(last.getClientName()));
+		assertThat(storage.createAppointment(last), is(apps.get(apps.size() - 1).getId() + 1));
+	}
+
+	@Test
+	public void when_cursorAppointmentDeleted_then_nextPageStartsAfterIt() {
+		long id1 = storage.createAppointment(createAppointment(DATE.atTime(9, 0), 10, Appointment.AppStatus.WAIT));
+		long id2 = storage.createAppointment(createAppointment(DATE.atTime(9, 0), 10, Appointment.AppStatus.WAIT));
+		long id3 = storage.createAppointment(createAppointment(DATE.atTime(9, 0), 10, Appointment.AppStatus.WAIT));
+
+		storage.deleteAppointment(id2);
+		List<Appointment> page = storage.getAppointmentsPage(DATE, DATE, new PageCursor(10, id2), 10);
+
+		assertThat(ids(page), is(Collections.singletonList(id3)));
+		assertThat(storage.getAppointmentsPage(DATE, DATE, new PageCursor(10, id1 - 1), 1).get(0).getId(), is(id1));
+	}
+
+	@Test
+	public void when_appointmentFarInFuture_then_storedAndFoundByRange() {
+		LocalDateTime time = LocalDateTime.of(9999, 12, 31, 23, 0);
+		long id = storage.createAppointment(createAppointment(time, 10, Appointment.AppStatus.WAIT));
+
+		assertThat(storage.getAppointment(id).getTime(), is(time));
+		assertThat(ids(storage.getAllAppointments(DATE, time.toLocalDate())), is(Collections.singletonList(id)));
+	}
+
+	@Test
+	public void when_priceHasFractionOfCent_then_roundsToCents() {
+		long id = storage.createAppointment(createAppointment(DATE.atTime(9, 0), 10.126, Appointment.AppStatus.WAIT));
+
+		assertThat(storage.getAppointment(id).getPrice(), is(10.13));
+	}
+}
@@ -0,0 +1,10 @@
+package com.leobro.appointment.data;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Configuration for the tests running against the embedded database.
+ */
+@SpringBootApplication
+class DataTestApplication {
+}
@@ -0,0 +1,170 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DayBucketAppointmentStorageTest {
+
+	private static final LocalDate DAY_1 = LocalDate.of(2019, Month.AUGUST, 20);
+	private static final LocalDate DAY_2 = DAY_1.plusDays(1);
+	private static final LocalDate DAY_3 = DAY_1.plusDays(2);
+	private static final Appointment.AppStatus APP_STATUS = Appointment.AppStatus.WAIT;
+
+	private AppointmentStorage delegate;
+	private DayBucketAppointmentStorage storage;
+
+	private Appointment app1;
+	private Appointment app2;
+	private Appointment app3;
+	private Appointment app4;
+
+	@Before
+	public void setUp() {
+		delegate = Mockito.mock(AppointmentStorage.class);
+		storage = new DayBucketAppointmentStorage(delegate, 100, Duration.ofMinutes(1));
+
+		app1 = createAppointment(1L, DAY_1, 30.0);
+		app2 = createAppointment(2L, DAY_1, 10.0);
+		app3 = createAppointment(3L, DAY_2, 20.0);
+		app4 = createAppointment(4L, DAY_3, 10.0);
+
+		Mockito.when(delegate.getAllAppointments(DAY_1, DAY_1)).thenReturn(Arrays.asList(app2, app1));
+		Mockito.when(delegate.getAllAppointments(DAY_1, DAY_2)).thenReturn(Arrays.asList(app2, app3, app1));
+		Mockito.when(delegate.getAllAppointments(DAY_1, DAY_3)).thenReturn(Arrays.asList(app2, app4, app3, app1));
+		Mockito.when(delegate.getAllAppointments(DAY_2, DAY_2)).thenReturn(Collections.singletonList(app3));
+		Mockito.when(delegate.getAllAppointments(DAY_2, DAY_3)).thenReturn(Arrays.asList(app4, app3));
+		Mockito.when(delegate.getAllAppointments(DAY_3, DAY_3)).thenReturn(Collections.singletonList(app4));
+	}
+
+	private static Appointment createAppointment(long id, LocalDate date, double price) {
+		Appointment app = new Appointment();
+		app.setId(id);
+		app.setTime(date.atTime(12, 0));
+		app.setPrice(price);
+		app.setStatus(APP_STATUS);
+		return app;
+	}
+
+	@Test
+	public void when_getAllAppointmentsTwice_then_callsDelegateOnce() {
+		storage.getAllAppointments(DAY_1, DAY_2);
+		List<Appointment> apps = storage.getAllAppointments(DAY_1, DAY_2);
+
+		Mockito.verify(delegate, Mockito.times(1)).getAllAppointments(DAY_1, DAY_2);
+		assertThat(ids(apps), is(Arrays.asList(2L, 3L, 1L)));
+		assertThat(storage.getHitCount(), is(2L));
+		assertThat(storage.getMissCount(), is(2L));
+	}
+
+	@Test
+	public void when_delegateReturnsAppointmentOfNextDay_then_itIsSkipped() {
+		Appointment midnight = createAppointment(5L, DAY_2, 5.0);
+		midnight.setTime(DAY_2.atStartOfDay());
+		Mockito.when(delegate.getAllAppointments(DAY_1, DAY_1)).thenReturn(Arrays.asList(midnight, app2, app1));
+
+		List<Appointment> apps = storage.getAllAppointments(DAY_1, DAY_1);
+
+		assertThat(ids(apps), is(Arrays.asList(2L, 1L)));
+	}
+
+	@Test
+	public void when_getAllAppointmentsAndSomeDaysCached_then_readsOnlyMissingDays_andMergesByPrice() {
+		storage.getAllAppointments(DAY_1, DAY_1);
+
+		List<Appointment> apps = storage.getAllAppointments(DAY_1, DAY_3);
+
+		Mockito.verify(delegate).getAllAppointments(DAY_2, DAY_3);
+		Mockito.verify(delegate, Mockito.never()).getAllAppointments(DAY_1, DAY_3);
+		// the equal prices are ordered by ID
+		assertThat(ids(apps), is(Arrays.asList(2L, 4L, 3L, 1L)));
+	}
+
+	@Test
+	public void when_getAllAppointmentsAndGapInCache_then_readsEveryMissingRunSeparately() {
+		storage.getAllAppointments(DAY_2, DAY_2);
+
+		List<Appointment> apps = storage.getAllAppointments(DAY_1, DAY_3);
+
+		Mockito.verify(delegate).getAllAppointments(DAY_1, DAY_1);
+		Mockito.verify(delegate).getAllAppointments(DAY_3, DAY_3);
+		assertThat(ids(apps), is(Arrays.asList(2L, 4L, 3L, 1L)));
+	}
+
+	@Test
+	public void when_createAppointment_then_invalidatesOnlyItsDay() {
+		storage.getAllAppointments(DAY_1, DAY_2);
+
+		storage.createAppointment(createAppointment(5L, DAY_2, 50.0));
+		storage.getAllAppointments(DAY_1, DAY_2);
+
+		Mockito.verify(delegate, Mockito.times(1)).getAllAppointments(DAY_1, DAY_2);
+		Mockito.verify(delegate).getAllAppointments(DAY_2, DAY_2);
+	}
+
+	@Test
+	public void when_updateAppointmentStatus_then_invalidatesDayOfAppointment() {
+		storage.getAllAppointments(DAY_1, DAY_2);
+
+		storage.updateAppointmentStatus(3L, Appointment.AppStatus.PASS);
+		storage.getAllAppointments(DAY_1, DAY_2);
+
+		Mockito.verify(delegate).updateAppointmentStatus(3L, Appointment.AppStatus.PASS);
+		Mockito.verify(delegate).getAllAppointments(DAY_2, DAY_2);
+		Mockito.verify(delegate, Mockito.never()).getAllAppointments(DAY_1, DAY_1);
+	}
+
+	@Test
+	public void when_deleteAppointment_then_invalidatesDayOfAppointment() {
+		storage.getAllAppointments(DAY_1, DAY_2);
+
+		storage.deleteAppointment(1L);
+		storage.getAllAppointments(DAY_1, DAY_2);
+
+		Mockito.verify(delegate).deleteAppointment(1L);
+		Mockito.verify(delegate).getAllAppointments(DAY_1, DAY_1);
+		Mockito.verify(delegate, Mockito.never()).getAllAppointments(DAY_2, DAY_2);
+	}
+
+	@Test
+	public void when_deleteAppointments_then_invalidatesDaysOfRange() {
+		storage.getAllAppointments(DAY_1, DAY_3);
+
+		storage.deleteAppointments(DAY_2, DAY_3, APP_STATUS);
+		storage.getAllAppointments(DAY_1, DAY_3);
+
+		Mockito.verify(delegate).deleteAppointments(DAY_2, DAY_3, APP_STATUS);
+		Mockito.verify(delegate).getAllAppointments(DAY_2, DAY_3);
+		Mockito.verify(delegate, Mockito.times(1)).getAllAppointments(DAY_1, DAY_3);
+	}
+
+	@Test
+	public void when_writeDuringRead_then_readResultIsNotCached() {
+		Mockito.when(delegate.getAllAppointments(DAY_1, DAY_1)).thenAnswer(invocation -> {
+			storage.createAppointment(createAppointment(5L, DAY_1, 50.0));
+			return Arrays.asList(app2, app1);
+		});
+
+		storage.getAllAppointments(DAY_1, DAY_1);
+		storage.getAllAppointments(DAY_1, DAY_1);
+
+		Mockito.verify(delegate, Mockito.times(2)).getAllAppointments(DAY_1, DAY_1);
+	}
+
+	private static List<Long> ids(List<Appointment> apps) {
+		return apps.stream().map(Appointment::getId).collect(Collectors.toList());
+	}
+}
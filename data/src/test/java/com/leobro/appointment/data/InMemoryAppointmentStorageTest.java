@@ -0,0 +1,19 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.AppointmentStorage;
+import org.junit.Before;
+
+public class InMemoryAppointmentStorageTest extends AppointmentStorageContractTest {
+
+	private InMemoryAppointmentStorage storage;
+
+	@Before
+	public void setUp() {
+		storage = new InMemoryAppointmentStorage();
+	}
+
+	@Override
+	protected AppointmentStorage getStorage() {
+		return storage;
+	}
+}
@@ -0,0 +1,117 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.reset;
+
+/**
+ * Runs the storage contract against {@link AppointmentStorageImpl} on the embedded database. Every storage call
+ * runs in its own transaction like in the application, so the data is deleted after each test.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(AppointmentStorageImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JpaAppointmentStorageTest extends AppointmentStorageContractTest {
+
+	/**
+	 * Puts a Mockito spy in front of the Spring Data repository, which is a JDK proxy and cannot be spied itself.
+	 */
+	@TestConfiguration
+	static class SpyConfiguration {
+
+		@Bean
+		@Primary
+		AppointmentRepository spyRepository(@Qualifier("appointmentRepository") AppointmentRepository repository) {
+			return mock(AppointmentRepository.class, delegatesTo(repository));
+		}
+	}
+
+	@Autowired
+	private AppointmentStorageImpl storage;
+
+	@Autowired
+	private AppointmentRepository repository;
+
+	private static final LocalDate DATE = LocalDate.of(2030, Month.SEPTEMBER, 1);
+
+	@After
+	public void tearDown() {
+		reset(repository);
+		repository.deleteAll();
+	}
+
+	@Override
+	protected AppointmentStorage getStorage() {
+		return storage;
+	}
+
+	private static Appointment createAppointment(LocalDateTime time, double price) {
+		Appointment app = new Appointment();
+
+		app.setClientName("Test Client");
+		app.setTime(time);
+		app.setPrice(price);
+		app.setStatus(Appointment.AppStatus.WAIT);
+
+		return app;
+	}
+
+	@Test
+	public void when_createAppointmentsFailsInSecondChunk_then_firstChunkIsNotCreated() {
+		List<Appointment> apps = new ArrayList<>();
+		for (int i = 0; i <= AppointmentStorageImpl.BATCH_SIZE; i++) {
+			apps.add(createAppointment(DATE.plusDays(i).atTime(9, 0), 10));
+		}
+		AtomicInteger calls = new AtomicInteger();
+		doAnswer(invocation -> {
+			if (calls.incrementAndGet() > 1) {
+				throw new DataIntegrityViolationException("Second chunk failed");
+			}
+			return mockingDetails(repository).getMockCreationSettings().getDefaultAnswer().answer(invocation);
+		}).when(repository).saveAll(anyIterable());
+
+		try {
+			storage.createAppointments(apps);
+			fail("The failure of the second chunk must be thrown");
+		} catch (DataIntegrityViolationException e) {
+			// the caller frees the slots of all the appointments after that
+		}
+
+		// the freed slot of the first chunk is taken again, and only once
+		LocalDateTime time = apps.get(0).getTime();
+		storage.createAppointment(createAppointment(time, 20));
+
+		assertThat(storage.getAllAppointments(DATE, DATE.plusDays(AppointmentStorageImpl.BATCH_SIZE)).size(), is(1));
+	}
+}
@@ -0,0 +1,185 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class LogStructuredAppointmentStorageTest extends AppointmentStorageContractTest {
+
+	private static final LocalDate DATE = LocalDate.of(2030, Month.AUGUST, 20);
+	private static final long SNAPSHOT_RECORDS = 1000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private LogStructuredAppointmentStorage storage;
+
+	@Before
+	public void setUp() throws IOException {
+		storage = open();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		storage.close();
+	}
+
+	private LogStructuredAppointmentStorage open() throws IOException {
+		return new LogStructuredAppointmentStorage(folder.getRoot().getPath(), SNAPSHOT_RECORDS);
+	}
+
+	private LogStructuredAppointmentStorage reopen() throws IOException {
+		storage.close();
+		storage = open();
+		return storage;
+	}
+
+	@Override
+	protected AppointmentStorage getStorage() {
+		return storage;
+	}
+
+	private static Appointment createAppointment(LocalDate date, double price) {
+		Appointment app = new Appointment();
+
+		app.setClientName("Client " + price);
+		app.setTime(date.atTime(10, 15, 30));
+		app.setPrice(price);
+		app.setStatus(Appointment.AppStatus.WAIT);
+
+		return app;
+	}
+
+	private static List<Long> ids(List<Appointment> apps) {
+		return apps.stream().map(Appointment::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	public void when_reopened_then_replaysLog() throws IOException {
+		List<Long> ids = storage.createAppointments(Arrays.asList(createAppointment(DATE, 10),
+				createAppointment(DATE, 20), createAppointment(DATE, 30), createAppointment(DATE.plusDays(1), 40)));
+		storage.updateAppointmentStatus(ids.get(0), Appointment.AppStatus.PASS);
+		storage.updateAppointmentStatuses(ids.subList(1, 3), Appointment.AppStatus.WAIT, Appointment.AppStatus.OBTAIN);
+		storage.deleteAppointment(ids.get(2));
+		storage.deleteAppointments(DATE.plusDays(1), DATE.plusDays(1), Appointment.AppStatus.WAIT);
+
+		List<Appointment> apps = reopen().getAllAppointments(DATE, DATE.plusDays(1));
+
+		assertThat(ids(apps), is(ids.subList(0, 2)));
+		assertThat(apps.get(0).getStatus(), is(Appointment.AppStatus.PASS));
+		assertThat(apps.get(1).getStatus(), is(Appointment.AppStatus.OBTAIN));
+		assertThat(apps.get(1).getClientName(), is("Client 20.0"));
+		assertThat(apps.get(1).getTime(), is(DATE.atTime(10, 15, 30)));
+	}
+
+	@Test
+	public void when_reopenedAfterSnapshot_then_loadsSnapshot_andReplaysRestOfLog() throws IOException {
+		long id1 = storage.createAppointment(createAppointment(DATE, 10));
+		long id2 = storage.createAppointment(createAppointment(DATE, 20));
+		storage.snapshot();
+		storage.updateAppointmentStatuses(DATE, DATE, Appointment.AppStatus.WAIT, Appointment.AppStatus.PASS);
+		long id3 = storage.createAppointment(createAppointment(DATE, 30));
+		storage.deleteAppointment(id3);
+
+		LogStructuredAppointmentStorage reopened = reopen();
+		List<Appointment> apps = reopened.getAllAppointments(DATE, DATE);
+
+		assertThat(ids(apps), is(Arrays.asList(id1, id2)));
+		assertThat(apps.get(0).getStatus(), is(Appointment.AppStatus.PASS));
+		// the ID of the deleted appointment is not reused
+		assertThat(reopened.createAppointment(createAppointment(DATE, 40)), is(id3 + 1));
+	}
+
+	@Test
+	public void when_reopenedAfterSnapshot_then_keepsVersions() throws IOException {
+		long id = storage.createAppointment(createAppointment(DATE, 10));
+		storage.updateAppointmentStatus(id, Appointment.AppStatus.PASS);
+		storage.snapshot();
+		storage.updateAppointmentStatus(id, Appointment.AppStatus.OBTAIN);
+
+		assertThat(reopen().getAppointment(id).getVersion(), is(2L));
+	}
+
+	@Test(expected = IOException.class)
+	public void when_snapshotOfOtherFormat_then_refusesToOpen() throws IOException {
+		storage.close();
+		Files.write(folder.getRoot().toPath().resolve("snapshot"), ByteBuffer.allocate(Integer.BYTES + 2 * Long.BYTES
+				+ Integer.BYTES).putInt(0x41505053).array());
+
+		storage = open();
+	}
+
+	@Test
+	public void when_snapshot_then_deletesCoveredSegments() throws IOException {
+		storage.createAppointment(createAppointment(DATE, 10));
+
+		storage.snapshot();
+
+		try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+			List<String> names = files.map(file -> file.getFileName().toString()).sorted()
+					.collect(Collectors.toList());
+			assertThat(names.size(), is(2));
+			assertThat(names.get(1), is("snapshot"));
+		}
+	}
+
+	@Test
+	public void when_appendFails_then_memoryIsNotChanged() throws IOException {
+		long id = storage.createAppointment(createAppointment(DATE, 10));
+		// the closed log refuses the records like a failed one
+		storage.close();
+
+		assertFails(() -> storage.createAppointment(createAppointment(DATE, 20)));
+		assertFails(() -> storage.updateAppointmentStatus(id, Appointment.AppStatus.PASS));
+		assertFails(() -> storage.deleteAppointments(DATE, DATE, Appointment.AppStatus.WAIT));
+
+		List<Appointment> apps = storage.getAllAppointments(DATE, DATE);
+		assertThat(ids(apps), is(Arrays.asList(id)));
+		assertThat(apps.get(0).getStatus(), is(Appointment.AppStatus.WAIT));
+	}
+
+	private static void assertFails(Runnable write) {
+		try {
+			write.run();
+			fail("The write succeeded");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void when_lastRecordTorn_then_replaysRecordsBeforeIt() throws IOException {
+		long id = storage.createAppointment(createAppointment(DATE, 10));
+		storage.close();
+		Path segment;
+		try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+			segment = files.filter(file -> Files.isRegularFile(file)).findFirst().get();
+		}
+		// a record, which was being appended during the crash
+		Files.write(segment, new byte[]{0, 0, 0, 100, 1, 2, 3}, StandardOpenOption.APPEND);
+
+		storage = open();
+
+		assertThat(ids(storage.getAllAppointments(DATE, DATE)), is(Arrays.asList(id)));
+	}
+}
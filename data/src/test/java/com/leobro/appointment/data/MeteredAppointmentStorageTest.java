@@ -0,0 +1,69 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.NoSuchElementException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class MeteredAppointmentStorageTest {
+
+	private static final long ID = 123L;
+
+	private AppointmentStorage delegate;
+	private MeteredAppointmentStorage storage;
+	private SimpleMeterRegistry registry;
+	private Appointment appointment;
+
+	@Before
+	public void setUp() {
+		delegate = Mockito.mock(AppointmentStorage.class);
+		storage = new MeteredAppointmentStorage(delegate);
+		registry = new SimpleMeterRegistry();
+		appointment = new Appointment();
+		appointment.setId(ID);
+	}
+
+	@Test
+	public void when_call_then_timedByOperation() {
+		storage.bindTo(registry);
+		Mockito.when(delegate.getAppointment(ID)).thenReturn(appointment);
+
+		Appointment result = storage.getAppointment(ID);
+
+		assertThat(result, is(sameInstance(appointment)));
+		Timer timer = registry.find(MeteredAppointmentStorage.TIMER).tag("operation", "getAppointment").timer();
+		assertThat(timer.count(), is(1L));
+	}
+
+	@Test(expected = NoSuchElementException.class)
+	public void when_callFails_then_timedAndErrorCounted() {
+		storage.bindTo(registry);
+		Mockito.when(delegate.getAppointment(ID)).thenThrow(new NoSuchElementException());
+
+		try {
+			storage.getAppointment(ID);
+		} finally {
+			assertThat(registry.counter(MeteredAppointmentStorage.ERRORS,
+					"operation", "getAppointment", "exception", "NoSuchElementException").count(), is(1.0));
+			assertThat(registry.find(MeteredAppointmentStorage.TIMER).timer().count(), is(1L));
+		}
+	}
+
+	@Test
+	public void when_notBound_then_onlyDelegates() {
+		Mockito.when(delegate.getAppointment(ID)).thenReturn(appointment);
+
+		assertThat(storage.getAppointment(ID), is(sameInstance(appointment)));
+		assertThat(registry.find(MeteredAppointmentStorage.TIMER).timer(), is(nullValue()));
+	}
+}
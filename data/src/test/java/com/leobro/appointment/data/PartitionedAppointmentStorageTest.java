@@ -0,0 +1,219 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Runs the storage contract against {@link PartitionedAppointmentStorage} behind the transactions and the read
+ * replica routing like in the application. The replica is a second connection to the same embedded database.
+ */
+public class PartitionedAppointmentStorageTest extends AppointmentStorageContractTest {
+
+	private static final YearMonth MONTH = YearMonth.of(2030, Month.AUGUST);
+
+	private ReadWriteRoutingDataSource routingDataSource;
+	private PartitionedAppointmentStorage storage;
+	private AppointmentStorage transactionalStorage;
+
+	@Before
+	public void setUp() {
+		String url = "jdbc:h2:mem:" + getClass().getSimpleName() + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+		routingDataSource = new ReadWriteRoutingDataSource(createDataSource(url), createDataSource(url),
+				Duration.ofHours(1));
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		storage = new PartitionedAppointmentStorage(new JdbcTemplate(dataSource), transactionManager, 2, 0);
+
+		ProxyFactory proxyFactory = new ProxyFactory(storage);
+		proxyFactory.addAdvice(new TransactionInterceptor(transactionManager,
+				new AnnotationTransactionAttributeSource()));
+		transactionalStorage = (AppointmentStorage) proxyFactory.getProxy();
+	}
+
+	private static DataSource createDataSource(String url) {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL(url);
+		return dataSource;
+	}
+
+	@Override
+	protected AppointmentStorage getStorage() {
+		return transactionalStorage;
+	}
+
+	private long create(LocalDateTime time, double price) {
+		return transactionalStorage.createAppointment(newAppointment("Client", time, price));
+	}
+
+	private static Appointment newAppointment(String clientName, LocalDateTime time, double price) {
+		Appointment app = new Appointment();
+
+		app.setClientName(clientName);
+		app.setTime(time);
+		app.setPrice(price);
+		app.setStatus(Appointment.AppStatus.WAIT);
+
+		return app;
+	}
+
+	private boolean isReplicaCurrent(LocalDate day) {
+		try (RoutingScope scope = RoutingScope.days(day, day)) {
+			return routingDataSource.isReplicaCurrent(scope);
+		}
+	}
+
+	private boolean isReplicaCurrent(long id) {
+		try (RoutingScope scope = RoutingScope.id(id)) {
+			return routingDataSource.isReplicaCurrent(scope);
+		}
+	}
+
+	private static List<Long> ids(List<Appointment> apps) {
+		return apps.stream().map(Appointment::getId).collect(Collectors.toList());
+	}
+
+	@Test
+	public void when_idEncoded_then_monthDecoded() {
+		long id = PartitionedAppointmentStorage.encodeId(12345, MONTH);
+
+		assertThat(PartitionedAppointmentStorage.monthOf(id), is(MONTH));
+		assertThat(id >> PartitionedAppointmentStorage.MONTH_BITS, is(12345L));
+	}
+
+	@Test
+	public void when_appointmentsCreated_then_onePartitionPerMonth() {
+		create(MONTH.atDay(1).atTime(9, 0), 10);
+		create(MONTH.atEndOfMonth().atTime(16, 0), 10);
+		create(MONTH.plusMonths(2).atDay(15).atTime(12, 0), 10);
+
+		assertThat(storage.getPartitions(), is(Arrays.asList(MONTH, MONTH.plusMonths(2))));
+	}
+
+	@Test
+	public void when_dateRangeSpansMonths_then_readsAllPartitionsSortedByPrice() {
+		long id1 = create(MONTH.atEndOfMonth().atTime(12, 0), 30);
+		long id2 = create(MONTH.plusMonths(1).atDay(1).atTime(12, 0), 10);
+		long id3 = create(MONTH.plusMonths(2).atDay(1).atTime(12, 0), 20);
+		create(MONTH.plusMonths(2).atDay(2).atTime(12, 0), 5);
+
+		List<Appointment> apps = storage.getAllAppointments(MONTH.atEndOfMonth(), MONTH.plusMonths(2).atDay(1));
+
+		assertThat(ids(apps), is(Arrays.asList(id2, id3, id1)));
+	}
+
+	@Test
+	public void when_dateRangeWithoutPartitions_then_empty() {
+		create(MONTH.atDay(1).atTime(12, 0), 10);
+
+		LocalDate start = MONTH.plusYears(1).atDay(1);
+		assertThat(storage.getAllAppointments(start, start.plusDays(10)).isEmpty(), is(true));
+	}
+
+	@Test
+	public void when_maintain_then_upcomingPartitionsCreated() {
+		storage.maintain(MONTH);
+
+		assertThat(storage.getPartitions(), is(Arrays.asList(MONTH, MONTH.plusMonths(1), MONTH.plusMonths(2))));
+	}
+
+	@Test
+	public void when_partitionsDropped_then_appointmentsOfOlderMonthsGone() {
+		long old = create(MONTH.atDay(10).atTime(12, 0), 10);
+		long kept = create(MONTH.plusMonths(1).atDay(10).atTime(12, 0), 10);
+
+		assertThat(storage.dropPartitionsBefore(MONTH.plusMonths(1)), is(1));
+
+		assertThat(storage.getAppointment(kept).getId(), is(kept));
+		try {
+			storage.getAppointment(old);
+			throw new AssertionError("The appointment of the dropped partition was found");
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void when_appointmentCreated_then_replicaNotCurrentForItsDayAndId() {
+		long id = create(MONTH.atDay(1).atTime(9, 0), 10);
+
+		assertThat(isReplicaCurrent(MONTH.atDay(1)), is(false));
+		assertThat(isReplicaCurrent(id), is(false));
+		assertThat(isReplicaCurrent(MONTH.atDay(2)), is(true));
+		assertThat(isReplicaCurrent(id + 1), is(true));
+	}
+
+	@Test
+	public void when_statusUpdatedByIds_then_replicaNotCurrentForTheIdsAndAllDays() {
+		long other = storage.createAppointment(newAppointment("Client", MONTH.atDay(1).atTime(9, 0), 10));
+		long id = storage.createAppointment(newAppointment("Client", MONTH.atDay(2).atTime(9, 0), 10));
+
+		transactionalStorage.updateAppointmentStatuses(Collections.singletonList(id), Appointment.AppStatus.WAIT,
+				Appointment.AppStatus.PASS);
+
+		assertThat(isReplicaCurrent(id), is(false));
+		assertThat(isReplicaCurrent(MONTH.atDay(1)), is(false));
+		assertThat(isReplicaCurrent(other), is(true));
+	}
+
+	@Test
+	public void when_appointmentsDeletedByDates_then_replicaNotCurrentForTheDates() {
+		storage.createAppointment(newAppointment("Client", MONTH.atDay(1).atTime(9, 0), 10));
+
+		transactionalStorage.deleteAppointments(MONTH.atDay(1), MONTH.atDay(2), Appointment.AppStatus.WAIT);
+
+		assertThat(isReplicaCurrent(MONTH.atDay(2)), is(false));
+		assertThat(isReplicaCurrent(MONTH.atDay(3)), is(true));
+	}
+
+	@Test
+	public void when_appointmentRead_then_replicaCurrent() {
+		long id = storage.createAppointment(newAppointment("Client", MONTH.atDay(1).atTime(9, 0), 10));
+
+		transactionalStorage.getAppointment(id);
+		transactionalStorage.getAllAppointments(MONTH.atDay(1), MONTH.atDay(1));
+
+		assertThat(routingDataSource.isReplicaCurrent(null), is(true));
+	}
+
+	@Test
+	public void when_batchOverMonthsFails_then_noMonthCommitted() {
+		List<Appointment> apps = Arrays.asList(newAppointment("Client", MONTH.atDay(10).atTime(12, 0), 10),
+				newAppointment(String.join("", Collections.nCopies(300, "x")),
+						MONTH.plusMonths(1).atDay(10).atTime(12, 0), 10));
+
+		try {
+			transactionalStorage.createAppointments(apps);
+			throw new AssertionError("The too long client name was inserted");
+		} catch (DataAccessException e) {
+			// expected
+		}
+
+		assertThat(storage.getAllAppointments(MONTH.atDay(1), MONTH.plusMonths(1).atEndOfMonth()).isEmpty(),
+				is(true));
+	}
+}
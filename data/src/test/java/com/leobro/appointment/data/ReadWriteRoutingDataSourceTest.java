@@ -0,0 +1,162 @@
+package com.leobro.appointment.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReadWriteRoutingDataSourceTest {
+
+	private static final LocalDate DAY = LocalDate.of(2030, Month.AUGUST, 20);
+	private static final long ID = 123;
+
+	private final DataSource primary = mock(DataSource.class);
+	private final DataSource replica = mock(DataSource.class);
+	private final Connection primaryConnection = mock(Connection.class);
+	private final Connection replicaConnection = mock(Connection.class);
+
+	@Before
+	public void setUp() throws SQLException {
+		when(primary.getConnection()).thenReturn(primaryConnection);
+		when(replica.getConnection()).thenReturn(replicaConnection);
+	}
+
+	@After
+	public void tearDown() {
+		endTransaction();
+	}
+
+	@Test
+	public void when_readOnlyTransaction_then_replica() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica, Duration.ofHours(1));
+
+		beginTransaction(true);
+		assertThat(dataSource.getConnection(), is(sameInstance(replicaConnection)));
+	}
+
+	@Test
+	public void when_noTransaction_then_primary() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica, Duration.ofHours(1));
+
+		assertThat(dataSource.getConnection(), is(sameInstance(primaryConnection)));
+	}
+
+	@Test
+	public void when_readWithinLagAfterCommit_then_primary() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica, Duration.ofHours(1));
+
+		write(dataSource, RoutingScope.days(DAY, DAY), true);
+
+		assertThat(read(dataSource, RoutingScope.days(DAY, DAY)), is(sameInstance(primaryConnection)));
+	}
+
+	@Test
+	public void when_readOtherDaysWithinLagAfterCommit_then_replica() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica, Duration.ofHours(1));
+
+		write(dataSource, RoutingScope.days(DAY, DAY), true);
+
+		assertThat(read(dataSource, RoutingScope.days(DAY.plusDays(1), DAY.plusDays(2))),
+				is(sameInstance(replicaConnection)));
+		assertThat(read(dataSource, RoutingScope.id(ID)), is(sameInstance(primaryConnection)));
+		assertThat(read(dataSource, null), is(sameInstance(primaryConnection)));
+	}
+
+	@Test
+	public void when_readOtherIdWithinLagAfterCommitOfId_then_replica() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica, Duration.ofHours(1));
+
+		RoutingScope scope = RoutingScope.id(ID);
+		scope.add(ID, DAY.atTime(10, 0));
+		write(dataSource, scope, true);
+
+		assertThat(read(dataSource, RoutingScope.id(ID + 1)), is(sameInstance(replicaConnection)));
+		assertThat(read(dataSource, RoutingScope.days(DAY.plusDays(1), DAY.plusDays(1))),
+				is(sameInstance(replicaConnection)));
+		assertThat(read(dataSource, RoutingScope.id(ID)), is(sameInstance(primaryConnection)));
+		assertThat(read(dataSource, RoutingScope.days(DAY, DAY)), is(sameInstance(primaryConnection)));
+	}
+
+	@Test
+	public void when_readAfterLag_then_replica() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica, Duration.ZERO);
+
+		write(dataSource, RoutingScope.days(DAY, DAY), true);
+
+		assertThat(read(dataSource, RoutingScope.days(DAY, DAY)), is(sameInstance(replicaConnection)));
+	}
+
+	@Test
+	public void when_writeRolledBack_then_replicaCurrent() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica, Duration.ofHours(1));
+
+		write(dataSource, RoutingScope.days(DAY, DAY), false);
+
+		assertThat(dataSource.isReplicaCurrent(null), is(true));
+	}
+
+	@Test
+	public void when_transactionWithoutScopeCommitted_then_replicaCurrent() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica, Duration.ofHours(1));
+
+		write(dataSource, null, true);
+
+		assertThat(dataSource.isReplicaCurrent(null), is(true));
+	}
+
+	private Connection read(DataSource dataSource, RoutingScope scope) throws SQLException {
+		beginTransaction(true);
+		try {
+			return dataSource.getConnection();
+		} finally {
+			if (scope != null) {
+				scope.close();
+			}
+			endTransaction();
+		}
+	}
+
+	private void write(DataSource dataSource, RoutingScope scope, boolean commit) throws SQLException {
+		beginTransaction(false);
+		assertThat(dataSource.getConnection(), is(sameInstance(primaryConnection)));
+		if (scope != null) {
+			scope.close();
+		}
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			if (commit) {
+				synchronization.afterCommit();
+			}
+			synchronization.afterCompletion(commit ? TransactionSynchronization.STATUS_COMMITTED
+					: TransactionSynchronization.STATUS_ROLLED_BACK);
+		}
+		endTransaction();
+	}
+
+	private static void beginTransaction(boolean readOnly) {
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+	}
+
+	private static void endTransaction() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		TransactionSynchronizationManager.setActualTransactionActive(false);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+	}
+}
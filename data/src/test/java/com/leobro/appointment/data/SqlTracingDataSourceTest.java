@@ -0,0 +1,90 @@
+package com.leobro.appointment.data;
+
+import com.leobro.appointment.service.Trace;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SqlTracingDataSourceTest {
+
+	private static final String QUERY = "SELECT id FROM item WHERE id > ?";
+
+	private final List<String> logged = new ArrayList<>();
+
+	private SqlTracingDataSource dataSource;
+
+	@Before
+	public void setUp() throws SQLException {
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:" + getClass().getSimpleName() + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+
+		// every statement is slow for this log
+		SlowQueryLog slowQueryLog = new SlowQueryLog(Duration.ofNanos(1), true) {
+			@Override
+			void log(Connection connection, String sql, Map<Integer, Object> parameters, long rows,
+					 long durationNanos) {
+				logged.add(sql + " " + parameters.values() + " " + rows);
+			}
+		};
+		dataSource = new SqlTracingDataSource(h2, slowQueryLog);
+
+		try (Connection connection = h2.getConnection(); Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE item (id INT PRIMARY KEY)");
+			statement.execute("INSERT INTO item VALUES (1), (2), (3)");
+		}
+	}
+
+	@Test
+	public void when_queryRead_then_slowQueryLoggedWithParametersAndRows() throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+			 PreparedStatement statement = connection.prepareStatement(QUERY)) {
+			statement.setInt(1, 1);
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next()) {
+					result.getInt(1);
+				}
+			}
+		}
+
+		assertThat(logged.size(), is(1));
+		assertThat(logged.get(0), is(QUERY + " [1] 2"));
+	}
+
+	@Test
+	public void when_updateExecuted_then_slowQueryLoggedWithChangedRows() throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+			 Statement statement = connection.createStatement()) {
+			statement.executeUpdate("DELETE FROM item WHERE id < 3");
+		}
+
+		assertThat(logged.get(0), is("DELETE FROM item WHERE id < 3 [] 2"));
+	}
+
+	@Test
+	public void when_queryInTrace_then_spanRecorded() throws SQLException {
+		Trace trace = Trace.create(null);
+
+		try (Trace.Span ignored = trace.attach();
+			 Connection connection = dataSource.getConnection();
+			 PreparedStatement statement = connection.prepareStatement(QUERY)) {
+			statement.setInt(1, 0);
+			statement.executeQuery().close();
+		}
+
+		assertThat(trace.format(), containsString("sql " + QUERY));
+	}
+}
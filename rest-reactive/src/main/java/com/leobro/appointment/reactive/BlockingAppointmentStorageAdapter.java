@@ -0,0 +1,102 @@
+package com.leobro.appointment.reactive;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.LocalDate;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Implements {@link ReactiveAppointmentStorage} on top of the blocking {@link AppointmentStorage}. The blocking
+ * calls run on the storage scheduler, so the event loop threads never wait for the data storage.
+ * <p>A date range is read by a single {@link AppointmentStorage#forEachAppointment} cursor. The cursor passes the
+ * next appointment only when the subscriber has requested it, and at most {@code bufferSize} appointments are read
+ * ahead, so a slow client makes the server hold neither the whole range nor an unbounded buffer. While it waits
+ * for the client, the cursor keeps its storage thread and its database connection.
+ */
+@Repository
+class BlockingAppointmentStorageAdapter implements ReactiveAppointmentStorage {
+
+	private final AppointmentStorage storage;
+	private final Scheduler scheduler;
+	private final int bufferSize;
+
+	@Autowired
+	BlockingAppointmentStorageAdapter(AppointmentStorage storage,
+									  @Qualifier(ReactiveConfiguration.STORAGE_SCHEDULER) Scheduler scheduler,
+									  @Value("${appointment.reactive.buffer-size:500}") int bufferSize) {
+		this.storage = storage;
+		this.scheduler = scheduler;
+		this.bufferSize = bufferSize;
+	}
+
+	@Override
+	public Flux<Appointment> getAllAppointments(LocalDate startDate, LocalDate endDate) {
+		return Flux.<Appointment>create(sink -> {
+			Demand demand = new Demand();
+			sink.onRequest(demand::add);
+			sink.onDispose(demand::cancel);
+			try {
+				storage.forEachAppointment(startDate, endDate, app -> {
+					demand.take();
+					sink.next(app);
+				});
+				sink.complete();
+			} catch (CancellationException e) {
+				// the subscriber is gone, the exception has closed the cursor
+			} catch (RuntimeException e) {
+				sink.error(e);
+			}
+		})
+				// the requests must not wait for the storage thread, which is blocked by the cursor
+				.subscribeOn(scheduler, false)
+				.limitRate(bufferSize);
+	}
+
+	/**
+	 * The number of appointments requested by the subscriber and not passed yet.
+	 */
+	private static class Demand {
+
+		private long requested;
+		private boolean cancelled;
+
+		synchronized void add(long n) {
+			requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+			notifyAll();
+		}
+
+		synchronized void cancel() {
+			cancelled = true;
+			notifyAll();
+		}
+
+		/**
+		 * Waits until an appointment is requested and counts it as passed.
+		 *
+		 * @throws CancellationException if the subscriber has cancelled or the thread is interrupted.
+		 */
+		synchronized void take() {
+			try {
+				while (requested == 0 && !cancelled) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				cancelled = true;
+			}
+			if (cancelled) {
+				throw new CancellationException("The subscriber has cancelled");
+			}
+			if (requested != Long.MAX_VALUE) {
+				requested--;
+			}
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package com.leobro.appointment.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication(scanBasePackages = "com.leobro.appointment")
+public class ReactiveAppointmentApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveAppointmentApplication.class, args);
+	}
+}
@@ -0,0 +1,195 @@
+package com.leobro.appointment.reactive;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentService;
+import com.leobro.appointment.service.ServiceResponse;
+import com.leobro.appointment.service.StatusTransition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Controller of the reactive REST Web service. Serves the same endpoints as the controller of the {@code rest}
+ * module, but on the few event loop threads of WebFlux instead of a thread per request.
+ * <p>The changes and the single results are made by the asynchronous operations of {@link AppointmentService}.
+ * The appointments of a date range are read from the {@link ReactiveAppointmentStorage} as fast as the client
+ * receives them.
+ */
+@RestController
+public class ReactiveAppointmentController {
+
+	/**
+	 * Newline delimited JSON, each line of the response body is a separate JSON object.
+	 */
+	static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+	static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+
+	private final AppointmentService service;
+	private final ReactiveAppointmentStorage storage;
+
+	@Autowired
+	public ReactiveAppointmentController(AppointmentService service, ReactiveAppointmentStorage storage) {
+		this.service = service;
+		this.storage = storage;
+	}
+
+	private static Mono<ResponseEntity<?>> respond(CompletableFuture<ServiceResponse> response) {
+		return Mono.fromFuture(response)
+				.map(ResponseFactory::createResponse);
+	}
+
+	/**
+	 * Creates a new appointment according to the request body content.
+	 *
+	 * @return The created appointment ID.
+	 */
+	@PostMapping("/appointments")
+	public Mono<ResponseEntity<?>> createAppointment(@Valid @RequestBody Appointment app, ServerHttpRequest request) {
+		UriComponentsBuilder requestUri = UriComponentsBuilder.fromHttpRequest(request);
+		return Mono.fromFuture(service.createAppointmentAsync(app))
+				.map(response -> ResponseFactory.createResponse(response, requestUri));
+	}
+
+	/**
+	 * Creates a set of new appointments with random client names for a random time in the given date interval.
+	 *
+	 * @param quantity The number of appointments to randomly create.
+	 * @param endDate  The end date of the date interval starting from the current date.
+	 * @return The number of actually created appointments.
+	 */
+	@PostMapping("/schedule")
+	public Mono<ResponseEntity<?>> createRandomAppointments(@RequestParam("quantity") int quantity,
+															@RequestParam("enddate")
+															@DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+																	LocalDate endDate) {
+		return respond(service.createRandomAppointmentsAsync(quantity, endDate));
+	}
+
+	/**
+	 * Retrieves the appointment with the passed ID.
+	 *
+	 * @param id ID of the appointment.
+	 * @return The appointment with the requested ID.
+	 */
+	@GetMapping("/appointments/{id}")
+	public Mono<ResponseEntity<?>> getAppointment(@PathVariable("id") long id) {
+		return respond(service.getAppointmentAsync(id));
+	}
+
+	/**
+	 * Retrieves all appointments that are scheduled between the passed date range sorted by their price. If the
+	 * client accepts newline delimited JSON, the appointments are written one per line while they are read,
+	 * otherwise they are written as a JSON array.
+	 *
+	 * @param startDate The start date of the date interval.
+	 * @param endDate   The end date of the date interval.
+	 * @return All appointments within the date interval sorted by the price.
+	 */
+	@GetMapping(value = "/appointments", produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+	public Mono<ResponseEntity<?>> getAllAppointments(@RequestParam("startdate")
+													  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+													  @RequestParam("enddate")
+													  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+		ServiceResponse check = service.checkDateRange(startDate, endDate);
+		if (check.getResult() != ServiceResponse.ResultType.OK) {
+			return Mono.just(ResponseFactory.createResponse(check));
+		}
+		return Mono.just(ResponseEntity.ok()
+				.body(storage.getAllAppointments(startDate, endDate)));
+	}
+
+	/**
+	 * Retrieves one page of the appointments that are scheduled between the passed date range.
+	 *
+	 * @param startDate The start date of the date interval.
+	 * @param endDate   The end date of the date interval.
+	 * @param limit     The maximal number of appointments on the page.
+	 * @param cursor    The cursor returned with the previous page; omitted for the first page.
+	 * @return The appointments of the page sorted by the price together with the cursor of the next page.
+	 */
+	@GetMapping(value = "/appointments", params = "limit")
+	public Mono<ResponseEntity<?>> getAppointmentsPage(@RequestParam("startdate")
+													   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+													   @RequestParam("enddate")
+													   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+													   @RequestParam("limit") int limit,
+													   @RequestParam(value = "cursor", required = false) String cursor) {
+		return respond(service.getAppointmentsPageAsync(startDate, endDate, cursor, limit));
+	}
+
+	/**
+	 * Retrieves the free slots for new appointments between the passed date range.
+	 *
+	 * @param startDate The start date of the date interval.
+	 * @param endDate   The end date of the date interval.
+	 * @return The start times of the free slots in the order of time.
+	 */
+	@GetMapping("/availability")
+	public Mono<ResponseEntity<?>> getAvailability(@RequestParam("startdate")
+												   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+												   @RequestParam("enddate")
+												   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+		return respond(service.getAvailabilityAsync(startDate, endDate));
+	}
+
+	/**
+	 * Updates the status of the existing appointment.
+	 *
+	 * @param id     ID of the appointment.
+	 * @param status new status for the appointment.
+	 * @return An empty body.
+	 */
+	@PutMapping("/appointments/{id}")
+	public Mono<ResponseEntity<?>> updateAppointmentStatus(@PathVariable("id") long id,
+														   @RequestBody Appointment.AppStatus status) {
+		return respond(service.updateAppointmentStatusAsync(id, status));
+	}
+
+	/**
+	 * Moves many appointments from one status to another at once.
+	 *
+	 * @param transition IDs or the date interval of the appointments, the status they must have and the new status.
+	 * @return The number of changed appointments.
+	 */
+	@PutMapping("/appointments/status")
+	public Mono<ResponseEntity<?>> updateAppointmentStatuses(@Valid @RequestBody StatusTransition transition) {
+		return respond(service.updateAppointmentStatusesAsync(transition));
+	}
+
+	/**
+	 * Deletes the appointment with the passed ID.
+	 *
+	 * @param id ID of the appointment to be deleted.
+	 * @return The deleted appointment.
+	 */
+	@DeleteMapping("/appointments/{id}")
+	public Mono<ResponseEntity<?>> deleteAppointment(@PathVariable("id") long id) {
+		return respond(service.deleteAppointmentAsync(id));
+	}
+
+	/**
+	 * Deletes all appointments with the given status that are scheduled between the passed date range.
+	 *
+	 * @param startDate The start date of the date interval.
+	 * @param endDate   The end date of the date interval.
+	 * @param status    The status of the appointments to be deleted.
+	 * @return The number of deleted appointments.
+	 */
+	@DeleteMapping("/appointments")
+	public Mono<ResponseEntity<?>> deleteAppointments(@RequestParam("startdate")
+													  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+													  @RequestParam("enddate")
+													  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+													  @RequestParam("status") Appointment.AppStatus status) {
+		return respond(service.deleteAppointmentsAsync(startDate, endDate, status));
+	}
+}
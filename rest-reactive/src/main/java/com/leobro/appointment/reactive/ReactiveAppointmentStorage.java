@@ -0,0 +1,23 @@
+package com.leobro.appointment.reactive;
+
+import com.leobro.appointment.service.Appointment;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+/**
+ * Reactive counterpart of the date range query of {@link com.leobro.appointment.service.AppointmentStorage}.
+ * Nothing is read from the data storage until the subscriber requests it.
+ */
+public interface ReactiveAppointmentStorage {
+
+	/**
+	 * Retrieves the appointments scheduled between the passed dates sorted by their price. The appointments are
+	 * read only as fast as the subscriber consumes them.
+	 *
+	 * @param startDate start date of the date interval,
+	 * @param endDate   end date of the date interval, inclusive.
+	 * @return The appointments sorted by price and ID.
+	 */
+	Flux<Appointment> getAllAppointments(LocalDate startDate, LocalDate endDate);
+}
@@ -0,0 +1,52 @@
+package com.leobro.appointment.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Configures WebFlux and the scheduler of the blocking data storage calls.
+ */
+@Configuration
+class ReactiveConfiguration {
+
+	static final String STORAGE_SCHEDULER = "storageScheduler";
+
+	/**
+	 * Runs the blocking data storage calls on the same bounded executor as the asynchronous service operations,
+	 * so that together they never need more database connections than there are threads.
+	 */
+	@Bean(STORAGE_SCHEDULER)
+	Scheduler storageScheduler(@Qualifier("storageExecutor") Executor storageExecutor) {
+		return Schedulers.fromExecutor(storageExecutor);
+	}
+
+	/**
+	 * Writes a {@code Flux} as newline delimited JSON element by element. WebFlux of this version knows only
+	 * {@code application/stream+json} as a streaming JSON type. Ordered after the customizer of Spring Boot,
+	 * which sets the default JSON encoder.
+	 */
+	@Bean
+	@Order(1)
+	CodecCustomizer ndjsonCodecCustomizer(ObjectMapper mapper) {
+		return configurer -> {
+			Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(mapper,
+					MediaType.APPLICATION_JSON, new MediaType("application", "*+json"),
+					ReactiveAppointmentController.APPLICATION_NDJSON);
+			encoder.setStreamingMediaTypes(Arrays.asList(MediaType.APPLICATION_STREAM_JSON,
+					ReactiveAppointmentController.APPLICATION_NDJSON));
+
+			configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+		};
+	}
+}
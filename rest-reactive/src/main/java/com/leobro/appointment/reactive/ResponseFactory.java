@@ -0,0 +1,75 @@
+package com.leobro.appointment.reactive;
+
+import com.leobro.appointment.service.ServiceResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+
+/**
+ * Creates different kinds of Web service responses including the HTTP status and the payload.
+ */
+class ResponseFactory {
+
+	/**
+	 * Creates the {@link ResponseEntity} with a status corresponding to the result of the request, which doesn't
+	 * create a resource.
+	 *
+	 * @param serviceResponse response from the internal service with different result types.
+	 * @return The response with appropriate HTTP status and the body made of the internal service
+	 * response's payload.
+	 */
+	static ResponseEntity<?> createResponse(ServiceResponse serviceResponse) {
+		return createResponse(serviceResponse, null);
+	}
+
+	/**
+	 * Creates the {@link ResponseEntity} with a status corresponding to the result of the request.
+	 *
+	 * @param serviceResponse response from the internal service with different result types.
+	 * @param requestUri      the URI of the request, which the location of a created resource is built from.
+	 * @return The response with appropriate HTTP status and the body made of the internal service
+	 * response's payload.
+	 */
+	static ResponseEntity<?> createResponse(ServiceResponse serviceResponse, UriComponentsBuilder requestUri) {
+		Object payload = serviceResponse.getPayload();
+
+		switch (serviceResponse.getResult()) {
+			case OK:
+				return ResponseEntity.ok()
+						.body(payload);
+			case CREATED:
+				return ResponseEntity.created(
+						getLocationUri(requestUri, (Long) payload))
+						.body(payload);
+			default:
+				return ResponseEntity.status(getErrorStatus(serviceResponse))
+						.body(payload);
+		}
+	}
+
+	private static HttpStatus getErrorStatus(ServiceResponse serviceResponse) {
+		switch (serviceResponse.getResult()) {
+			case ERROR:
+				return HttpStatus.BAD_REQUEST;
+			case NOT_FOUND:
+				return HttpStatus.NOT_FOUND;
+			case CONFLICT:
+				return HttpStatus.CONFLICT;
+			case PRECONDITION_FAILED:
+				return HttpStatus.PRECONDITION_FAILED;
+			case UNAVAILABLE:
+				return HttpStatus.SERVICE_UNAVAILABLE;
+			default:
+				return HttpStatus.INTERNAL_SERVER_ERROR;
+		}
+	}
+
+	private static URI getLocationUri(UriComponentsBuilder requestUri, Long id) {
+		return requestUri
+				.path("/{id}")
+				.buildAndExpand(id)
+				.toUri();
+	}
+}
@@ -0,0 +1,105 @@
+package com.leobro.appointment.reactive;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentStorage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BlockingAppointmentStorageAdapterTest {
+
+	private static final LocalDate START_DATE = LocalDate.of(2030, Month.AUGUST, 20);
+	private static final LocalDate END_DATE = START_DATE.plusDays(1);
+	private static final int BUFFER_SIZE = 2;
+	private static final int APPOINTMENTS = 10;
+
+	private AppointmentStorage storage;
+	private Scheduler scheduler;
+	private BlockingAppointmentStorageAdapter adapter;
+	private AtomicInteger passed;
+	private CountDownLatch cursorClosed;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		storage = Mockito.mock(AppointmentStorage.class);
+		scheduler = Schedulers.newSingle("storage");
+		adapter = new BlockingAppointmentStorageAdapter(storage, scheduler, BUFFER_SIZE);
+		passed = new AtomicInteger();
+		cursorClosed = new CountDownLatch(1);
+
+		Mockito.doAnswer(invocation -> {
+			Consumer<Appointment> consumer = invocation.getArgument(2);
+			try {
+				for (int id = 1; id <= APPOINTMENTS; id++) {
+					consumer.accept(createAppointment(id, id * 10));
+					passed.incrementAndGet();
+				}
+			} finally {
+				cursorClosed.countDown();
+			}
+			return null;
+		}).when(storage).forEachAppointment(Mockito.eq(START_DATE), Mockito.eq(END_DATE), Mockito.any(Consumer.class));
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.dispose();
+	}
+
+	private static Appointment createAppointment(long id, double price) {
+		Appointment app = new Appointment();
+
+		app.setId(id);
+		app.setPrice(price);
+
+		return app;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void when_getAllAppointments_then_passesAllFromSingleCursor() {
+		StepVerifier.create(adapter.getAllAppointments(START_DATE, END_DATE).map(Appointment::getId))
+				.expectNext(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L)
+				.verifyComplete();
+
+		Mockito.verify(storage, Mockito.times(1)).forEachAppointment(Mockito.any(LocalDate.class),
+				Mockito.any(LocalDate.class), Mockito.any(Consumer.class));
+	}
+
+	@Test
+	public void when_getAllAppointmentsAndCancelled_then_readsOnlyBufferAheadAndClosesCursor()
+			throws InterruptedException {
+		StepVerifier.create(adapter.getAllAppointments(START_DATE, END_DATE), 1)
+				.expectNextCount(1)
+				.thenCancel()
+				.verify();
+
+		assertThat(cursorClosed.await(5, TimeUnit.SECONDS), is(true));
+		assertThat(passed.get() <= BUFFER_SIZE, is(true));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void when_getAllAppointmentsAndStorageFails_then_error() {
+		Mockito.doThrow(new IllegalStateException("Storage failed")).when(storage).forEachAppointment(
+				Mockito.any(LocalDate.class), Mockito.any(LocalDate.class), Mockito.any(Consumer.class));
+
+		StepVerifier.create(adapter.getAllAppointments(START_DATE, END_DATE))
+				.verifyError(IllegalStateException.class);
+	}
+}
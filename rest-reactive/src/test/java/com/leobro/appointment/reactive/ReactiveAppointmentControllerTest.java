@@ -0,0 +1,145 @@
+package com.leobro.appointment.reactive;
+
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentService;
+import com.leobro.appointment.service.ServiceResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+public class ReactiveAppointmentControllerTest {
+
+	private static final String APPOINTMENTS_URL = "/appointments";
+	private static final String TOMORROW = LocalDate.now().plusDays(1).toString();
+	private static final String RANGE_QUERY = "?startdate=" + TOMORROW + "&enddate=" + TOMORROW;
+	private static final String APPOINTMENT_JSON = "{\n" +
+			"  \"clientName\": \"Silvester Stallone\",\n" +
+			"  \"time\": \"" + TOMORROW + "T10:00\",\n" +
+			"  \"price\": 9.99,\n" +
+			"  \"status\": \"WAIT\"\n" +
+			"}";
+
+	private static final long ID = 123;
+	private static final String APP_CLIENT_NAME = "Julia Roberts";
+	private static final String MESSAGE_CONFLICT = "Slot taken";
+	private static final String MESSAGE_VALIDATION_ERROR = "Validation error";
+
+	@MockBean
+	private AppointmentService service;
+
+	@MockBean
+	private ReactiveAppointmentStorage storage;
+
+	@Autowired
+	private WebTestClient client;
+
+	private Appointment appointment;
+
+	@Before
+	public void setUp() {
+		appointment = new Appointment();
+
+		appointment.setId(ID);
+		appointment.setClientName(APP_CLIENT_NAME);
+		appointment.setTime(LocalDateTime.now().plusDays(1));
+		appointment.setPrice(30);
+		appointment.setStatus(Appointment.AppStatus.WAIT);
+	}
+
+	@Test
+	public void when_createAppointment_then_statusCreatedAndLocation() {
+		given(service.createAppointmentAsync(any(Appointment.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.CREATED, ID)));
+		client.post().uri(APPOINTMENTS_URL)
+				.contentType(MediaType.APPLICATION_JSON)
+				.syncBody(APPOINTMENT_JSON)
+				.exchange()
+				.expectStatus().isCreated()
+				.expectHeader().value("Location", containsString(APPOINTMENTS_URL + "/" + ID))
+				.expectBody(Long.class).isEqualTo(ID);
+	}
+
+	@Test
+	public void when_createAppointment_andSlotTaken_then_statusConflict() {
+		given(service.createAppointmentAsync(any(Appointment.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.CONFLICT, MESSAGE_CONFLICT)));
+		client.post().uri(APPOINTMENTS_URL)
+				.contentType(MediaType.APPLICATION_JSON)
+				.syncBody(APPOINTMENT_JSON)
+				.exchange()
+				.expectStatus().isEqualTo(409)
+				.expectBody(String.class).isEqualTo(MESSAGE_CONFLICT);
+	}
+
+	@Test
+	public void when_getAllAppointmentsAsNdjson_then_oneLinePerAppointment() {
+		given(service.checkDateRange(any(LocalDate.class), any(LocalDate.class)))
+				.willReturn(new ServiceResponse(ServiceResponse.ResultType.OK, null));
+		given(storage.getAllAppointments(any(LocalDate.class), any(LocalDate.class)))
+				.willReturn(Flux.just(appointment, appointment));
+
+		String body = client.get().uri(APPOINTMENTS_URL + RANGE_QUERY)
+				.accept(ReactiveAppointmentController.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody(String.class).returnResult().getResponseBody();
+
+		String[] lines = body.split("\n");
+		assertThat(lines.length, is(2));
+		assertThat(lines[0], containsString("\"clientName\":\"" + APP_CLIENT_NAME + "\""));
+	}
+
+	@Test
+	public void when_getAllAppointmentsAsJson_then_array() {
+		given(service.checkDateRange(any(LocalDate.class), any(LocalDate.class)))
+				.willReturn(new ServiceResponse(ServiceResponse.ResultType.OK, null));
+		given(storage.getAllAppointments(any(LocalDate.class), any(LocalDate.class)))
+				.willReturn(Flux.just(appointment));
+
+		client.get().uri(APPOINTMENTS_URL + RANGE_QUERY)
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$[0].id").isEqualTo((int) ID)
+				.jsonPath("$[0].clientName").isEqualTo(APP_CLIENT_NAME);
+	}
+
+	@Test
+	public void when_getAllAppointments_andValidationError_then_statusBadRequest() {
+		given(service.checkDateRange(any(LocalDate.class), any(LocalDate.class)))
+				.willReturn(new ServiceResponse(
+						ServiceResponse.ResultType.ERROR, Collections.singletonList(MESSAGE_VALIDATION_ERROR)));
+
+		client.get().uri(APPOINTMENTS_URL + RANGE_QUERY)
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isBadRequest()
+				.expectBody()
+				.jsonPath("$[0]").isEqualTo(MESSAGE_VALIDATION_ERROR);
+	}
+}
@@ -1,29 +1,52 @@
 package com.leobro.appointment.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.leobro.appointment.service.Appointment;
 import com.leobro.appointment.service.AppointmentService;
+import com.leobro.appointment.service.ServiceResponse;
+import com.leobro.appointment.service.StatusTransition;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.validation.Valid;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller of the REST Web service. This is the first class hit by the client's request.
  * It returns results as JSON or XML string depending on the Accept HTTP header of the request.
+ * <p>The requests are handled asynchronously: the service works on its own threads, and the thread of the servlet
+ * container is released until the result is ready.
+ * <p>The single appointments and the appointments of a date range are returned with entity tags, so that a client
+ * polling for changes gets the status 304 without the body, while nothing has changed. The tag of a date range is
+ * the modification watermark of the range, which is checked before the appointments are read.
  */
 @RestController
 @Validated
 public class AppointmentController {
 
+	/**
+	 * Newline delimited JSON, each line of the response body is a separate JSON object.
+	 */
+	static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
 	private final AppointmentService service;
+	private final ObjectMapper mapper;
 
 	@Autowired
-	public AppointmentController(AppointmentService service) {
+	public AppointmentController(AppointmentService service, ObjectMapper mapper) {
 		this.service = service;
+		this.mapper = mapper;
 	}
 
 	/**
@@ -32,9 +55,11 @@ public class AppointmentController {
 	 * @return The created appointment ID.
 	 */
 	@PostMapping("/appointments")
-	public ResponseEntity<?> createAppointment(@Valid @RequestBody Appointment app) {
-		return ResponseFactory.createResponse(
-				service.createAppointment(app));
+	public CompletableFuture<ResponseEntity<?>> createAppointment(@Valid @RequestBody Appointment app) {
+		// the location is built from the request, which is not available on the storage thread
+		UriComponentsBuilder requestUri = ServletUriComponentsBuilder.fromCurrentRequest();
+		return service.createAppointmentAsync(app)
+				.thenApply(response -> ResponseFactory.createResponse(response, requestUri));
 	}
 
 	/**
@@ -47,23 +72,23 @@ public class AppointmentController {
 	 * @return The number of actually created appointments.
 	 */
 	@PostMapping("/schedule")
-	public ResponseEntity<?> createRandomAppointments(@RequestParam("quantity") int quantity,
+	public CompletableFuture<ResponseEntity<?>> createRandomAppointments(@RequestParam("quantity") int quantity,
 													  @RequestParam("enddate")
 													  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-		return ResponseFactory.createResponse(
-				service.createRandomAppointments(quantity, endDate));
+		return service.createRandomAppointmentsAsync(quantity, endDate)
+				.thenApply(ResponseFactory::createResponse);
 	}
 
 	/**
 	 * Retrieves the appointment with the passed ID.
 	 *
 	 * @param id ID of the appointment.
-	 * @return The appointment with the requested ID.
+	 * @return The appointment with the requested ID and its strong entity tag.
 	 */
 	@GetMapping("/appointments/{id}")
-	public ResponseEntity<?> getAppointment(@PathVariable("id") long id) {
-		return ResponseFactory.createResponse(
-				service.getAppointment(id));
+	public CompletableFuture<ResponseEntity<?>> getAppointment(@PathVariable("id") long id) {
+		return service.getAppointmentAsync(id)
+				.thenApply(response -> ResponseFactory.createAppointmentResponse(response, service.getEpoch()));
 	}
 
 	/**
@@ -72,29 +97,146 @@ public class AppointmentController {
 	 *
 	 * @param startDate The start date of the date interval.
 	 * @param endDate   The end date of the date interval.
-	 * @return All appointments within the date interval sorted by the price.
+	 * @param request   The request with the entity tag known to the client.
+	 * @return All appointments within the date interval sorted by the price and the weak entity tag of the date
+	 * interval, or the status 304 without the body, if the tag known to the client is still current.
 	 */
 	@GetMapping("/appointments")
-	public ResponseEntity<?> getAllAppointments(@RequestParam("startdate")
+	public CompletableFuture<ResponseEntity<?>> getAllAppointments(@RequestParam("startdate")
 												@DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
 												@RequestParam("enddate")
-												@DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-		return ResponseFactory.createResponse(
-				service.getAllAppointments(startDate, endDate));
+												@DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+												WebRequest request) {
+		String eTag = ResponseFactory.createRangeETag(service.getWatermark(startDate, endDate));
+		if (request.checkNotModified(eTag)) {
+			return notModified(eTag);
+		}
+		return service.getAllAppointmentsAsync(startDate, endDate)
+				.thenApply(response -> ResponseFactory.createResponse(response, eTag));
+	}
+
+	private static CompletableFuture<ResponseEntity<?>> notModified(String eTag) {
+		return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+				.eTag(eTag)
+				.build());
 	}
 
 	/**
-	 * Updates the status of the existing appointment.
+	 * Retrieves one page of the appointments that are scheduled between the passed date range. Chosen instead of
+	 * {@link #getAllAppointments(LocalDate, LocalDate, WebRequest)}, when the request has the limit parameter.
+	 * The page has the entity tag of the whole date interval.
 	 *
-	 * @param id     ID of the appointment.
-	 * @param status new status for the appointment.
-	 * @return An empty body.
+	 * @param startDate The start date of the date interval.
+	 * @param endDate   The end date of the date interval.
+	 * @param limit     The maximal number of appointments on the page.
+	 * @param cursor    The cursor returned with the previous page; omitted for the first page.
+	 * @param request   The request with the entity tag known to the client.
+	 * @return The appointments of the page sorted by the price together with the cursor of the next page, or
+	 * the status 304 without the body, if the tag known to the client is still current.
+	 */
+	@GetMapping(value = "/appointments", params = "limit")
+	public CompletableFuture<ResponseEntity<?>> getAppointmentsPage(@RequestParam("startdate")
+												 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+												 @RequestParam("enddate")
+												 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+												 @RequestParam("limit") int limit,
+												 @RequestParam(value = "cursor", required = false) String cursor,
+												 WebRequest request) {
+		String eTag = ResponseFactory.createRangeETag(service.getWatermark(startDate, endDate));
+		if (request.checkNotModified(eTag)) {
+			return notModified(eTag);
+		}
+		return service.getAppointmentsPageAsync(startDate, endDate, cursor, limit)
+				.thenApply(response -> ResponseFactory.createResponse(response, eTag));
+	}
+
+	/**
+	 * Same as {@link #getAllAppointments(LocalDate, LocalDate, WebRequest)}, but chosen when the client accepts newline
+	 * delimited JSON. The appointments are written to the response one by one while they are read from
+	 * the database, so the memory consumption doesn't depend on the size of the date interval.
+	 *
+	 * @param startDate The start date of the date interval.
+	 * @param endDate   The end date of the date interval.
+	 * @return All appointments within the date interval sorted by the price, one JSON object per line.
+	 */
+	@GetMapping(value = "/appointments", produces = APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamAllAppointments(
+			@RequestParam("startdate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+			@RequestParam("enddate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+		return ResponseFactory.createStreamingResponse(
+				service.streamAllAppointments(startDate, endDate), mapper);
+	}
+
+	/**
+	 * Retrieves the free slots for new appointments between the passed date range.
+	 *
+	 * @param startDate The start date of the date interval.
+	 * @param endDate   The end date of the date interval.
+	 * @return The start times of the free slots in the order of time.
+	 */
+	@GetMapping("/availability")
+	public CompletableFuture<ResponseEntity<?>> getAvailability(@RequestParam("startdate")
+											 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+											 @RequestParam("enddate")
+											 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+		return service.getAvailabilityAsync(startDate, endDate)
+				.thenApply(ResponseFactory::createResponse);
+	}
+
+	/**
+	 * Updates the status of the existing appointment. With the If-Match header holding the entity tag returned by
+	 * {@link #getAppointment(long)}, the status is updated only if the appointment has not changed since then.
+	 * With a list of tags, the status is updated if the appointment has the version of any of them.
+	 *
+	 * @param id      ID of the appointment.
+	 * @param status  new status for the appointment.
+	 * @param ifMatch the entity tags of the appointment the update is based on; omitted or {@code *} for
+	 *                an unconditional update.
+	 * @return An empty body, or the status 412, if the appointment has changed.
 	 */
 	@PutMapping("/appointments/{id}")
-	public ResponseEntity<?> updateAppointmentStatus(@PathVariable("id") long id,
-													 @RequestBody Appointment.AppStatus status) {
-		return ResponseFactory.createResponse(
-				service.updateAppointmentStatus(id, status));
+	public CompletableFuture<ResponseEntity<?>> updateAppointmentStatus(@PathVariable("id") long id,
+													 @RequestBody Appointment.AppStatus status,
+													 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+															 String ifMatch) {
+		if (ifMatch == null || ifMatch.trim().equals("*")) {
+			return service.updateAppointmentStatusAsync(id, status)
+					.thenApply(ResponseFactory::createResponse);
+		}
+
+		// a weak, foreign or outdated tag never matches
+		List<Long> versions = ResponseFactory.parseVersions(ifMatch, service.getEpoch());
+		if (versions.isEmpty()) {
+			return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build());
+		}
+		return updateAppointmentStatus(id, status, versions, 0)
+				.thenApply(ResponseFactory::createResponse);
+	}
+
+	/**
+	 * Tries the conditional update with the versions one by one, until one of them is the current version. Every
+	 * try is atomic, so the status is changed only if the appointment has one of the versions at that moment.
+	 */
+	private CompletableFuture<ServiceResponse> updateAppointmentStatus(long id, Appointment.AppStatus status,
+																	   List<Long> versions, int index) {
+		return service.updateAppointmentStatusAsync(id, status, versions.get(index))
+				.thenCompose(response -> response.getResult() == ServiceResponse.ResultType.PRECONDITION_FAILED
+						&& index + 1 < versions.size()
+						? updateAppointmentStatus(id, status, versions, index + 1)
+						: CompletableFuture.completedFuture(response));
+	}
+
+	/**
+	 * Moves many appointments from one status to another at once. The appointments are selected either by the list
+	 * of IDs or by the date interval.
+	 *
+	 * @param transition IDs or the date interval of the appointments, the status they must have and the new status.
+	 * @return The number of changed appointments.
+	 */
+	@PutMapping("/appointments/status")
+	public CompletableFuture<ResponseEntity<?>> updateAppointmentStatuses(@Valid @RequestBody StatusTransition transition) {
+		return service.updateAppointmentStatusesAsync(transition)
+				.thenApply(ResponseFactory::createResponse);
 	}
 
 	/**
@@ -104,8 +246,26 @@ public class AppointmentController {
 	 * @return The deleted appointment.
 	 */
 	@DeleteMapping("/appointments/{id}")
-	public ResponseEntity<?> deleteAppointment(@PathVariable("id") long id) {
-		return ResponseFactory.createResponse(
-				service.deleteAppointment(id));
+	public CompletableFuture<ResponseEntity<?>> deleteAppointment(@PathVariable("id") long id) {
+		return service.deleteAppointmentAsync(id)
+				.thenApply(ResponseFactory::createResponse);
+	}
+
+	/**
+	 * Deletes all appointments with the given status that are scheduled between the passed date range.
+	 *
+	 * @param startDate The start date of the date interval.
+	 * @param endDate   The end date of the date interval.
+	 * @param status    The status of the appointments to be deleted.
+	 * @return The number of deleted appointments.
+	 */
+	@DeleteMapping("/appointments")
+	public CompletableFuture<ResponseEntity<?>> deleteAppointments(@RequestParam("startdate")
+												@DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+												@RequestParam("enddate")
+												@DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+												@RequestParam("status") Appointment.AppStatus status) {
+		return service.deleteAppointmentsAsync(startDate, endDate, status)
+				.thenApply(ResponseFactory::createResponse);
 	}
 }
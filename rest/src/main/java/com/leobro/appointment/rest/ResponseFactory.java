@@ -1,17 +1,41 @@
 package com.leobro.appointment.rest;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentService;
+import com.leobro.appointment.service.AppointmentStream;
 import com.leobro.appointment.service.ServiceResponse;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Creates different kinds of Web service responses including the HTTP status and the payload.
  */
 class ResponseFactory {
 
+	private static final MediaType NDJSON = MediaType.valueOf(AppointmentController.APPLICATION_NDJSON_VALUE);
+	private static final Pattern ENTITY_TAG = Pattern.compile("(W/)?\"([^\"]*)\"");
+
 	/**
 	 * Creates the {@link ResponseEntity} with a status corresponding to the result of the request.
 	 *
@@ -20,6 +44,100 @@ class ResponseFactory {
 	 * response's payload.
 	 */
 	static ResponseEntity<?> createResponse(ServiceResponse serviceResponse) {
+		return createResponse(serviceResponse, ServletUriComponentsBuilder::fromCurrentRequest);
+	}
+
+	/**
+	 * Same as {@link #createResponse(ServiceResponse)}, but the location of a created resource is built from
+	 * the passed request URI instead of the current request. Used, when the response is created outside
+	 * the request thread.
+	 *
+	 * @param serviceResponse response from the internal service with different result types.
+	 * @param requestUri      the URI of the request.
+	 * @return The response with appropriate HTTP status and the body made of the internal service
+	 * response's payload.
+	 */
+	static ResponseEntity<?> createResponse(ServiceResponse serviceResponse, UriComponentsBuilder requestUri) {
+		return createResponse(serviceResponse, () -> requestUri);
+	}
+
+	/**
+	 * Same as {@link #createResponse(ServiceResponse)}, but a successful response has the passed entity tag. Spring
+	 * answers a GET request, whose If-None-Match header matches the tag, with the status 304 and without the body.
+	 *
+	 * @param serviceResponse response from the internal service with different result types.
+	 * @param eTag            the entity tag of the payload.
+	 * @return The response with appropriate HTTP status and the body made of the internal service
+	 * response's payload.
+	 */
+	static ResponseEntity<?> createResponse(ServiceResponse serviceResponse, String eTag) {
+		if (isOk(serviceResponse)) {
+			return ResponseEntity.ok()
+					.eTag(eTag)
+					.body(serviceResponse.getPayload());
+		}
+		return createResponse(serviceResponse);
+	}
+
+	/**
+	 * Same as {@link #createResponse(ServiceResponse)}, but a successful response with an {@link Appointment} has
+	 * a strong entity tag made of the epoch of the process and the version of the appointment. The version
+	 * identifies the state of an appointment: every change increases it, so the tag compared by If-Match is exactly
+	 * the tag sent. The epoch makes a tag issued before a restart never match.
+	 *
+	 * @param serviceResponse response from the internal service with the appointment in its payload, if successful.
+	 * @param epoch           the epoch of the process, see {@link AppointmentService#getEpoch()}.
+	 * @return The response with appropriate HTTP status and the body made of the internal service
+	 * response's payload.
+	 */
+	static ResponseEntity<?> createAppointmentResponse(ServiceResponse serviceResponse, String epoch) {
+		if (isOk(serviceResponse)) {
+			Appointment appointment = (Appointment) serviceResponse.getPayload();
+			return createResponse(serviceResponse,
+					"\"" + epoch + "-" + Long.toHexString(appointment.getVersion()) + "\"");
+		}
+		return createResponse(serviceResponse);
+	}
+
+	/**
+	 * Reads the versions of the appointment from the list of entity tags, for example from the If-Match header.
+	 * Only the strong tags created by {@link #createAppointmentResponse(ServiceResponse, String)} with the passed
+	 * epoch are taken, the other tags never match.
+	 *
+	 * @param eTags the comma separated entity tags.
+	 * @param epoch the epoch of the process, see {@link AppointmentService#getEpoch()}.
+	 * @return The distinct versions in the order of the tags, empty, if no tag is a current tag of an appointment.
+	 */
+	static List<Long> parseVersions(String eTags, String epoch) {
+		String prefix = epoch + "-";
+		Set<Long> versions = new LinkedHashSet<>();
+		Matcher matcher = ENTITY_TAG.matcher(eTags);
+		while (matcher.find()) {
+			String tag = matcher.group(2);
+			if (matcher.group(1) == null && tag.startsWith(prefix) && tag.length() > prefix.length()) {
+				try {
+					versions.add(Long.parseLong(tag.substring(prefix.length()), 16));
+				} catch (NumberFormatException e) {
+					// not a tag of an appointment
+				}
+			}
+		}
+		return new ArrayList<>(versions);
+	}
+
+	/**
+	 * Creates the weak entity tag of the appointments of a date range.
+	 *
+	 * @param watermark the modification watermark of the date range.
+	 * @return The tag, which changes whenever the appointments of the date range change.
+	 */
+	static String createRangeETag(String watermark) {
+		// weak, because the same appointments are listed in the same order, but not necessarily the same bytes
+		return "W/\"" + watermark + "\"";
+	}
+
+	private static ResponseEntity<?> createResponse(ServiceResponse serviceResponse,
+													Supplier<UriComponentsBuilder> requestUri) {
 		Object payload = serviceResponse.getPayload();
 
 		if (isOk(serviceResponse)) {
@@ -27,19 +145,71 @@ class ResponseFactory {
 					.body(payload);
 		} else if (isCreated(serviceResponse)) {
 			return ResponseEntity.created(
-					getLocationUri((Long) serviceResponse.getPayload()))
-					.body(payload);
-		} else if (isValidationError(serviceResponse)) {
-			return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-					.body(payload);
-		} else if (isNotFoundError(serviceResponse)) {
-			return ResponseEntity.status(HttpStatus.NOT_FOUND)
+					getLocationUri(requestUri.get(), (Long) serviceResponse.getPayload()))
 					.body(payload);
 		}
-		return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+		return ResponseEntity.status(getErrorStatus(serviceResponse))
 				.body(payload);
 	}
 
+	/**
+	 * Creates the {@link ResponseEntity} with a body that is written as newline delimited JSON while
+	 * the appointments are read from the data storage.
+	 *
+	 * @param serviceResponse response from the internal service with the {@link AppointmentStream} payload,
+	 *                        if successful.
+	 * @param mapper          JSON mapper for the appointments.
+	 * @return The response with appropriate HTTP status and the body written by Spring asynchronously. In case of
+	 * an error, the body contains a single line with the internal service response's payload.
+	 */
+	static ResponseEntity<StreamingResponseBody> createStreamingResponse(ServiceResponse serviceResponse,
+																		 ObjectMapper mapper) {
+		ObjectWriter writer = mapper.writer()
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+		if (isOk(serviceResponse)) {
+			AppointmentStream appointments = (AppointmentStream) serviceResponse.getPayload();
+			return ResponseEntity.ok()
+					.contentType(NDJSON)
+					.body(out -> writeLines(appointments::forEach, writer, out));
+		}
+		return ResponseEntity.status(getErrorStatus(serviceResponse))
+				.contentType(NDJSON)
+				.body(out -> writeLines(consumer -> consumer.accept(serviceResponse.getPayload()), writer, out));
+	}
+
+	private static <T> void writeLines(Consumer<Consumer<T>> values, ObjectWriter writer, OutputStream out)
+			throws IOException {
+		try (JsonGenerator generator = writer.getFactory().createGenerator(out)) {
+			// the stream belongs to the servlet container
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.setRootValueSeparator(null);
+			values.accept(value -> {
+				try {
+					writer.writeValue(generator, value);
+					generator.writeRaw('\n');
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+	}
+
+	private static HttpStatus getErrorStatus(ServiceResponse serviceResponse) {
+		if (isValidationError(serviceResponse)) {
+			return HttpStatus.BAD_REQUEST;
+		} else if (isNotFoundError(serviceResponse)) {
+			return HttpStatus.NOT_FOUND;
+		} else if (isConflictError(serviceResponse)) {
+			return HttpStatus.CONFLICT;
+		} else if (isPreconditionFailedError(serviceResponse)) {
+			return HttpStatus.PRECONDITION_FAILED;
+		} else if (isUnavailableError(serviceResponse)) {
+			return HttpStatus.SERVICE_UNAVAILABLE;
+		}
+		return HttpStatus.INTERNAL_SERVER_ERROR;
+	}
+
 	private static boolean isOk(ServiceResponse serviceResponse) {
 		return serviceResponse.getResult() == ServiceResponse.ResultType.OK;
 	}
@@ -56,8 +226,20 @@ class ResponseFactory {
 		return serviceResponse.getResult() == ServiceResponse.ResultType.NOT_FOUND;
 	}
 
-	private static URI getLocationUri(Long id) {
-		return ServletUriComponentsBuilder.fromCurrentRequest()
+	private static boolean isConflictError(ServiceResponse serviceResponse) {
+		return serviceResponse.getResult() == ServiceResponse.ResultType.CONFLICT;
+	}
+
+	private static boolean isPreconditionFailedError(ServiceResponse serviceResponse) {
+		return serviceResponse.getResult() == ServiceResponse.ResultType.PRECONDITION_FAILED;
+	}
+
+	private static boolean isUnavailableError(ServiceResponse serviceResponse) {
+		return serviceResponse.getResult() == ServiceResponse.ResultType.UNAVAILABLE;
+	}
+
+	private static URI getLocationUri(UriComponentsBuilder requestUri, Long id) {
+		return requestUri.cloneBuilder()
 				.path("/{id}")
 				.buildAndExpand(id)
 				.toUri();
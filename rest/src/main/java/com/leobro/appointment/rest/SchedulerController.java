@@ -0,0 +1,66 @@
+package com.leobro.appointment.rest;
+
+import com.leobro.appointment.service.AppointmentScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controls the background creation of random appointments, which puts a continuous load on the Web service.
+ */
+@RestController
+@RequestMapping("/scheduler")
+public class SchedulerController {
+
+	private final AppointmentScheduler scheduler;
+
+	@Autowired
+	public SchedulerController(AppointmentScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Retrieves the state of the scheduler.
+	 *
+	 * @return Whether the scheduler is running, its rate and the statistics.
+	 */
+	@GetMapping
+	public ResponseEntity<?> getStatus() {
+		return ResponseFactory.createResponse(
+				scheduler.getSchedulerStatus());
+	}
+
+	/**
+	 * Starts creating random appointments.
+	 *
+	 * @return The state of the scheduler.
+	 */
+	@PostMapping("/start")
+	public ResponseEntity<?> start() {
+		return ResponseFactory.createResponse(
+				scheduler.start());
+	}
+
+	/**
+	 * Stops creating random appointments.
+	 *
+	 * @return The state of the scheduler.
+	 */
+	@PostMapping("/stop")
+	public ResponseEntity<?> stop() {
+		return ResponseFactory.createResponse(
+				scheduler.stop());
+	}
+
+	/**
+	 * Changes the number of appointments created per second.
+	 *
+	 * @param rate The new rate.
+	 * @return The state of the scheduler.
+	 */
+	@PutMapping("/rate")
+	public ResponseEntity<?> setRate(@RequestBody double rate) {
+		return ResponseFactory.createResponse(
+				scheduler.setRate(rate));
+	}
+}
@@ -0,0 +1,111 @@
+package com.leobro.appointment.rest;
+
+import com.leobro.appointment.service.Trace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Starts the {@link Trace} of every request and logs its spans, when the request is finished. The ID of the trace
+ * is taken from the {@value #TRACE_HEADER} request header, if the client sends one, and returned in the same
+ * response header.
+ * <p>The first dispatch of the request, which binds and validates the parameters and calls the service, is
+ * the {@code http.request} span. The asynchronous dispatch writing the response is the {@code http.response} span.
+ * The requests taking at least {@code appointment.tracing.log-threshold} are logged at the INFO level, the other
+ * ones at the DEBUG level.
+ */
+@Component
+class TracingFilter extends OncePerRequestFilter {
+
+	static final String TRACE_HEADER = "X-Trace-Id";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(TracingFilter.class);
+	private static final String TRACE_ATTRIBUTE = TracingFilter.class.getName() + ".trace";
+	private static final Pattern VALID_ID = Pattern.compile("[0-9A-Za-z-]{1,64}");
+
+	private final long logThresholdNanos;
+
+	TracingFilter(@Value("${appointment.tracing.log-threshold:PT0.5S}") Duration logThreshold) {
+		this.logThresholdNanos = logThreshold.toNanos();
+	}
+
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		Trace dispatched = (Trace) request.getAttribute(TRACE_ATTRIBUTE);
+		if (dispatched != null) {
+			try (Trace.Span ignored = dispatched.attach(); Trace.Span span = Trace.span("http.response")) {
+				chain.doFilter(request, response);
+			}
+			return;
+		}
+
+		String clientId = request.getHeader(TRACE_HEADER);
+		Trace trace = Trace.create(clientId != null && VALID_ID.matcher(clientId).matches() ? clientId : null);
+		request.setAttribute(TRACE_ATTRIBUTE, trace);
+		response.setHeader(TRACE_HEADER, trace.getId());
+
+		try (Trace.Span ignored = trace.attach(); Trace.Span span = Trace.span("http.request")) {
+			chain.doFilter(request, response);
+		} finally {
+			if (request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new AsyncListener() {
+					@Override
+					public void onComplete(AsyncEvent event) {
+						finish(trace, request, response);
+					}
+
+					@Override
+					public void onTimeout(AsyncEvent event) {
+					}
+
+					@Override
+					public void onError(AsyncEvent event) {
+					}
+
+					@Override
+					public void onStartAsync(AsyncEvent event) {
+						event.getAsyncContext().addListener(this);
+					}
+				});
+			} else {
+				finish(trace, request, response);
+			}
+		}
+	}
+
+	private void finish(Trace trace, HttpServletRequest request, HttpServletResponse response) {
+		long elapsed = trace.getElapsedNanos();
+		boolean slow = elapsed >= logThresholdNanos;
+
+		if (slow || LOGGER.isDebugEnabled()) {
+			String message = String.format(Locale.ROOT, "Trace %s: %s %s %d took %.3f ms%s", trace.getId(),
+					request.getMethod(), request.getRequestURI(), response.getStatus(),
+					elapsed / (double) TimeUnit.MILLISECONDS.toNanos(1), trace.format());
+			if (slow) {
+				LOGGER.info(message);
+			} else {
+				LOGGER.debug(message);
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package com.leobro.appointment.rest;
+
+import com.leobro.appointment.service.VirtualThreadExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.servlet.DispatcherType;
+
+/**
+ * Configures the embedded Tomcat, the filters and the executor of the asynchronous requests.
+ */
+@Configuration
+class WebServerConfiguration {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WebServerConfiguration.class);
+
+	/**
+	 * In the virtual thread mode, handles every HTTP request on its own virtual thread instead of the Tomcat
+	 * thread pool. The number of the requests handled at once is then limited by {@code server.tomcat.max-connections}.
+	 */
+	@Bean
+	@ConditionalOnProperty("appointment.virtual-threads.enabled")
+	WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadsCustomizer() {
+		return factory -> {
+			if (!VirtualThreadExecutor.isSupported()) {
+				LOGGER.warn("Virtual threads are not supported by Java {}, the requests run on the Tomcat thread pool",
+						System.getProperty("java.version"));
+				return;
+			}
+			factory.addConnectorCustomizers(connector -> connector.getProtocolHandler()
+					.setExecutor(new VirtualThreadExecutor("http-", Integer.MAX_VALUE)));
+		};
+	}
+
+	/**
+	 * The executor of the asynchronous request processing of Spring MVC, which writes the streamed responses.
+	 * Spring Boot creates it only if there is no other {@code Executor} bean, and the storage executor of the service
+	 * is one. Without it, every stream would run on a new thread of {@code SimpleAsyncTaskExecutor}. The pool is
+	 * configured by the {@code spring.task.execution.*} properties.
+	 */
+	@Bean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+	ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+		return builder.build();
+	}
+
+	/**
+	 * Runs {@link TracingFilter} before the other filters, also for the asynchronous dispatch writing
+	 * the response.
+	 */
+	@Bean
+	FilterRegistrationBean<TracingFilter> tracingFilterRegistration(TracingFilter filter) {
+		FilterRegistrationBean<TracingFilter> registration = new FilterRegistrationBean<>(filter);
+
+		registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ASYNC);
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+
+		return registration;
+	}
+}
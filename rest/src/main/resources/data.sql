@@ -5,5 +5,13 @@ CREATE TABLE appointment (
   client_name VARCHAR(250) NOT NULL,
   time TIMESTAMP NOT NULL,
   price DECIMAL(7, 2),
-  status VARCHAR(6)
+  status VARCHAR(6),
+  version BIGINT DEFAULT 0 NOT NULL
 );
+
+-- IDs are allocated by Hibernate in blocks, the increment must match the allocation size of the entity
+CREATE SEQUENCE IF NOT EXISTS appointment_seq START WITH 1 INCREMENT BY 50;
+
+-- must be kept in sync with the indexes declared by AppointmentEntity
+CREATE INDEX appointment_time_price_idx ON appointment (time, price);
+CREATE INDEX appointment_status_time_idx ON appointment (status, time);
@@ -1,11 +1,15 @@
 package com.leobro.appointment.rest;
 
 import com.leobro.appointment.service.Appointment;
+import com.leobro.appointment.service.AppointmentPage;
 import com.leobro.appointment.service.AppointmentService;
+import com.leobro.appointment.service.AppointmentStream;
 import com.leobro.appointment.service.ServiceResponse;
+import com.leobro.appointment.service.StatusTransition;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -13,6 +17,9 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
@@ -22,12 +29,16 @@ import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.isEmptyOrNullString;
 import static org.mockito.ArgumentMatchers.*;
+import static org.junit.Assert.assertThat;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @RunWith(SpringRunner.class)
@@ -37,12 +48,20 @@ public class AppointmentControllerTest {
 
 	private static final String APPOINTMENTS_URL = "/appointments";
 	private static final String SCHEDULE_URL = "/schedule";
+	private static final String AVAILABILITY_URL = "/availability";
 	private static final String APPOINTMENTS_ID_URL = APPOINTMENTS_URL + "/{id}";
 
 	private static final String QUANTITY_PARAMETER = "quantity";
 	private static final String START_DATE_PARAMETER = "startdate";
 	private static final String END_DATE_PARAMETER = "enddate";
+	private static final String LIMIT_PARAMETER = "limit";
+	private static final String STATUS_PARAMETER = "status";
+	private static final String CURSOR_PARAMETER = "cursor";
+	private static final String CURSOR = "MzAuMDoxMjM";
 	private static final String LOCATION_HEADER = "Location";
+	private static final String ETAG_HEADER = "ETag";
+	private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+	private static final String IF_MATCH_HEADER = "If-Match";
 	private static final String APPOINTMENTS_LOCATION = "http://localhost" + APPOINTMENTS_URL + "/";
 
 	private static final long ID = 123;
@@ -54,6 +73,13 @@ public class AppointmentControllerTest {
 			"  \"status\": \"WAIT\"\n" +
 			"}";
 	private static final int NUMBER_APPOINTMENTS_CREATED = 5;
+	private static final String STATUS_URL = APPOINTMENTS_URL + "/status";
+	private static final String STATUS_TRANSITION_JSON = "{\n" +
+			"  \"startDate\": \"" + TOMORROW + "\",\n" +
+			"  \"endDate\": \"" + TOMORROW + "\",\n" +
+			"  \"fromStatus\": \"WAIT\",\n" +
+			"  \"toStatus\": \"PASS\"\n" +
+			"}";
 
 	private static final String APP_CLIENT_NAME = "Julia Roberts";
 	private static final LocalDateTime APP_TIME = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS)
@@ -62,9 +88,14 @@ public class AppointmentControllerTest {
 	private static final Appointment.AppStatus APP_STATUS = Appointment.AppStatus.WAIT;
 	private static final String APP_STATUS_JSON = "\"" + APP_STATUS.name() + "\"";
 
+	private static final MediaType NDJSON = MediaType.valueOf(AppointmentController.APPLICATION_NDJSON_VALUE);
+
 	private static final String MESSAGE_SERVICE_ERROR = "Service error";
 	private static final String MESSAGE_VALIDATION_ERROR = "Validation error";
 	private static final String MESSAGE_NOT_FOUND = "Resource not found";
+	private static final String MESSAGE_CONFLICT = "Slot taken";
+	private static final String MESSAGE_UNAVAILABLE = "Overloaded";
+	private static final String MESSAGE_VERSION_CHANGED = "Changed";
 
 	private static final String ID_PATH = "id";
 	private static final String CLIENT_NAME_PATH = "clientName";
@@ -72,6 +103,10 @@ public class AppointmentControllerTest {
 	private static final String PRICE_PATH = "price";
 	private static final String STATUS_PATH = "status";
 
+	private static final String EPOCH = "3c";
+	private static final String WATERMARK = "1a-2b";
+	private static final String RANGE_ETAG = "W/\"" + WATERMARK + "\"";
+
 	@MockBean
 	private AppointmentService service;
 
@@ -83,6 +118,8 @@ public class AppointmentControllerTest {
 	@Before
 	public void setUp() {
 		appointment = createAppointment();
+		given(service.getWatermark(any(LocalDate.class), any(LocalDate.class))).willReturn(WATERMARK);
+		given(service.getEpoch()).willReturn(EPOCH);
 	}
 
 	private static Appointment createAppointment() {
@@ -97,12 +134,19 @@ public class AppointmentControllerTest {
 		return app;
 	}
 
+	private ResultActions performAsync(RequestBuilder requestBuilder) throws Exception {
+		MvcResult result = mvc.perform(requestBuilder)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		return mvc.perform(asyncDispatch(result));
+	}
+
 	@Test
 	public void when_createAppointment_then_statusCreatedAndValuesFromService() throws Exception {
-		given(service.createAppointment(any(Appointment.class)))
-				.willReturn(new ServiceResponse(
-						ServiceResponse.ResultType.CREATED, ID));
-		mvc.perform(
+		given(service.createAppointmentAsync(any(Appointment.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.CREATED, ID)));
+		performAsync(
 				MockMvcRequestBuilders.post(APPOINTMENTS_URL)
 						.accept(MediaType.APPLICATION_JSON)
 						.contentType(MediaType.APPLICATION_JSON)
@@ -116,10 +160,10 @@ public class AppointmentControllerTest {
 
 	@Test
 	public void when_createAppointment_andException_then_statusServerError() throws Exception {
-		given(service.createAppointment(any(Appointment.class)))
-				.willReturn(new ServiceResponse(
-						ServiceResponse.ResultType.FATAL, MESSAGE_SERVICE_ERROR));
-		mvc.perform(
+		given(service.createAppointmentAsync(any(Appointment.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.FATAL, MESSAGE_SERVICE_ERROR)));
+		performAsync(
 				MockMvcRequestBuilders.post(APPOINTMENTS_URL)
 						.accept(MediaType.APPLICATION_JSON)
 						.contentType(MediaType.APPLICATION_JSON)
@@ -129,12 +173,41 @@ public class AppointmentControllerTest {
 				.andExpect(content().string(MESSAGE_SERVICE_ERROR));
 	}
 
+	@Test
+	public void when_createAppointment_andSlotTaken_then_statusConflict() throws Exception {
+		given(service.createAppointmentAsync(any(Appointment.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.CONFLICT, MESSAGE_CONFLICT)));
+		performAsync(
+				MockMvcRequestBuilders.post(APPOINTMENTS_URL)
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(APPOINTMENT_JSON))
+				.andExpect(status().isConflict())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(content().string(MESSAGE_CONFLICT));
+	}
+
+	@Test
+	public void when_createAppointment_andOverloaded_then_statusServiceUnavailable() throws Exception {
+		given(service.createAppointmentAsync(any(Appointment.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.UNAVAILABLE, MESSAGE_UNAVAILABLE)));
+		performAsync(
+				MockMvcRequestBuilders.post(APPOINTMENTS_URL)
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(APPOINTMENT_JSON))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(content().string(MESSAGE_UNAVAILABLE));
+	}
+
 	@Test
 	public void when_createRandomAppointments_then_statusOkAndValuesFromService() throws Exception {
-		given(service.createRandomAppointments(anyInt(), any(LocalDate.class)))
-				.willReturn(new ServiceResponse(
-						ServiceResponse.ResultType.OK, NUMBER_APPOINTMENTS_CREATED));
-		mvc.perform(
+		given(service.createRandomAppointmentsAsync(anyInt(), any(LocalDate.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.OK, NUMBER_APPOINTMENTS_CREATED)));
+		performAsync(
 				MockMvcRequestBuilders.post(SCHEDULE_URL)
 						.accept(MediaType.APPLICATION_JSON)
 						.param(QUANTITY_PARAMETER, String.valueOf(NUMBER_APPOINTMENTS_CREATED))
@@ -146,10 +219,10 @@ public class AppointmentControllerTest {
 
 	@Test
 	public void when_createRandomAppointments_andValidationError_then_statusBadRequest() throws Exception {
-		given(service.createRandomAppointments(anyInt(), any(LocalDate.class)))
-				.willReturn(new ServiceResponse(
-						ServiceResponse.ResultType.ERROR, MESSAGE_VALIDATION_ERROR));
-		mvc.perform(
+		given(service.createRandomAppointmentsAsync(anyInt(), any(LocalDate.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.ERROR, MESSAGE_VALIDATION_ERROR)));
+		performAsync(
 				MockMvcRequestBuilders.post(SCHEDULE_URL)
 						.accept(MediaType.APPLICATION_JSON)
 						.param(QUANTITY_PARAMETER, String.valueOf(NUMBER_APPOINTMENTS_CREATED))
@@ -161,10 +234,10 @@ public class AppointmentControllerTest {
 
 	@Test
 	public void when_getAppointment_then_statusOkAndValuesFromService() throws Exception {
-		given(service.getAppointment(anyLong()))
-				.willReturn(new ServiceResponse(
-						ServiceResponse.ResultType.OK, appointment));
-		mvc.perform(
+		given(service.getAppointmentAsync(anyLong()))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.OK, appointment)));
+		performAsync(
 				MockMvcRequestBuilders.get(APPOINTMENTS_ID_URL, ID)
 						.accept(MediaType.APPLICATION_JSON))
 				.andExpect(status().isOk())
@@ -176,12 +249,41 @@ public class AppointmentControllerTest {
 				.andExpect(jsonPath("$." + STATUS_PATH, is(APP_STATUS.name())));
 	}
 
+	@Test
+	public void when_getAppointment_andETagMatches_then_statusNotModifiedWithoutBody() throws Exception {
+		given(service.getAppointmentAsync(anyLong()))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.OK, appointment)));
+		String eTag = performAsync(
+				MockMvcRequestBuilders.get(APPOINTMENTS_ID_URL, ID)
+						.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(header().string(ETAG_HEADER,
+						"\"" + EPOCH + "-" + Long.toHexString(appointment.getVersion()) + "\""))
+				.andReturn().getResponse().getHeader(ETAG_HEADER);
+
+		performAsync(
+				MockMvcRequestBuilders.get(APPOINTMENTS_ID_URL, ID)
+						.accept(MediaType.APPLICATION_JSON)
+						.header(IF_NONE_MATCH_HEADER, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(isEmptyOrNullString()));
+
+		appointment.setVersion(appointment.getVersion() + 1);
+		performAsync(
+				MockMvcRequestBuilders.get(APPOINTMENTS_ID_URL, ID)
+						.accept(MediaType.APPLICATION_JSON)
+						.header(IF_NONE_MATCH_HEADER, eTag))
+				.andExpect(status().isOk())
+				.andExpect(header().string(ETAG_HEADER, not(eTag)));
+	}
+
 	@Test
 	public void when_getAppointment_andNotFound_then_statusNotFound() throws Exception {
-		given(service.getAppointment(anyLong()))
-				.willReturn(new ServiceResponse(
-						ServiceResponse.ResultType.NOT_FOUND, MESSAGE_NOT_FOUND));
-		mvc.perform(
+		given(service.getAppointmentAsync(anyLong()))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.NOT_FOUND, MESSAGE_NOT_FOUND)));
+		performAsync(
 				MockMvcRequestBuilders.get(APPOINTMENTS_ID_URL, ID)
 						.accept(MediaType.APPLICATION_JSON))
 				.andExpect(status().isNotFound())
@@ -195,15 +297,16 @@ public class AppointmentControllerTest {
 		String now = LocalDate.now().toString();
 		String tomorrow = LocalDate.now().plusDays(1).toString();
 
-		given(service.getAllAppointments(any(LocalDate.class), any(LocalDate.class)))
-				.willReturn(new ServiceResponse(
-						ServiceResponse.ResultType.OK, appointments));
-		mvc.perform(
+		given(service.getAllAppointmentsAsync(any(LocalDate.class), any(LocalDate.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.OK, appointments)));
+		performAsync(
 				MockMvcRequestBuilders.get(APPOINTMENTS_URL)
 						.accept(MediaType.APPLICATION_JSON)
 						.param(START_DATE_PARAMETER, now)
 						.param(END_DATE_PARAMETER, tomorrow))
 				.andExpect(status().isOk())
+				.andExpect(header().string(ETAG_HEADER, RANGE_ETAG))
 				.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
 				.andExpect(jsonPath("$", hasSize(1)))
 				.andExpect(jsonPath("$[0]."+ ID_PATH,is((int) ID)))
@@ -214,11 +317,111 @@ public class AppointmentControllerTest {
 	}
 
 	@Test
-	public void when_updateAppointmentStatus_then_statusOkAndValuesFromService() throws Exception {
-		given(service.updateAppointmentStatus(anyLong(), any(Appointment.AppStatus.class)))
+	public void when_getAllAppointments_andETagMatches_then_statusNotModifiedWithoutService() throws Exception {
+		performAsync(
+				MockMvcRequestBuilders.get(APPOINTMENTS_URL)
+						.accept(MediaType.APPLICATION_JSON)
+						.header(IF_NONE_MATCH_HEADER, RANGE_ETAG)
+						.param(START_DATE_PARAMETER, LocalDate.now().toString())
+						.param(END_DATE_PARAMETER, TOMORROW))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(ETAG_HEADER, RANGE_ETAG))
+				.andExpect(content().string(isEmptyOrNullString()));
+		Mockito.verify(service, Mockito.never()).getAllAppointmentsAsync(any(LocalDate.class), any(LocalDate.class));
+	}
+
+	@Test
+	public void when_getAvailability_then_statusOkAndSlotsFromService() throws Exception {
+		LocalDateTime slot = LocalDate.now().plusDays(1).atTime(9, 0);
+
+		given(service.getAvailabilityAsync(any(LocalDate.class), any(LocalDate.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.OK, Collections.singletonList(slot))));
+		performAsync(
+				MockMvcRequestBuilders.get(AVAILABILITY_URL)
+						.accept(MediaType.APPLICATION_JSON)
+						.param(START_DATE_PARAMETER, TOMORROW)
+						.param(END_DATE_PARAMETER, TOMORROW))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(jsonPath("$", hasSize(1)))
+				.andExpect(jsonPath("$[0]", is(slot.toString() + ":00")));
+	}
+
+	@Test
+	public void when_getAppointmentsPage_then_statusOkAndPageFromService() throws Exception {
+		AppointmentPage page = new AppointmentPage(Collections.singletonList(appointment), CURSOR);
+
+		given(service.getAppointmentsPageAsync(any(LocalDate.class), any(LocalDate.class), any(), anyInt()))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.OK, page)));
+		performAsync(
+				MockMvcRequestBuilders.get(APPOINTMENTS_URL)
+						.accept(MediaType.APPLICATION_JSON)
+						.param(START_DATE_PARAMETER, LocalDate.now().toString())
+						.param(END_DATE_PARAMETER, LocalDate.now().plusDays(1).toString())
+						.param(LIMIT_PARAMETER, "1")
+						.param(CURSOR_PARAMETER, CURSOR))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(jsonPath("$.appointments", hasSize(1)))
+				.andExpect(jsonPath("$.appointments[0]." + ID_PATH, is((int) ID)))
+				.andExpect(jsonPath("$.nextCursor", is(CURSOR)));
+		Mockito.verify(service).getAppointmentsPageAsync(any(LocalDate.class), any(LocalDate.class), eq(CURSOR), eq(1));
+	}
+
+	@Test
+	public void when_streamAllAppointments_then_statusOkAndOneLinePerAppointment() throws Exception {
+		AppointmentStream appointments = consumer -> {
+			consumer.accept(appointment);
+			consumer.accept(appointment);
+		};
+		String now = LocalDate.now().toString();
+		String tomorrow = LocalDate.now().plusDays(1).toString();
+
+		given(service.streamAllAppointments(any(LocalDate.class), any(LocalDate.class)))
 				.willReturn(new ServiceResponse(
-						ServiceResponse.ResultType.OK, null));
-		mvc.perform(
+						ServiceResponse.ResultType.OK, appointments));
+		MvcResult result = mvc.perform(
+				MockMvcRequestBuilders.get(APPOINTMENTS_URL)
+						.accept(NDJSON)
+						.param(START_DATE_PARAMETER, now)
+						.param(END_DATE_PARAMETER, tomorrow))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(NDJSON))
+				.andReturn().getResponse().getContentAsString();
+
+		String[] lines = body.split("\n");
+		assertThat(lines.length, is(2));
+		assertThat(lines[0], containsString("\"" + CLIENT_NAME_PATH + "\":\"" + APP_CLIENT_NAME + "\""));
+	}
+
+	@Test
+	public void when_streamAllAppointments_andValidationError_then_statusBadRequest() throws Exception {
+		given(service.streamAllAppointments(any(LocalDate.class), any(LocalDate.class)))
+				.willReturn(new ServiceResponse(
+						ServiceResponse.ResultType.ERROR, Collections.singletonList(MESSAGE_VALIDATION_ERROR)));
+		MvcResult result = mvc.perform(
+				MockMvcRequestBuilders.get(APPOINTMENTS_URL)
+						.accept(NDJSON)
+						.param(START_DATE_PARAMETER, LocalDate.now().plusDays(1).toString())
+						.param(END_DATE_PARAMETER, LocalDate.now().toString()))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		mvc.perform(asyncDispatch(result))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string("[\"" + MESSAGE_VALIDATION_ERROR + "\"]\n"));
+	}
+
+	@Test
+	public void when_updateAppointmentStatus_then_statusOkAndValuesFromService() throws Exception {
+		given(service.updateAppointmentStatusAsync(anyLong(), any(Appointment.AppStatus.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.OK, null)));
+		performAsync(
 				MockMvcRequestBuilders.put(APPOINTMENTS_ID_URL, ID)
 						.accept(MediaType.APPLICATION_JSON)
 						.contentType(MediaType.APPLICATION_JSON)
@@ -227,12 +430,111 @@ public class AppointmentControllerTest {
 				.andExpect(content().string(isEmptyOrNullString()));
 	}
 
+	@Test
+	public void when_updateAppointmentStatus_andIfMatch_then_versionPassedAndChangeIsPreconditionFailed()
+			throws Exception {
+		given(service.updateAppointmentStatusAsync(anyLong(), any(Appointment.AppStatus.class), anyLong()))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.PRECONDITION_FAILED, MESSAGE_VERSION_CHANGED)));
+		performAsync(
+				MockMvcRequestBuilders.put(APPOINTMENTS_ID_URL, ID)
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_JSON)
+						.header(IF_MATCH_HEADER, "\"" + EPOCH + "-1f\"")
+						.content(APP_STATUS_JSON))
+				.andExpect(status().isPreconditionFailed())
+				.andExpect(content().string(MESSAGE_VERSION_CHANGED));
+		Mockito.verify(service).updateAppointmentStatusAsync(ID, APP_STATUS, 0x1f);
+	}
+
+	@Test
+	public void when_updateAppointmentStatus_andIfMatchList_then_anyVersionMatches() throws Exception {
+		given(service.updateAppointmentStatusAsync(anyLong(), any(Appointment.AppStatus.class), anyLong()))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.PRECONDITION_FAILED, MESSAGE_VERSION_CHANGED)));
+		given(service.updateAppointmentStatusAsync(ID, APP_STATUS, 0x1f))
+				.willReturn(completedFuture(new ServiceResponse(ServiceResponse.ResultType.OK, null)));
+		performAsync(
+				MockMvcRequestBuilders.put(APPOINTMENTS_ID_URL, ID)
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_JSON)
+						.header(IF_MATCH_HEADER, "\"" + EPOCH + "-1e\", W/\"" + EPOCH + "-1d\", \"" + EPOCH + "-1f\"")
+						.content(APP_STATUS_JSON))
+				.andExpect(status().isOk());
+		Mockito.verify(service).updateAppointmentStatusAsync(ID, APP_STATUS, 0x1e);
+		Mockito.verify(service).updateAppointmentStatusAsync(ID, APP_STATUS, 0x1f);
+		Mockito.verify(service, Mockito.never()).updateAppointmentStatusAsync(ID, APP_STATUS, 0x1d);
+	}
+
+	@Test
+	public void when_updateAppointmentStatus_andIfMatchOtherEpoch_then_statusPreconditionFailedWithoutService()
+			throws Exception {
+		performAsync(
+				MockMvcRequestBuilders.put(APPOINTMENTS_ID_URL, ID)
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_JSON)
+						.header(IF_MATCH_HEADER, "\"4d-1f\"")
+						.content(APP_STATUS_JSON))
+				.andExpect(status().isPreconditionFailed());
+		Mockito.verify(service, Mockito.never())
+				.updateAppointmentStatusAsync(anyLong(), any(Appointment.AppStatus.class), anyLong());
+	}
+
+	@Test
+	public void when_updateAppointmentStatus_andIfMatchWeak_then_statusPreconditionFailedWithoutService()
+			throws Exception {
+		performAsync(
+				MockMvcRequestBuilders.put(APPOINTMENTS_ID_URL, ID)
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_JSON)
+						.header(IF_MATCH_HEADER, RANGE_ETAG)
+						.content(APP_STATUS_JSON))
+				.andExpect(status().isPreconditionFailed());
+		Mockito.verify(service, Mockito.never())
+				.updateAppointmentStatusAsync(anyLong(), any(Appointment.AppStatus.class), anyLong());
+		Mockito.verify(service, Mockito.never())
+				.updateAppointmentStatusAsync(anyLong(), any(Appointment.AppStatus.class));
+	}
+
+	@Test
+	public void when_updateAppointmentStatus_andIfMatchNotVersion_then_statusPreconditionFailedWithoutService()
+			throws Exception {
+		performAsync(
+				MockMvcRequestBuilders.put(APPOINTMENTS_ID_URL, ID)
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_JSON)
+						.header(IF_MATCH_HEADER, "\"" + EPOCH + "-xyz\"")
+						.content(APP_STATUS_JSON))
+				.andExpect(status().isPreconditionFailed());
+		Mockito.verify(service, Mockito.never())
+				.updateAppointmentStatusAsync(anyLong(), any(Appointment.AppStatus.class), anyLong());
+	}
+
+	@Test
+	public void when_updateAppointmentStatuses_then_statusOkAndCountFromService() throws Exception {
+		given(service.updateAppointmentStatusesAsync(any(StatusTransition.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.OK, NUMBER_APPOINTMENTS_CREATED)));
+		performAsync(
+				MockMvcRequestBuilders.put(STATUS_URL)
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(STATUS_TRANSITION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(jsonPath("$", is(NUMBER_APPOINTMENTS_CREATED)));
+		Mockito.verify(service).updateAppointmentStatusesAsync(Mockito.argThat(transition ->
+				transition.getStartDate().equals(LocalDate.parse(TOMORROW))
+						&& transition.getFromStatus() == Appointment.AppStatus.WAIT
+						&& transition.getToStatus() == Appointment.AppStatus.PASS));
+	}
+
 	@Test
 	public void when_deleteAppointment_then_statusOkAndValuesFromService() throws Exception {
-		given(service.deleteAppointment(anyLong()))
-				.willReturn(new ServiceResponse(
-						ServiceResponse.ResultType.OK, appointment));
-		mvc.perform(
+		given(service.deleteAppointmentAsync(anyLong()))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.OK, appointment)));
+		performAsync(
 				MockMvcRequestBuilders.delete(APPOINTMENTS_ID_URL, ID)
 						.accept(MediaType.APPLICATION_JSON))
 				.andExpect(status().isOk())
@@ -243,4 +545,22 @@ public class AppointmentControllerTest {
 				.andExpect(jsonPath("$." + PRICE_PATH, is(APP_PRICE)))
 				.andExpect(jsonPath("$." + STATUS_PATH, is(APP_STATUS.name())));
 	}
+
+	@Test
+	public void when_deleteAppointments_then_statusOkAndCountFromService() throws Exception {
+		given(service.deleteAppointmentsAsync(any(LocalDate.class), any(LocalDate.class), any(Appointment.AppStatus.class)))
+				.willReturn(completedFuture(new ServiceResponse(
+						ServiceResponse.ResultType.OK, NUMBER_APPOINTMENTS_CREATED)));
+		performAsync(
+				MockMvcRequestBuilders.delete(APPOINTMENTS_URL)
+						.accept(MediaType.APPLICATION_JSON)
+						.param(START_DATE_PARAMETER, LocalDate.now().minusDays(30).toString())
+						.param(END_DATE_PARAMETER, LocalDate.now().toString())
+						.param(STATUS_PARAMETER, Appointment.AppStatus.PASS.name()))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+				.andExpect(jsonPath("$", is(NUMBER_APPOINTMENTS_CREATED)));
+		Mockito.verify(service).deleteAppointmentsAsync(any(LocalDate.class), any(LocalDate.class),
+				eq(Appointment.AppStatus.PASS));
+	}
 }
@@ -0,0 +1,61 @@
+package com.leobro.appointment.rest;
+
+import com.leobro.appointment.service.AppointmentScheduler;
+import com.leobro.appointment.service.ServiceResponse;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class SchedulerControllerTest {
+
+	private static final String START_URL = "/scheduler/start";
+	private static final String RATE_URL = "/scheduler/rate";
+	private static final String STATUS = "running";
+	private static final String MESSAGE_VALIDATION_ERROR = "Validation error";
+
+	@MockBean
+	private AppointmentScheduler scheduler;
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Test
+	public void when_start_then_statusOkAndStateFromService() throws Exception {
+		given(scheduler.start())
+				.willReturn(new ServiceResponse(
+						ServiceResponse.ResultType.OK, STATUS));
+		mvc.perform(
+				MockMvcRequestBuilders.post(START_URL)
+						.accept(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(content().string(STATUS));
+	}
+
+	@Test
+	public void when_setRate_andValidationError_then_statusBadRequest() throws Exception {
+		given(scheduler.setRate(anyDouble()))
+				.willReturn(new ServiceResponse(
+						ServiceResponse.ResultType.ERROR, MESSAGE_VALIDATION_ERROR));
+		mvc.perform(
+				MockMvcRequestBuilders.put(RATE_URL)
+						.accept(MediaType.APPLICATION_JSON)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("0"))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string(MESSAGE_VALIDATION_ERROR));
+	}
+}
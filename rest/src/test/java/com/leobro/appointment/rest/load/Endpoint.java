@@ -0,0 +1,101 @@
+package com.leobro.appointment.rest.load;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The requests replayed by {@link LoadReplay}. The appointments are created in the next year, the IDs of the created
+ * ones are read, updated and deleted.
+ */
+enum Endpoint {
+
+	CREATE {
+		@Override
+		HttpRequest createRequest(URI baseUri, IdPool ids) {
+			LocalDate day = randomDay();
+			String body = "{\"clientName\": \"Load Replay\", \"time\": \"" + day.atTime(9 + random().nextInt(8), 0) +
+					"\", \"price\": " + (10 + random().nextInt(190)) + ", \"status\": \"WAIT\"}";
+			return HttpRequest.newBuilder(baseUri.resolve("/appointments"))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(body))
+					.build();
+		}
+
+		@Override
+		void onResponse(HttpResponse<String> response, IdPool ids) {
+			if (response.statusCode() == 201) {
+				ids.add(Long.parseLong(response.body().trim()));
+			}
+		}
+	},
+
+	GET {
+		@Override
+		HttpRequest createRequest(URI baseUri, IdPool ids) {
+			return HttpRequest.newBuilder(baseUri.resolve("/appointments/" + ids.random())).GET().build();
+		}
+	},
+
+	RANGE {
+		@Override
+		HttpRequest createRequest(URI baseUri, IdPool ids) {
+			LocalDate start = randomDay();
+			return HttpRequest.newBuilder(baseUri.resolve("/appointments?startdate=" + start + "&enddate=" +
+					start.plusDays(RANGE_DAYS - 1))).GET().build();
+		}
+	},
+
+	UPDATE {
+		@Override
+		HttpRequest createRequest(URI baseUri, IdPool ids) {
+			return HttpRequest.newBuilder(baseUri.resolve("/appointments/" + ids.random()))
+					.header("Content-Type", "application/json")
+					.PUT(HttpRequest.BodyPublishers.ofString("\"PASS\""))
+					.build();
+		}
+	},
+
+	DELETE {
+		@Override
+		HttpRequest createRequest(URI baseUri, IdPool ids) {
+			return HttpRequest.newBuilder(baseUri.resolve("/appointments/" + ids.remove())).DELETE().build();
+		}
+	},
+
+	SCHEDULE {
+		@Override
+		HttpRequest createRequest(URI baseUri, IdPool ids) {
+			return HttpRequest.newBuilder(baseUri.resolve("/schedule?quantity=" + SCHEDULE_QUANTITY + "&enddate=" +
+					LocalDate.now().plusDays(HORIZON_DAYS))).POST(HttpRequest.BodyPublishers.noBody()).build();
+		}
+	};
+
+	private static final int HORIZON_DAYS = 365;
+	private static final int RANGE_DAYS = 7;
+	private static final int SCHEDULE_QUANTITY = 10;
+
+	/**
+	 * Creates the next request to the endpoint.
+	 *
+	 * @param baseUri the URI of the application,
+	 * @param ids     the IDs of the existing appointments.
+	 */
+	abstract HttpRequest createRequest(URI baseUri, IdPool ids);
+
+	/**
+	 * Handles the response to a request created by {@link #createRequest(URI, IdPool)}.
+	 */
+	void onResponse(HttpResponse<String> response, IdPool ids) {
+	}
+
+	private static ThreadLocalRandom random() {
+		return ThreadLocalRandom.current();
+	}
+
+	private static LocalDate randomDay() {
+		return LocalDate.now().plusDays(1 + random().nextInt(HORIZON_DAYS));
+	}
+}
@@ -0,0 +1,49 @@
+package com.leobro.appointment.rest.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latencies of the requests to one {@link Endpoint} in microseconds and the number of the failed ones.
+ * A request failed, if it was not answered or answered with a server error.
+ */
+class EndpointStats {
+
+	private static final int SIGNIFICANT_DIGITS = 3;
+
+	private final Histogram latencies = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+	private final AtomicLong errors = new AtomicLong();
+
+	void record(long latencyNanos, boolean failed) {
+		latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+		if (failed) {
+			errors.incrementAndGet();
+		}
+	}
+
+	Histogram getLatencies() {
+		return latencies;
+	}
+
+	long getCount() {
+		return latencies.getTotalCount();
+	}
+
+	long getErrors() {
+		return errors.get();
+	}
+
+	double getErrorRate() {
+		return getCount() == 0 ? 0 : (double) getErrors() / getCount();
+	}
+
+	/**
+	 * Returns the latency at the percentile in milliseconds.
+	 */
+	double getPercentileMillis(double percentile) {
+		return latencies.getValueAtPercentile(percentile) / 1000.0;
+	}
+}
@@ -0,0 +1,43 @@
+package com.leobro.appointment.rest.load;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The IDs of the appointments created during the replay, which the other requests refer to.
+ */
+class IdPool {
+
+	/**
+	 * Refers to no appointment, used while there are no IDs.
+	 */
+	private static final long MISSING_ID = 0;
+
+	private long[] ids = new long[1024];
+	private int size;
+
+	synchronized void add(long id) {
+		if (size == ids.length) {
+			long[] grown = new long[size * 2];
+			System.arraycopy(ids, 0, grown, 0, size);
+			ids = grown;
+		}
+		ids[size++] = id;
+	}
+
+	synchronized long random() {
+		return size == 0 ? MISSING_ID : ids[ThreadLocalRandom.current().nextInt(size)];
+	}
+
+	/**
+	 * Removes a random ID, so that it is not deleted twice.
+	 */
+	synchronized long remove() {
+		if (size == 0) {
+			return MISSING_ID;
+		}
+		int index = ThreadLocalRandom.current().nextInt(size);
+		long id = ids[index];
+		ids[index] = ids[--size];
+		return id;
+	}
+}
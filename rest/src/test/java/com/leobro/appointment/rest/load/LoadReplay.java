@@ -0,0 +1,174 @@
+package com.leobro.appointment.rest.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a mix of requests against a running application at a fixed rate. The load is open: a request is sent at
+ * its planned time, whether the previous ones are answered or not, and its latency is measured from the planned
+ * time. So a slow server is not hidden by the generator waiting for it.
+ */
+class LoadReplay {
+
+	private static final double MICROS_PER_MILLI = 1000.0;
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.build();
+	private final URI baseUri;
+	private final double rate;
+	private final Endpoint[] endpoints;
+	private final int[] cumulativeWeights;
+	private final IdPool ids = new IdPool();
+
+	/**
+	 * @param baseUri the URI of the application,
+	 * @param rate    the number of requests per second,
+	 * @param mix     the relative weights of the endpoints in the form {@code create=20,get=40}; the endpoints
+	 *                missing in the mix are not requested.
+	 */
+	LoadReplay(URI baseUri, double rate, String mix) {
+		this.baseUri = baseUri;
+		this.rate = rate;
+
+		Map<Endpoint, Integer> weights = parseMix(mix);
+		endpoints = weights.keySet().toArray(new Endpoint[0]);
+		cumulativeWeights = new int[endpoints.length];
+		int total = 0;
+		for (int i = 0; i < endpoints.length; i++) {
+			total += weights.get(endpoints[i]);
+			cumulativeWeights[i] = total;
+		}
+		if (total <= 0) {
+			throw new IllegalArgumentException("The mix has no requests: " + mix);
+		}
+	}
+
+	private static Map<Endpoint, Integer> parseMix(String mix) {
+		Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.trim().split("=");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("Expected endpoint=weight, found: " + entry);
+			}
+			weights.put(Endpoint.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(parts[1].trim()));
+		}
+		return weights;
+	}
+
+	/**
+	 * Creates the appointments the first reads, updates and deletes refer to, one after another.
+	 */
+	void seed(int count) throws IOException, InterruptedException {
+		for (int i = 0; i < count; i++) {
+			HttpResponse<String> response = client.send(Endpoint.CREATE.createRequest(baseUri, ids),
+					HttpResponse.BodyHandlers.ofString());
+			Endpoint.CREATE.onResponse(response, ids);
+		}
+	}
+
+	/**
+	 * Sends the requests for the duration and waits for the answers.
+	 *
+	 * @return The statistics of the endpoints in the mix.
+	 */
+	Map<Endpoint, EndpointStats> run(Duration duration) throws InterruptedException, TimeoutException {
+		Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+		for (Endpoint endpoint : endpoints) {
+			stats.put(endpoint, new EndpointStats());
+		}
+
+		Phaser inFlight = new Phaser(1);
+		long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		long start = System.nanoTime();
+		long end = start + duration.toNanos();
+
+		for (long planned = start; planned < end; planned += interval) {
+			long wait;
+			while ((wait = planned - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			Endpoint endpoint = nextEndpoint();
+			send(endpoint, planned, stats.get(endpoint), inFlight);
+		}
+
+		inFlight.awaitAdvanceInterruptibly(inFlight.arrive(), REQUEST_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS);
+		return stats;
+	}
+
+	private Endpoint nextEndpoint() {
+		int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		int i = 0;
+		while (cumulativeWeights[i] <= value) {
+			i++;
+		}
+		return endpoints[i];
+	}
+
+	private void send(Endpoint endpoint, long planned, EndpointStats stats, Phaser inFlight) {
+		inFlight.register();
+		client.sendAsync(endpoint.createRequest(baseUri, ids), HttpResponse.BodyHandlers.ofString())
+				.orTimeout(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+				.whenComplete((response, e) -> {
+					stats.record(System.nanoTime() - planned, response == null || response.statusCode() >= 500);
+					if (response != null) {
+						endpoint.onResponse(response, ids);
+					}
+					inFlight.arriveAndDeregister();
+				});
+	}
+
+	/**
+	 * Prints the number of requests, the throughput and the latency percentiles of every endpoint.
+	 */
+	static void printSummary(Map<Endpoint, EndpointStats> stats, Duration duration, PrintStream out) {
+		double seconds = duration.toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+
+		out.printf(Locale.ROOT, "%-10s %9s %7s %9s %9s %9s %9s %9s%n",
+				"endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+		for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+			EndpointStats endpointStats = entry.getValue();
+			Histogram latencies = endpointStats.getLatencies();
+			out.printf(Locale.ROOT, "%-10s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+					entry.getKey().name().toLowerCase(Locale.ROOT),
+					endpointStats.getCount(),
+					endpointStats.getErrors(),
+					endpointStats.getCount() / seconds,
+					endpointStats.getPercentileMillis(50),
+					endpointStats.getPercentileMillis(99),
+					endpointStats.getPercentileMillis(99.9),
+					latencies.getMaxValue() / MICROS_PER_MILLI);
+		}
+	}
+
+	/**
+	 * Writes the percentile distribution of every endpoint in milliseconds to a {@code .hgrm} file, which can be
+	 * plotted by the HdrHistogram plotter.
+	 */
+	static void writeHistograms(Map<Endpoint, EndpointStats> stats, Path directory) throws IOException {
+		Files.createDirectories(directory);
+		for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+			Path file = directory.resolve(entry.getKey().name().toLowerCase(Locale.ROOT) + ".hgrm");
+			try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+				entry.getValue().getLatencies().outputPercentileDistribution(out, MICROS_PER_MILLI);
+			}
+		}
+	}
+}
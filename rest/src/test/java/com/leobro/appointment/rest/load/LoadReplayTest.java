@@ -0,0 +1,58 @@
+package com.leobro.appointment.rest.load;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Replays a mix of requests against the whole application on a random port, prints the latencies and writes their
+ * histograms to {@code target/load-replay}. Excluded from the build, run it by
+ * {@code mvn test -Dtest=LoadReplayTest} with the {@code load.*} system properties to change the defaults below.
+ * The test fails, if an endpoint has too many errors or, when {@code load.max-p99} is set, a too high 99th
+ * percentile of the latency in milliseconds.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class LoadReplayTest {
+
+	private static final double RATE = Double.parseDouble(System.getProperty("load.rate", "100"));
+	private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT30S"));
+	private static final Duration WARMUP = Duration.parse(System.getProperty("load.warmup", "PT10S"));
+	private static final int SEED = Integer.parseInt(System.getProperty("load.seed", "100"));
+	private static final String MIX = System.getProperty("load.mix",
+			"create=20,get=40,range=20,update=10,delete=5,schedule=5");
+	private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+	private static final String MAX_P99 = System.getProperty("load.max-p99");
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	public void when_replayMix_then_latenciesWithinLimits() throws Exception {
+		LoadReplay replay = new LoadReplay(URI.create("http://localhost:" + port), RATE, MIX);
+
+		replay.seed(SEED);
+		replay.run(WARMUP);
+		Map<Endpoint, EndpointStats> stats = replay.run(DURATION);
+
+		LoadReplay.printSummary(stats, DURATION, System.out);
+		LoadReplay.writeHistograms(stats, Paths.get("target", "load-replay"));
+
+		for (EndpointStats endpointStats : stats.values()) {
+			assertThat(endpointStats.getErrorRate(), lessThanOrEqualTo(MAX_ERROR_RATE));
+			if (MAX_P99 != null) {
+				assertThat(endpointStats.getPercentileMillis(99), lessThanOrEqualTo(Double.parseDouble(MAX_P99)));
+			}
+		}
+	}
+}
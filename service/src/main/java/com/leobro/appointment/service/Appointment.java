@@ -44,6 +44,8 @@ public class Appointment {
 	@NotNull(message = STATUS_MISSING_ERROR)
 	private AppStatus status;
 
+	private long version;
+
 	public Long getId() {
 		return id;
 	}
@@ -84,6 +86,18 @@ public class Appointment {
 		this.status = status;
 	}
 
+	/**
+	 * The version of the stored appointment: zero when it is created, increased by every change of the status.
+	 * Ignored when a new appointment is passed to the data storage.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -93,11 +107,12 @@ public class Appointment {
 				Double.compare(that.price, price) == 0 &&
 				Objects.equals(clientName, that.clientName) &&
 				Objects.equals(time, that.time) &&
-				status == that.status;
+				status == that.status &&
+				version == that.version;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(id, clientName, time, price, status);
+		return Objects.hash(id, clientName, time, price, status, version);
 	}
 }
@@ -0,0 +1,35 @@
+package com.leobro.appointment.service;
+
+import java.util.List;
+
+/**
+ * One page of the appointments sorted by price together with the cursor to the next page.
+ */
+public class AppointmentPage {
+
+	private final List<Appointment> appointments;
+	private final String nextCursor;
+
+	public AppointmentPage(List<Appointment> appointments, String nextCursor) {
+		this.appointments = appointments;
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * The appointments of the page sorted by price and ID.
+	 *
+	 * @return The list of appointments, maybe empty.
+	 */
+	public List<Appointment> getAppointments() {
+		return appointments;
+	}
+
+	/**
+	 * The cursor to be passed to get the next page.
+	 *
+	 * @return Opaque string or {@code null}, if this is the last page.
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+}
@@ -0,0 +1,214 @@
+package com.leobro.appointment.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.leobro.appointment.service.ResponseFactory.*;
+
+/**
+ * Creates random appointments in the background at random intervals, for example to put a continuous load on
+ * the application. Each appointment is created by
+ * {@link AppointmentService#createRandomAppointments(int, LocalDate)}.
+ * <p>The intervals vary around the average interval given by the target rate. If the moving average of the time
+ * the creation takes exceeds the latency threshold, or the creation fails, the scheduler backs off: the interval
+ * is doubled up to the maximal pause, until the data storage is fast again. The scheduler backs off the same way,
+ * while no slot is free within the horizon, so that a full horizon doesn't cost a futile creation every interval.
+ */
+@Service
+public class AppointmentScheduler {
+
+	private static final String RATE_ERROR = "Rate must be positive and not greater than " +
+			AppointmentScheduler.MAX_RATE + " appointments per second.";
+
+	static final double MAX_RATE = 100;
+	/**
+	 * The weight of the last creation time in the moving average.
+	 */
+	private static final double LATENCY_SMOOTHING = 0.2;
+
+	private final AppointmentService service;
+	private final double jitter;
+	private final int horizonDays;
+	private final long latencyThresholdNanos;
+	private final long maxPauseNanos;
+	private final ScheduledExecutorService executor;
+
+	private double rate;
+	private boolean running;
+	/**
+	 * Tells apart the creations scheduled before a restart, so that they don't schedule the next ones.
+	 */
+	private long generation;
+	private ScheduledFuture<?> nextCreation;
+	private long created;
+	private double averageLatencyNanos;
+	private long backoffNanos;
+	private boolean saturated;
+
+	@Autowired
+	AppointmentScheduler(AppointmentService service,
+						 @Value("${appointment.scheduler.rate:1}") double rate,
+						 @Value("${appointment.scheduler.jitter:0.5}") double jitter,
+						 @Value("${appointment.scheduler.horizon-days:30}") int horizonDays,
+						 @Value("${appointment.scheduler.latency-threshold:PT0.5S}") Duration latencyThreshold,
+						 @Value("${appointment.scheduler.max-pause:PT30S}") Duration maxPause,
+						 @Value("${appointment.scheduler.auto-start:false}") boolean autoStart) {
+		if (!isValidRate(rate)) {
+			throw new IllegalArgumentException(RATE_ERROR);
+		}
+		this.service = service;
+		this.rate = rate;
+		this.jitter = Math.min(Math.max(jitter, 0), 1);
+		this.horizonDays = horizonDays;
+		this.latencyThresholdNanos = latencyThreshold.toNanos();
+		this.maxPauseNanos = maxPause.toNanos();
+
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "appointment-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		if (autoStart) {
+			start();
+		}
+	}
+
+	/**
+	 * Starts creating the appointments. Does nothing, if they are already being created.
+	 *
+	 * @return Response with the {@link SchedulerStatus}.
+	 */
+	public synchronized ServiceResponse start() {
+		if (!running) {
+			running = true;
+			backoffNanos = 0;
+			schedule(0);
+		}
+		return createOkResponse(getStatus());
+	}
+
+	/**
+	 * Stops creating the appointments. The creation in progress is completed.
+	 *
+	 * @return Response with the {@link SchedulerStatus}.
+	 */
+	public synchronized ServiceResponse stop() {
+		if (running) {
+			running = false;
+			nextCreation.cancel(false);
+		}
+		return createOkResponse(getStatus());
+	}
+
+	/**
+	 * Changes the target rate. The next appointment is scheduled according to the new rate.
+	 *
+	 * @param rate the number of appointments per second.
+	 * @return Response with the {@link SchedulerStatus}.
+	 */
+	public synchronized ServiceResponse setRate(double rate) {
+		if (!isValidRate(rate)) {
+			List<String> errors = new ArrayList<>();
+			errors.add(RATE_ERROR);
+			return createErrorResponse(errors);
+		}
+
+		this.rate = rate;
+		if (running && nextCreation.cancel(false)) {
+			schedule(getNextDelayNanos());
+		}
+		return createOkResponse(getStatus());
+	}
+
+	private static boolean isValidRate(double rate) {
+		return rate > 0 && rate <= MAX_RATE;
+	}
+
+	/**
+	 * Retrieves the state of the scheduler.
+	 *
+	 * @return Response with the {@link SchedulerStatus}.
+	 */
+	public synchronized ServiceResponse getSchedulerStatus() {
+		return createOkResponse(getStatus());
+	}
+
+	private SchedulerStatus getStatus() {
+		return new SchedulerStatus(running, rate, jitter, created, averageLatencyNanos / 1_000_000,
+				backoffNanos > 0, saturated);
+	}
+
+	private void schedule(long delayNanos) {
+		long current = ++generation;
+		nextCreation = executor.schedule(() -> createAppointment(current), delayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private void createAppointment(long scheduledGeneration) {
+		long started = System.nanoTime();
+		ServiceResponse response = null;
+		try {
+			response = service.createRandomAppointments(1, LocalDate.now().plusDays(horizonDays));
+		} finally {
+			long latency = System.nanoTime() - started;
+			boolean failed = response == null || response.getResult() != ServiceResponse.ResultType.OK;
+
+			synchronized (this) {
+				recordCreation(latency, failed, failed ? 0 : (Integer) response.getPayload());
+				if (running && scheduledGeneration == generation) {
+					schedule(getNextDelayNanos());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Updates the moving average of the creation time and the backoff. A successful creation of no appointment
+	 * means, that the horizon is full.
+	 */
+	synchronized void recordCreation(long latencyNanos, boolean failed, int count) {
+		created += count;
+		saturated = !failed && count == 0;
+		averageLatencyNanos = averageLatencyNanos == 0 ? latencyNanos
+				: LATENCY_SMOOTHING * latencyNanos + (1 - LATENCY_SMOOTHING) * averageLatencyNanos;
+
+		if (failed || saturated || averageLatencyNanos > latencyThresholdNanos) {
+			long doubled = backoffNanos == 0 ? 2 * getIntervalNanos() : 2 * backoffNanos;
+			backoffNanos = Math.min(doubled, maxPauseNanos);
+		} else {
+			backoffNanos = 0;
+		}
+	}
+
+	/**
+	 * Returns the delay before the next appointment: the average interval randomly shifted by up to the jitter,
+	 * but not shorter than the backoff.
+	 */
+	synchronized long getNextDelayNanos() {
+		double shift = jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+		long delay = (long) (getIntervalNanos() * (1 + shift));
+		return Math.max(delay, backoffNanos);
+	}
+
+	private long getIntervalNanos() {
+		return (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+	}
+
+	@PreDestroy
+	void shutdown() {
+		stop();
+		executor.shutdownNow();
+	}
+}
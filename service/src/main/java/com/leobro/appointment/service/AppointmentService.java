@@ -1,53 +1,171 @@
 package com.leobro.appointment.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static com.leobro.appointment.service.ResponseFactory.*;
 
 /**
  * Holds the business logic of the application. Handles requests from the REST controller.
+ * <p>Each operation has an asynchronous variant, which runs the operation on the bounded storage executor, so that
+ * the thread of the caller is not blocked while the data storage works.
+ * <p>The responses of the asynchronous operations are counted by the {@value #RESPONSES} counter tagged by the
+ * {@link ServiceResponse.ResultType}. The unexpected errors are logged.
+ * <p>Every change raises the modification watermarks of the days of the changed appointments, after the change is
+ * made, so that a client can tell from the watermark of a date range whether the range has changed.
  */
 @Service
-public class AppointmentService {
+public class AppointmentService implements MeterBinder {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AppointmentService.class);
 
 	private static final String QUANTITY_ERROR = "Quantity must be a positive integer.";
 	private static final String END_DATE_ERROR = "End date must be in future.";
+	private static final String HORIZON_ERROR = "End date must not be later than " +
+			AppointmentService.MAX_RANDOM_DAYS + " days from today.";
 	private static final String DATES_ERROR = "Start date must be before the end date.";
+	private static final String LIMIT_ERROR = "Limit must be a positive integer not greater than " +
+			AppointmentService.MAX_PAGE_SIZE + ".";
+	private static final String CURSOR_ERROR = "Cursor is invalid.";
+	private static final String SELECTION_ERROR = "Either IDs or start and end dates must be given.";
+	private static final String AVAILABILITY_RANGE_ERROR = "The date interval must not be longer than " +
+			AppointmentService.MAX_AVAILABILITY_DAYS + " days.";
+
+	static final int MAX_PAGE_SIZE = 1000;
+	static final int MAX_AVAILABILITY_DAYS = 366;
+	static final int MAX_RANDOM_DAYS = 366;
+	static final int RANDOM_CHUNK_SIZE = 500;
+	static final String RESPONSES = "appointment.service.responses";
 
 	private AppointmentStorage storage;
+	private SlotOccupancy occupancy;
+	private DayWatermarks watermarks;
+	private Executor storageExecutor;
+	private volatile Map<ServiceResponse.ResultType, Counter> responseCounters = Collections.emptyMap();
 
 	@Autowired
-	AppointmentService(AppointmentStorage storage) {
+	AppointmentService(AppointmentStorage storage,
+					   @Qualifier(ServiceConfiguration.STORAGE_EXECUTOR) Executor storageExecutor) {
 		this.storage = storage;
+		this.occupancy = new SlotOccupancy(storage);
+		this.watermarks = new DayWatermarks();
+		this.storageExecutor = storageExecutor;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Map<ServiceResponse.ResultType, Counter> counters = new EnumMap<>(ServiceResponse.ResultType.class);
+		for (ServiceResponse.ResultType type : ServiceResponse.ResultType.values()) {
+			counters.put(type, Counter.builder(RESPONSES)
+					.description("Responses of the service operations")
+					.tag("result", type.name())
+					.register(registry));
+		}
+		responseCounters = counters;
+	}
+
+	private ServiceResponse count(ServiceResponse response) {
+		Counter counter = responseCounters.get(response.getResult());
+		if (counter != null) {
+			counter.increment();
+		}
+		return response;
 	}
 
 	/**
-	 * Creates a new appointment in the data storage according to the passed object.
+	 * Runs the operation on the storage executor. The trace of the caller is passed to the executor thread, where
+	 * the time the operation waited in the queue and the time of the operation are recorded as spans.
+	 *
+	 * @param name the name of the operation in the trace.
+	 * @return The future response of the operation or the completed response telling that the service is
+	 * overloaded, if the executor has no capacity left.
+	 */
+	private CompletableFuture<ServiceResponse> runAsync(String name, Supplier<ServiceResponse> operation) {
+		Trace trace = Trace.current();
+		long submitted = System.nanoTime();
+		Supplier<ServiceResponse> traced = () -> {
+			trace.record("executor.queue", submitted, System.nanoTime());
+			try (Trace.Span ignored = Trace.span("service." + name)) {
+				return operation.get();
+			}
+		};
+
+		try {
+			return CompletableFuture.supplyAsync(trace == null ? operation : trace.wrap(traced), storageExecutor)
+					.thenApply(this::count);
+		} catch (RejectedExecutionException e) {
+			return CompletableFuture.completedFuture(count(createUnavailableResponse()));
+		}
+	}
+
+	/**
+	 * Creates a new appointment in the data storage according to the passed object. The appointment is rejected,
+	 * if its time slot is already taken by another appointment.
 	 *
 	 * @param appointment the {@link Appointment} object containing data to be persisted.
 	 * @return The response with the ID of the appointment created in the data storage.
 	 */
 	public ServiceResponse createAppointment(Appointment appointment) {
+		boolean reserved = false;
 		try {
+			if (!occupancy.reserve(appointment.getTime())) {
+				return createConflictResponse();
+			}
+			reserved = true;
+
 			long id = storage.createAppointment(appointment);
 			return createCreatedResponse(id);
 		} catch (Exception e) {
+			if (reserved) {
+				occupancy.release(appointment.getTime());
+			}
+			LOGGER.error("Failed to create the appointment at {}", appointment.getTime(), e);
 			return createFatalResponse();
+		} finally {
+			if (reserved) {
+				watermarks.raise(appointment.getTime().toLocalDate());
+			}
 		}
 	}
 
+	/**
+	 * Same as {@link #createAppointment(Appointment)}, but runs on the storage executor.
+	 *
+	 * @return The future response of the operation.
+	 */
+	public CompletableFuture<ServiceResponse> createAppointmentAsync(Appointment appointment) {
+		return runAsync("createAppointment", () -> createAppointment(appointment));
+	}
+
 	/**
 	 * Randomly creates given number of test appointments from current moment to the end of the given date.
+	 * The appointments are sampled from the free slots, so exactly the given number is created, unless fewer
+	 * slots are free.
 	 *
 	 * @param quantity the number of appointments to create,
-	 * @param endDate  the last date for the appointments.
+	 * @param endDate  the last date for the appointments, less than {@link #MAX_RANDOM_DAYS} days from today.
 	 * @return The response with the number of actually created appointments.
 	 */
 	public ServiceResponse createRandomAppointments(int quantity, LocalDate endDate) {
@@ -56,18 +174,65 @@ public class AppointmentService {
 			return createErrorResponse(errors);
 		}
 
-		List<Appointment> appointments = RandomHelper.getRandomAppointments(quantity, endDate);
-
+		// the appointments are generated lazily and persisted chunk by chunk
+		List<Appointment> chunk = new ArrayList<>(Math.min(quantity, RANDOM_CHUNK_SIZE));
 		try {
-			for (Appointment app : appointments) {
-				storage.createAppointment(app);
+			int count = 0;
+			int reserved = 0;
+			// a slot taken by another request after the free slots were listed is replaced in the next round
+			while (reserved < quantity) {
+				LocalDateTime now = LocalDateTime.now();
+				List<LocalDateTime> free = occupancy.getFreeSlots(now.toLocalDate(), endDate).stream()
+						.filter(slot -> slot.isAfter(now))
+						.collect(Collectors.toList());
+				if (free.isEmpty()) {
+					break;
+				}
+
+				Iterator<Appointment> appointments = RandomHelper.getRandomAppointments(quantity - reserved, free)
+						.iterator();
+				while (appointments.hasNext()) {
+					Appointment appointment = appointments.next();
+					if (occupancy.reserve(appointment.getTime())) {
+						chunk.add(appointment);
+						reserved++;
+					}
+					if (chunk.size() == RANDOM_CHUNK_SIZE || !appointments.hasNext() && !chunk.isEmpty()) {
+						try {
+							count += storage.createAppointments(chunk).size();
+						} finally {
+							raise(chunk);
+						}
+						chunk = new ArrayList<>(RANDOM_CHUNK_SIZE);
+					}
+				}
 			}
-			return createOkResponse(appointments.size());
+			return createOkResponse(count);
 		} catch (Exception e) {
+			for (Appointment appointment : chunk) {
+				occupancy.release(appointment.getTime());
+			}
+			LOGGER.error("Failed to create {} random appointments", quantity, e);
 			return createFatalResponse();
 		}
 	}
 
+	/**
+	 * Same as {@link #createRandomAppointments(int, LocalDate)}, but runs on the storage executor.
+	 *
+	 * @return The future response of the operation.
+	 */
+	public CompletableFuture<ServiceResponse> createRandomAppointmentsAsync(int quantity, LocalDate endDate) {
+		return runAsync("createRandomAppointments", () -> createRandomAppointments(quantity, endDate));
+	}
+
+	private void raise(List<Appointment> appointments) {
+		appointments.stream()
+				.map(appointment -> appointment.getTime().toLocalDate())
+				.distinct()
+				.forEach(watermarks::raise);
+	}
+
 	private static List<String> verifyRandom(int quantity, LocalDate endDate) {
 		ArrayList<String> errors = new ArrayList<>();
 
@@ -77,6 +242,8 @@ public class AppointmentService {
 
 		if (endDate.isBefore(LocalDate.now())) {
 			errors.add(END_DATE_ERROR);
+		} else if (ChronoUnit.DAYS.between(LocalDate.now(), endDate) >= MAX_RANDOM_DAYS) {
+			errors.add(HORIZON_ERROR);
 		}
 		return errors;
 	}
@@ -94,10 +261,42 @@ public class AppointmentService {
 		} catch (NoSuchElementException e) {
 			return createNotFoundResponse();
 		} catch (Exception e) {
+			LOGGER.error("Failed to read the appointment {}", id, e);
 			return createFatalResponse();
 		}
 	}
 
+	/**
+	 * Same as {@link #getAppointment(long)}, but runs on the storage executor.
+	 *
+	 * @return The future response of the operation.
+	 */
+	public CompletableFuture<ServiceResponse> getAppointmentAsync(long id) {
+		return runAsync("getAppointment", () -> getAppointment(id));
+	}
+
+	/**
+	 * Returns the epoch of this process: a random value chosen on every start. An entity tag containing it is never
+	 * taken for a current one after a restart, when the in-memory storages start the IDs and the versions over.
+	 */
+	public String getEpoch() {
+		return watermarks.getEpoch();
+	}
+
+	/**
+	 * Returns the modification watermark of the date range without a request to the data storage. The watermark is
+	 * to be taken before the appointments are read, then it is never newer than the appointments.
+	 *
+	 * @param startDate start date of the date interval,
+	 * @param endDate   end date of the date interval.
+	 * @return The watermark, which differs from every watermark returned before, if an appointment within the date
+	 * interval was created, changed or deleted through this service since then, and at least every
+	 * {@link DayWatermarks#LIFETIME}, so that the changes made by the other processes are seen too.
+	 */
+	public String getWatermark(LocalDate startDate, LocalDate endDate) {
+		return watermarks.get(startDate, endDate);
+	}
+
 	/**
 	 * Retrieves all appointments that are scheduled between the passed date range sorted by their price.
 	 *
@@ -113,13 +312,147 @@ public class AppointmentService {
 
 		try {
 			List<Appointment> appointments = storage.getAllAppointments(startDate, endDate);
-			appointments.sort(Comparator.comparing(Appointment::getPrice));
 			return createOkResponse(appointments);
 		} catch (Exception e) {
+			LOGGER.error("Failed to read the appointments from {} to {}", startDate, endDate, e);
+			return createFatalResponse();
+		}
+	}
+
+	/**
+	 * Same as {@link #getAllAppointments(LocalDate, LocalDate)}, but runs on the storage executor.
+	 *
+	 * @return The future response of the operation.
+	 */
+	public CompletableFuture<ServiceResponse> getAllAppointmentsAsync(LocalDate startDate, LocalDate endDate) {
+		return runAsync("getAllAppointments", () -> getAllAppointments(startDate, endDate));
+	}
+
+	/**
+	 * Same as {@link #getAllAppointments(LocalDate, LocalDate)}, but the appointments are read from the data storage
+	 * only when the client consumes them, so that the whole result is never held in memory.
+	 *
+	 * @param startDate start date of the date interval; must be earlier then endDate,
+	 * @param endDate   end date of the date interval; must be later then startDate.
+	 * @return The response with the {@link AppointmentStream} of all appointments within the date interval sorted
+	 * by the price.
+	 */
+	public ServiceResponse streamAllAppointments(LocalDate startDate, LocalDate endDate) {
+		List<String> errors = verifyDates(startDate, endDate);
+		if (errors.size() > 0) {
+			return createErrorResponse(errors);
+		}
+
+		AppointmentStream appointments = consumer -> storage.forEachAppointment(startDate, endDate, consumer);
+		return createOkResponse(appointments);
+	}
+
+	/**
+	 * Retrieves one page of the appointments that are scheduled between the passed date range sorted by their price.
+	 *
+	 * @param startDate start date of the date interval; must be earlier then endDate,
+	 * @param endDate   end date of the date interval; must be later then startDate,
+	 * @param cursor    the cursor from the previous page; {@code null} for the first page,
+	 * @param limit     the maximal number of appointments on the page.
+	 * @return The response with the {@link AppointmentPage} in its payload.
+	 */
+	public ServiceResponse getAppointmentsPage(LocalDate startDate, LocalDate endDate, String cursor, int limit) {
+		List<String> errors = verifyDates(startDate, endDate);
+		if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+			errors.add(LIMIT_ERROR);
+		}
+
+		PageCursor after = null;
+		if (cursor != null) {
+			try {
+				after = PageCursor.decode(cursor);
+			} catch (IllegalArgumentException e) {
+				errors.add(CURSOR_ERROR);
+			}
+		}
+		if (errors.size() > 0) {
+			return createErrorResponse(errors);
+		}
+
+		try {
+			// one extra appointment tells whether there is a next page
+			List<Appointment> appointments = storage.getAppointmentsPage(startDate, endDate, after, limit + 1);
+			String nextCursor = null;
+			if (appointments.size() > limit) {
+				appointments = appointments.subList(0, limit);
+				nextCursor = PageCursor.after(appointments.get(limit - 1)).encode();
+			}
+			return createOkResponse(new AppointmentPage(appointments, nextCursor));
+		} catch (Exception e) {
+			LOGGER.error("Failed to read a page of the appointments from {} to {}", startDate, endDate, e);
 			return createFatalResponse();
 		}
 	}
 
+	/**
+	 * Same as {@link #getAppointmentsPage(LocalDate, LocalDate, String, int)}, but runs on the storage executor.
+	 *
+	 * @return The future response of the operation.
+	 */
+	public CompletableFuture<ServiceResponse> getAppointmentsPageAsync(LocalDate startDate, LocalDate endDate,
+																	  String cursor, int limit) {
+		return runAsync("getAppointmentsPage", () -> getAppointmentsPage(startDate, endDate, cursor, limit));
+	}
+
+	/**
+	 * Finds the free slots for new appointments between the passed date range. The slots in the past are omitted.
+	 *
+	 * @param startDate start date of the date interval; must be earlier then endDate,
+	 * @param endDate   end date of the date interval; must be later then startDate.
+	 * @return The response with the start times of the free slots in the order of time.
+	 */
+	public ServiceResponse getAvailability(LocalDate startDate, LocalDate endDate) {
+		List<String> errors = verifyDates(startDate, endDate);
+		if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_AVAILABILITY_DAYS) {
+			errors.add(AVAILABILITY_RANGE_ERROR);
+		}
+		if (errors.size() > 0) {
+			return createErrorResponse(errors);
+		}
+
+		try {
+			LocalDateTime now = LocalDateTime.now();
+			List<LocalDateTime> slots = occupancy.getFreeSlots(startDate, endDate).stream()
+					.filter(slot -> slot.isAfter(now))
+					.collect(Collectors.toList());
+			return createOkResponse(slots);
+		} catch (Exception e) {
+			LOGGER.error("Failed to read the free slots from {} to {}", startDate, endDate, e);
+			return createFatalResponse();
+		}
+	}
+
+	/**
+	 * Same as {@link #getAvailability(LocalDate, LocalDate)}, but runs on the storage executor.
+	 *
+	 * @return The future response of the operation.
+	 */
+	public CompletableFuture<ServiceResponse> getAvailabilityAsync(LocalDate startDate, LocalDate endDate) {
+		return runAsync("getAvailability", () -> getAvailability(startDate, endDate));
+	}
+
+	/**
+	 * Checks the date interval of a range query, which the client performs on its own, for example on a reactive
+	 * data storage.
+	 *
+	 * @param startDate start date of the date interval; must be earlier then endDate,
+	 * @param endDate   end date of the date interval; must be later then startDate.
+	 * @return The response with the errors, if the date interval is invalid, the response with the empty payload
+	 * otherwise.
+	 */
+	public ServiceResponse checkDateRange(LocalDate startDate, LocalDate endDate) {
+		List<String> errors = verifyDates(startDate, endDate);
+		if (errors.size() > 0) {
+			return createErrorResponse(errors);
+		}
+		return createOkResponse(null);
+	}
+
 	private static List<String> verifyDates(LocalDate startDate, LocalDate endDate) {
 		ArrayList<String> errors = new ArrayList<>();
 
@@ -137,14 +470,116 @@ public class AppointmentService {
 	 * @return Response with the empty payload.
 	 */
 	public ServiceResponse updateAppointmentStatus(long id, Appointment.AppStatus status) {
+		return updateStatus(id, () -> storage.updateAppointmentStatus(id, status));
+	}
+
+	/**
+	 * Updates the status of the existing appointment, if nobody has changed it since the client read it. Nothing
+	 * is locked while the client decides on the status: the data storage compares the version at the update.
+	 *
+	 * @param id      ID of the appointment,
+	 * @param status  new status for the appointment,
+	 * @param version the version of the appointment read by the client.
+	 * @return Response with the empty payload, or the response telling that the appointment has another version.
+	 */
+	public ServiceResponse updateAppointmentStatus(long id, Appointment.AppStatus status, long version) {
+		return updateStatus(id, () -> storage.updateAppointmentStatus(id, status, version));
+	}
+
+	private ServiceResponse updateStatus(long id, Supplier<LocalDateTime> update) {
 		try {
-			storage.updateAppointmentStatus(id, status);
+			// the day of the watermark comes from the update, null is a missed version
+			LocalDateTime time = update.get();
+			if (time == null) {
+				return createPreconditionFailedResponse();
+			}
+			watermarks.raise(time.toLocalDate());
 			return createOkResponse(null);
 		} catch (NoSuchElementException e) {
 			return createNotFoundResponse();
 		} catch (Exception e) {
+			// a failed update may still have been made, and its day is not known
+			watermarks.raiseAll();
+			LOGGER.error("Failed to update the status of the appointment {}", id, e);
+			return createFatalResponse();
+		}
+	}
+
+	/**
+	 * Same as {@link #updateAppointmentStatus(long, Appointment.AppStatus)}, but runs on the storage executor.
+	 *
+	 * @return The future response of the operation.
+	 */
+	public CompletableFuture<ServiceResponse> updateAppointmentStatusAsync(long id, Appointment.AppStatus status) {
+		return runAsync("updateAppointmentStatus", () -> updateAppointmentStatus(id, status));
+	}
+
+	/**
+	 * Same as {@link #updateAppointmentStatus(long, Appointment.AppStatus, long)}, but runs on the storage executor.
+	 *
+	 * @return The future response of the operation.
+	 */
+	public CompletableFuture<ServiceResponse> updateAppointmentStatusAsync(long id, Appointment.AppStatus status,
+																		   long version) {
+		return runAsync("updateAppointmentStatus", () -> updateAppointmentStatus(id, status, version));
+	}
+
+	/**
+	 * Moves many appointments from one status to another with as few requests to the data storage as possible.
+	 *
+	 * @param transition the appointments to change, selected by IDs or by a date interval, and the statuses.
+	 * @return Response with the number of changed appointments.
+	 */
+	public ServiceResponse updateAppointmentStatuses(StatusTransition transition) {
+		List<String> errors = verifyTransition(transition);
+		if (errors.size() > 0) {
+			return createErrorResponse(errors);
+		}
+
+		try {
+			int count;
+			if (transition.getIds() != null) {
+				count = storage.updateAppointmentStatuses(transition.getIds(), transition.getFromStatus(),
+						transition.getToStatus());
+			} else {
+				count = storage.updateAppointmentStatuses(transition.getStartDate(), transition.getEndDate(),
+						transition.getFromStatus(), transition.getToStatus());
+			}
+			return createOkResponse(count);
+		} catch (Exception e) {
+			LOGGER.error("Failed to update the statuses of the appointments", e);
 			return createFatalResponse();
+		} finally {
+			if (transition.getIds() != null) {
+				watermarks.raiseAll();
+			} else {
+				watermarks.raise(transition.getStartDate(), transition.getEndDate());
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link #updateAppointmentStatuses(StatusTransition)}, but runs on the storage executor.
+	 *
+	 * @return The future response of the operation.
+	 */
+	public CompletableFuture<ServiceResponse> updateAppointmentStatusesAsync(StatusTransition transition) {
+		return runAsync("updateAppointmentStatuses", () -> updateAppointmentStatuses(transition));
+	}
+
+	private static List<String> verifyTransition(StatusTransition transition) {
+		boolean byIds = transition.getIds() != null;
+		boolean byDates = transition.getStartDate() != null && transition.getEndDate() != null;
+
+		if (byIds == byDates) {
+			ArrayList<String> errors = new ArrayList<>();
+			errors.add(SELECTION_ERROR);
+			return errors;
+		}
+		if (byDates) {
+			return verifyDates(transition.getStartDate(), transition.getEndDate());
 		}
+		return new ArrayList<>();
 	}
 
 	/**
@@ -156,11 +591,60 @@ public class AppointmentService {
 	public ServiceResponse deleteAppointment(long id) {
 		try {
 			Appointment appointment = storage.deleteAppointment(id);
+			occupancy.release(appointment.getTime());
+			watermarks.raise(appointment.getTime().toLocalDate());
 			return createOkResponse(appointment);
 		} catch (NoSuchElementException e) {
 			return createNotFoundResponse();
 		} catch (Exception e) {
+			LOGGER.error("Failed to delete the appointment {}", id, e);
+			return createFatalResponse();
+		}
+	}
+
+	/**
+	 * Same as {@link #deleteAppointment(long)}, but runs on the storage executor.
+	 *
+	 * @return The future response of the operation.
+	 */
+	public CompletableFuture<ServiceResponse> deleteAppointmentAsync(long id) {
+		return runAsync("deleteAppointment", () -> deleteAppointment(id));
+	}
+
+	/**
+	 * Deletes all appointments with the given status that are scheduled between the passed date range, for example
+	 * the passed appointments older than some date.
+	 *
+	 * @param startDate start date of the date interval; must be earlier then endDate,
+	 * @param endDate   end date of the date interval; must be later then startDate,
+	 * @param status    the status of the appointments to delete.
+	 * @return Response with the number of deleted appointments.
+	 */
+	public ServiceResponse deleteAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status) {
+		List<String> errors = verifyDates(startDate, endDate);
+		if (errors.size() > 0) {
+			return createErrorResponse(errors);
+		}
+
+		try {
+			int count = storage.deleteAppointments(startDate, endDate, status);
+			return createOkResponse(count);
+		} catch (Exception e) {
+			LOGGER.error("Failed to delete the appointments from {} to {}", startDate, endDate, e);
 			return createFatalResponse();
+		} finally {
+			occupancy.invalidate(startDate, endDate);
+			watermarks.raise(startDate, endDate);
 		}
 	}
+
+	/**
+	 * Same as {@link #deleteAppointments(LocalDate, LocalDate, Appointment.AppStatus)}, but runs on the storage executor.
+	 *
+	 * @return The future response of the operation.
+	 */
+	public CompletableFuture<ServiceResponse> deleteAppointmentsAsync(LocalDate startDate, LocalDate endDate,
+																	 Appointment.AppStatus status) {
+		return runAsync("deleteAppointments", () -> deleteAppointments(startDate, endDate, status));
+	}
 }
@@ -1,8 +1,11 @@
 package com.leobro.appointment.service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 /**
  * API specification for the proxy to a concrete data storage. Contains data manipulation methods.
@@ -17,6 +20,17 @@ public interface AppointmentStorage {
 	 */
 	long createAppointment(Appointment appointment);
 
+	/**
+	 * Creates new appointments in the data storage in bulk. Meant for large amounts of appointments, so the
+	 * implementation should avoid a round trip to the data storage per appointment.
+	 * <p>The creation is atomic: if an exception is thrown, none of the appointments is created, so the caller may
+	 * free the slots of all of them.
+	 *
+	 * @param appointments the {@link Appointment} objects containing data to be persisted.
+	 * @return IDs of the appointments created in the data storage in the order of the passed objects.
+	 */
+	List<Long> createAppointments(List<Appointment> appointments);
+
 	/**
 	 * Retrieves the appointment with the passed ID from the data storage.
 	 *
@@ -34,13 +48,75 @@ public interface AppointmentStorage {
 	 */
 	List<Appointment> getAllAppointments(LocalDate startDate, LocalDate endDate);
 
+	/**
+	 * Passes all appointments that are scheduled between the passed date range to the consumer one by one in
+	 * the order of their price. Unlike {@link #getAllAppointments(LocalDate, LocalDate)}, doesn't hold
+	 * the whole result in memory.
+	 *
+	 * @param startDate start date of the date interval; must be earlier then endDate,
+	 * @param endDate   end date of the date interval; must be later then startDate,
+	 * @param consumer  the action to be performed on each appointment.
+	 */
+	void forEachAppointment(LocalDate startDate, LocalDate endDate, Consumer<Appointment> consumer);
+
+	/**
+	 * Retrieves a page of the appointments that are scheduled between the passed date range sorted by their price
+	 * and ID. The page starts right after the position of the cursor, so the cost doesn't depend on how far
+	 * the client has paged.
+	 *
+	 * @param startDate start date of the date interval; must be earlier then endDate,
+	 * @param endDate   end date of the date interval; must be later then startDate,
+	 * @param after     the position after which the page starts; {@code null} for the first page,
+	 * @param limit     the maximal number of appointments to retrieve.
+	 * @return Appointments of the page sorted by the price and ID.
+	 */
+	List<Appointment> getAppointmentsPage(LocalDate startDate, LocalDate endDate, PageCursor after, int limit);
+
 	/**
 	 * Updates the status of the existing appointment.
 	 *
 	 * @param id     ID of the appointment,
 	 * @param status new status for the appointment.
+	 * @return The time of the appointment, known from the update itself.
 	 */
-	void updateAppointmentStatus(long id, Appointment.AppStatus status);
+	LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status) throws NoSuchElementException;
+
+	/**
+	 * Updates the status of the existing appointment, if it still has the passed version. The version is compared
+	 * and changed atomically, without holding a lock between reading the appointment and updating it.
+	 *
+	 * @param id      ID of the appointment,
+	 * @param status  new status for the appointment,
+	 * @param version the version of the appointment the update is based on.
+	 * @return The time of the appointment, if the status is updated, {@code null}, if the appointment has another
+	 * version.
+	 */
+	LocalDateTime updateAppointmentStatus(long id, Appointment.AppStatus status, long version)
+			throws NoSuchElementException;
+
+	/**
+	 * Changes the status of the appointments with the passed IDs, if they have the given status.
+	 *
+	 * @param ids        IDs of the appointments,
+	 * @param fromStatus the status the appointments must have to be changed,
+	 * @param toStatus   new status for the appointments.
+	 * @return The number of changed appointments.
+	 */
+	int updateAppointmentStatuses(Collection<Long> ids, Appointment.AppStatus fromStatus,
+								  Appointment.AppStatus toStatus);
+
+	/**
+	 * Changes the status of all appointments that are scheduled between the passed date range and have
+	 * the given status.
+	 *
+	 * @param startDate  start date of the date interval; must be earlier then endDate,
+	 * @param endDate    end date of the date interval; must be later then startDate,
+	 * @param fromStatus the status the appointments must have to be changed,
+	 * @param toStatus   new status for the appointments.
+	 * @return The number of changed appointments.
+	 */
+	int updateAppointmentStatuses(LocalDate startDate, LocalDate endDate, Appointment.AppStatus fromStatus,
+								  Appointment.AppStatus toStatus);
 
 	/**
 	 * Deletes the appointment with the passed ID.
@@ -48,5 +124,16 @@ public interface AppointmentStorage {
 	 * @param id ID of the appointment to be deleted.
 	 * @return Deleted appointment.
 	 */
-	Appointment deleteAppointment(long id);
+	Appointment deleteAppointment(long id) throws NoSuchElementException;
+
+	/**
+	 * Deletes all appointments that are scheduled between the passed date range and have the given status.
+	 * The appointments are deleted in bounded chunks, so that a large purge doesn't block the data storage.
+	 *
+	 * @param startDate start date of the date interval; must be earlier then endDate,
+	 * @param endDate   end date of the date interval; must be later then startDate,
+	 * @param status    the status of the appointments to delete.
+	 * @return The number of deleted appointments.
+	 */
+	int deleteAppointments(LocalDate startDate, LocalDate endDate, Appointment.AppStatus status);
 }
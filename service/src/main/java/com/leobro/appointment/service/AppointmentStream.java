@@ -0,0 +1,18 @@
+package com.leobro.appointment.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Appointments that are read from the data storage lazily, only when they are consumed. Used to pass large results
+ * to the client without holding them in memory.
+ */
+@FunctionalInterface
+public interface AppointmentStream {
+
+	/**
+	 * Reads the appointments from the data storage and passes them to the consumer one by one.
+	 *
+	 * @param consumer the action to be performed on each appointment.
+	 */
+	void forEach(Consumer<Appointment> consumer);
+}
@@ -0,0 +1,111 @@
+package com.leobro.appointment.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modification watermarks of the days: a day's watermark is raised after every change of its appointments. The
+ * watermark of a date range is the highest watermark of its days, so it tells whether the appointments of the range
+ * may have changed without reading them.
+ * <p>A change of the appointments, whose days are not known, raises the watermarks of all days. The watermarks are
+ * numbered anew from a random epoch on every start of the process, so a watermark issued before the restart is never
+ * taken for a current one. Like {@link SlotOccupancy}, the watermarks know only the changes made through this
+ * process, so a watermark also changes when its {@link #LIFETIME} is over. Then a change made by another process is
+ * seen no later than it is seen through the caches of the data storage, which expire after the same time.
+ */
+class DayWatermarks {
+
+	/**
+	 * A change of a longer date range raises the watermarks of all days instead of each day.
+	 */
+	static final int MAX_DAYS = 366;
+
+	/**
+	 * The longest time a watermark is returned for an unchanged date range. Must not be longer than the expiry of
+	 * the data storage caches, see {@code appointment.cache.expire-after-write}.
+	 */
+	static final Duration LIFETIME = Duration.ofMinutes(5);
+
+	private final Clock clock;
+	private final long lifetimeMillis;
+	private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+	private final AtomicLong counter = new AtomicLong();
+	private final ConcurrentNavigableMap<LocalDate, Long> days = new ConcurrentSkipListMap<>();
+	private volatile long allDays;
+
+	DayWatermarks() {
+		this(Clock.systemUTC(), LIFETIME);
+	}
+
+	DayWatermarks(Clock clock, Duration lifetime) {
+		this.clock = clock;
+		this.lifetimeMillis = lifetime.toMillis();
+	}
+
+	/**
+	 * Returns the random epoch of the watermarks, which differs on every start of the process.
+	 */
+	String getEpoch() {
+		return epoch;
+	}
+
+	/**
+	 * Raises the watermark of the day.
+	 *
+	 * @param day the day of the changed appointment.
+	 */
+	void raise(LocalDate day) {
+		days.merge(day, counter.incrementAndGet(), Math::max);
+	}
+
+	/**
+	 * Raises the watermarks of the days of the date range.
+	 *
+	 * @param startDate the first day of the changed appointments,
+	 * @param endDate   the last day of the changed appointments.
+	 */
+	void raise(LocalDate startDate, LocalDate endDate) {
+		if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_DAYS) {
+			raiseAll();
+			return;
+		}
+		long mark = counter.incrementAndGet();
+		for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+			days.merge(day, mark, Math::max);
+		}
+	}
+
+	/**
+	 * Raises the watermarks of all days.
+	 */
+	void raiseAll() {
+		allDays = counter.incrementAndGet();
+	}
+
+	/**
+	 * Returns the watermark of the date range. Only the days changed since the start of the process are looked at.
+	 * The watermark ends with the number of the current lifetime period, so it is never returned longer than for
+	 * {@link #LIFETIME}.
+	 *
+	 * @param startDate the first day of the range,
+	 * @param endDate   the last day of the range.
+	 * @return The watermark, which differs from every watermark returned before, if an appointment of the range
+	 * was changed since then or its lifetime is over.
+	 */
+	String get(LocalDate startDate, LocalDate endDate) {
+		long mark = allDays;
+		if (!startDate.isAfter(endDate)) {
+			for (long dayMark : days.subMap(startDate, true, endDate, true).values()) {
+				mark = Math.max(mark, dayMark);
+			}
+		}
+		long period = clock.millis() / lifetimeMillis;
+		return epoch + "-" + Long.toHexString(mark) + "-" + Long.toHexString(period);
+	}
+}
@@ -0,0 +1,81 @@
+package com.leobro.appointment.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Position in the list of appointments sorted by price and ID. Points to the last appointment of a page,
+ * the next page starts right after it. The client gets the cursor as an opaque string.
+ */
+public class PageCursor {
+
+	private static final String SEPARATOR = ":";
+
+	private final double price;
+	private final long id;
+
+	public PageCursor(double price, long id) {
+		this.price = price;
+		this.id = id;
+	}
+
+	/**
+	 * Creates the cursor pointing to the passed appointment.
+	 *
+	 * @param appointment the last appointment of a page.
+	 * @return The cursor for the next page.
+	 */
+	static PageCursor after(Appointment appointment) {
+		return new PageCursor(appointment.getPrice(), appointment.getId());
+	}
+
+	/**
+	 * Restores the cursor from the string given to the client.
+	 *
+	 * @param value the string created by {@link #encode()}.
+	 * @return The cursor.
+	 * @throws IllegalArgumentException if the string is not a valid cursor.
+	 */
+	static PageCursor decode(String value) throws IllegalArgumentException {
+		String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+		String[] parts = decoded.split(SEPARATOR);
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Invalid cursor: " + value);
+		}
+		// NumberFormatException is an IllegalArgumentException
+		return new PageCursor(Double.parseDouble(parts[0]), Long.parseLong(parts[1]));
+	}
+
+	/**
+	 * Converts the cursor to the string given to the client.
+	 *
+	 * @return URL-safe string.
+	 */
+	String encode() {
+		String value = price + SEPARATOR + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		PageCursor that = (PageCursor) o;
+		return Double.compare(that.price, price) == 0 &&
+				id == that.id;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(price, id);
+	}
+}
@@ -3,90 +3,107 @@ package com.leobro.appointment.service;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
 
 /**
  * Helper class for creation random appointments for testing purposes.
  * <p>Appointments are created for the specified date range only within work hours. For the sake of simplicity,
  * they are created only to a round hour, but randomly. Thus, each round work hour represents a slot for an appointment.
- * If two appointments would take the same time slot, one of them is neglected.
+ * <p>The slots are numbered from the next work hour of today to the last work hour of the end date and are never
+ * listed: the time of a slot is calculated from its number. The requested number of distinct slots is sampled
+ * by Floyd's algorithm, so the memory needed depends on the quantity, not on the date range. The same way,
+ * the appointments are sampled from a list of the free slots.
  */
 class RandomHelper {
 
-	private static final int START_WORK_HOUR = 9;
-	private static final int END_WORK_HOUR = 17;
+	static final int START_WORK_HOUR = 9;
+	static final int END_WORK_HOUR = 17;
+	static final int SLOTS_PER_DAY = END_WORK_HOUR - START_WORK_HOUR;
 
 	private static final String[] FIRST_NAMES = new String[]{"Gillian", "Kevin", "Arthur", "Danny"};
 	private static final String[] LAST_NAMES = new String[]{"Anderson", "Bacon", "Cohn", "DeVito", "Ericson", "Ford"};
 
 	private static final Random random = new Random();
 
-	static List<Appointment> getRandomAppointments(int quantity, LocalDate endDate) {
-		List<LocalDateTime> slots = createAppointmentSlotsForToday();
-		slots.addAll(createAppointmentSlotsForNextFullDays(endDate));
-
-		List<Integer> slotIndices = getRandomIntegers(quantity, slots.size() - 1);
-
-		return generateAppointments(slots, slotIndices);
+	/**
+	 * Creates the appointments in distinct random slots from the next work hour to the end of the given date.
+	 *
+	 * @param quantity the number of appointments to create,
+	 * @param endDate  the last date for the appointments.
+	 * @return The appointments in the order of time, created while the stream is consumed. There are as many
+	 * of them as requested, unless the date range has fewer slots.
+	 */
+	static Stream<Appointment> getRandomAppointments(int quantity, LocalDate endDate) {
+		return getRandomAppointments(quantity, endDate, LocalDateTime.now());
 	}
 
-	private static List<LocalDateTime> createAppointmentSlotsForToday() {
-		List<LocalDateTime> slots = new ArrayList<>();
-		LocalDateTime now = LocalDateTime.now();
+	static Stream<Appointment> getRandomAppointments(int quantity, LocalDate endDate, LocalDateTime now) {
+		LocalDate today = now.toLocalDate();
+		// today's slots before the next hour are in the past
+		int firstSlot = Math.min(Math.max(now.getHour() + 1 - START_WORK_HOUR, 0), SLOTS_PER_DAY);
+		long slotCount = (ChronoUnit.DAYS.between(today, endDate) + 1) * SLOTS_PER_DAY - firstSlot;
 
-		int nextHour = now.plusHours(1).getHour();
-		int startHour = START_WORK_HOUR;
-		if (nextHour > START_WORK_HOUR) {
-			startHour = nextHour;
-		}
+		long[] slots = getRandomDistinctSorted((int) Math.min(quantity, Math.max(slotCount, 0)), slotCount);
 
-		if (nextHour < END_WORK_HOUR) {
-			for (int hour = startHour; hour < END_WORK_HOUR; hour++) {
-				slots.add(now.withHour(hour).truncatedTo(ChronoUnit.HOURS));
-			}
-		}
-		return slots;
+		return Arrays.stream(slots)
+				.mapToObj(slot -> generateAppointment(getSlotTime(today, firstSlot + slot)));
 	}
 
-	private static List<LocalDateTime> createAppointmentSlotsForNextFullDays(LocalDate endDate) {
-		List<LocalDateTime> slots = new ArrayList<>();
-		int fullDayCount = (int) ChronoUnit.DAYS.between(LocalDate.now(), endDate);
-		LocalDateTime day = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+	/**
+	 * Creates the appointments in distinct random slots of the passed ones.
+	 *
+	 * @param quantity the number of appointments to create,
+	 * @param slots    the start times of the slots in the order of time.
+	 * @return The appointments in the order of time, created while the stream is consumed. There are as many
+	 * of them as requested, unless there are fewer slots.
+	 */
+	static Stream<Appointment> getRandomAppointments(int quantity, List<LocalDateTime> slots) {
+		long[] indexes = getRandomDistinctSorted(Math.min(quantity, slots.size()), slots.size());
+
+		return Arrays.stream(indexes)
+				.mapToObj(index -> generateAppointment(slots.get((int) index)));
+	}
 
-		for (int dayIndex = 1; dayIndex <= fullDayCount; dayIndex++) {
-			day = day.plusDays(1);
+	private static LocalDateTime getSlotTime(LocalDate today, long slot) {
+		return today.plusDays(slot / SLOTS_PER_DAY)
+				.atTime(START_WORK_HOUR + (int) (slot % SLOTS_PER_DAY), 0);
+	}
 
-			for (int hour = START_WORK_HOUR; hour < END_WORK_HOUR; hour++) {
-				slots.add(day.withHour(hour));
+	/**
+	 * Samples distinct numbers from {@code [0, bound)} without replacement by Floyd's algorithm: every number is
+	 * drawn once, so the time and the memory are proportional to the count.
+	 */
+	private static long[] getRandomDistinctSorted(int count, long bound) {
+		Set<Long> selected = new HashSet<>(count * 2);
+		ThreadLocalRandom threadRandom = ThreadLocalRandom.current();
+
+		for (long j = bound - count; j < bound; j++) {
+			long candidate = threadRandom.nextLong(j + 1);
+			if (!selected.add(candidate)) {
+				selected.add(j);
 			}
 		}
-		return slots;
-	}
 
-	private static List<Integer> getRandomIntegers(long count, int max) {
-		return random.ints(count, 0, max + 1)
-				.sorted()
-				.distinct()
-				.boxed().collect(Collectors.toList());
+		long[] sorted = selected.stream().mapToLong(Long::longValue).toArray();
+		Arrays.sort(sorted);
+		return sorted;
 	}
 
-	private static List<Appointment> generateAppointments(List<LocalDateTime> slots, List<Integer> slotIndices) {
-		List<Appointment> apps = new ArrayList<>();
+	private static Appointment generateAppointment(LocalDateTime time) {
+		Appointment app = new Appointment();
 
-		for (int slotIndex : slotIndices) {
-			Appointment app = new Appointment();
+		app.setClientName(getRandomName());
+		app.setTime(time);
+		app.setPrice(getOneRandomIntegerInRange(1, 20) * 10);
+		app.setStatus(Appointment.AppStatus.PASS);
 
-			app.setClientName(getRandomName());
-			app.setTime(slots.get(slotIndex));
-			app.setPrice(getOneRandomIntegerInRange(1, 20) * 10);
-			app.setStatus(Appointment.AppStatus.PASS);
-
-			apps.add(app);
-		}
-		return apps;
+		return app;
 	}
 
 	private static String getRandomName() {
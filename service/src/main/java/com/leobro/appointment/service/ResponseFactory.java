@@ -9,6 +9,9 @@ class ResponseFactory {
 
 	private static final String MESSAGE_SERVER_ERROR = "Unexpected server error";
 	private static final String MESSAGE_NOT_FOUND = "The appointment is not found";
+	private static final String MESSAGE_SLOT_TAKEN = "The time slot is already taken";
+	private static final String MESSAGE_VERSION_CHANGED = "The appointment was changed by another request";
+	private static final String MESSAGE_UNAVAILABLE = "The service is overloaded, try again later";
 
 	/**
 	 * Creates the response of successful processing.
@@ -49,6 +52,35 @@ class ResponseFactory {
 		return new ServiceResponse(ServiceResponse.ResultType.NOT_FOUND, MESSAGE_NOT_FOUND);
 	}
 
+	/**
+	 * Creates the response, when the appointment cannot be created, because its time slot is taken by another
+	 * appointment.
+	 *
+	 * @return The service response with the error message.
+	 */
+	static ServiceResponse createConflictResponse() {
+		return new ServiceResponse(ServiceResponse.ResultType.CONFLICT, MESSAGE_SLOT_TAKEN);
+	}
+
+	/**
+	 * Creates the response, when the appointment is not changed, because it has another version than the one
+	 * the request is based on.
+	 *
+	 * @return The service response with the error message.
+	 */
+	static ServiceResponse createPreconditionFailedResponse() {
+		return new ServiceResponse(ServiceResponse.ResultType.PRECONDITION_FAILED, MESSAGE_VERSION_CHANGED);
+	}
+
+	/**
+	 * Creates the response, when the request is rejected, because the service has too many requests in progress.
+	 *
+	 * @return The service response with the error message.
+	 */
+	static ServiceResponse createUnavailableResponse() {
+		return new ServiceResponse(ServiceResponse.ResultType.UNAVAILABLE, MESSAGE_UNAVAILABLE);
+	}
+
 	/**
 	 * Creates the response about some unexpected error in the service for which client can have no effect.
 	 *
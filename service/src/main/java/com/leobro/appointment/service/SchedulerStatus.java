@@ -0,0 +1,77 @@
+package com.leobro.appointment.service;
+
+/**
+ * The state of the {@link AppointmentScheduler} passed to the client.
+ */
+public class SchedulerStatus {
+
+	private final boolean running;
+	private final double rate;
+	private final double jitter;
+	private final long created;
+	private final double averageLatencyMillis;
+	private final boolean throttled;
+	private final boolean saturated;
+
+	SchedulerStatus(boolean running, double rate, double jitter, long created, double averageLatencyMillis,
+					boolean throttled, boolean saturated) {
+		this.running = running;
+		this.rate = rate;
+		this.jitter = jitter;
+		this.created = created;
+		this.averageLatencyMillis = averageLatencyMillis;
+		this.throttled = throttled;
+		this.saturated = saturated;
+	}
+
+	/**
+	 * Whether the appointments are being created.
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * The target number of appointments per second.
+	 */
+	public double getRate() {
+		return rate;
+	}
+
+	/**
+	 * The maximal deviation of an interval from the average interval as a fraction of the average interval.
+	 */
+	public double getJitter() {
+		return jitter;
+	}
+
+	/**
+	 * The number of appointments created since the application start.
+	 */
+	public long getCreated() {
+		return created;
+	}
+
+	/**
+	 * The moving average of the time the creation of an appointment takes.
+	 */
+	public double getAverageLatencyMillis() {
+		return averageLatencyMillis;
+	}
+
+	/**
+	 * Whether the scheduler creates the appointments slower than the target rate, because the data storage
+	 * is slow or the horizon is full.
+	 */
+	public boolean isThrottled() {
+		return throttled;
+	}
+
+	/**
+	 * Whether the last creation found no free slot within the horizon, so the scheduler is throttled until a slot
+	 * is freed or the horizon moves on to the next day.
+	 */
+	public boolean isSaturated() {
+		return saturated;
+	}
+}
@@ -0,0 +1,52 @@
+package com.leobro.appointment.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Creates the infrastructure beans of the service.
+ */
+@Configuration
+class ServiceConfiguration {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ServiceConfiguration.class);
+
+	static final String STORAGE_EXECUTOR = "storageExecutor";
+
+	/**
+	 * The executor of the asynchronous operations of {@link AppointmentService}. The number of threads should not
+	 * exceed the number of connections to the database, the tasks beyond the queue capacity are rejected, so that
+	 * a burst of requests is answered at once instead of waiting for a timeout.
+	 * <p>In the virtual thread mode, every operation runs on its own virtual thread, and the number of the
+	 * concurrent database requests is limited only by the connection pool. As many operations are accepted as
+	 * the pool threads and the queue together would accept.
+	 */
+	@Bean(STORAGE_EXECUTOR)
+	Executor storageExecutor(@Value("${appointment.storage-executor.threads:10}") int threads,
+							 @Value("${appointment.storage-executor.queue-capacity:1000}") int queueCapacity,
+							 @Value("${appointment.virtual-threads.enabled:false}") boolean virtualThreads) {
+		if (virtualThreads) {
+			if (VirtualThreadExecutor.isSupported()) {
+				return new VirtualThreadExecutor("storage-", threads + queueCapacity);
+			}
+			LOGGER.warn("Virtual threads are not supported by Java {}, the storage operations run on a thread pool",
+					System.getProperty("java.version"));
+		}
+
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+		executor.setCorePoolSize(threads);
+		executor.setMaxPoolSize(threads);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("storage-");
+		executor.setWaitForTasksToCompleteOnShutdown(true);
+
+		return executor;
+	}
+}
@@ -14,6 +14,9 @@ public class ServiceResponse {
 	 * <p>CREATED - new resource was created,
 	 * <p>ERROR - there was a validation error caused by data in the request,
 	 * <p>NOT_FOUND - the sought resource is not found,
+	 * <p>CONFLICT - the request conflicts with the existing resources,
+	 * <p>PRECONDITION_FAILED - the resource was changed since the version the request is based on,
+	 * <p>UNAVAILABLE - the service is overloaded and rejected the request,
 	 * <p>FATAL - unexpected exception occurred during the processing.
 	 */
 	public enum ResultType {
@@ -21,6 +24,9 @@ public class ServiceResponse {
 		CREATED,
 		ERROR,
 		NOT_FOUND,
+		CONFLICT,
+		PRECONDITION_FAILED,
+		UNAVAILABLE,
 		FATAL
 	}
 
@@ -0,0 +1,199 @@
+package com.leobro.appointment.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Index of the taken appointment slots. Like in {@link RandomHelper}, each round work hour from
+ * {@link RandomHelper#START_WORK_HOUR} to {@link RandomHelper#END_WORK_HOUR} is a slot, and a day is a bitmap with
+ * one bit per slot. Appointments outside the work hours take no slot.
+ * <p>A day is read from the data storage once, when it is needed the first time, and then kept up to date by the
+ * service. So a slot is reserved and the free slots are found without requests to the data storage. The index
+ * knows only the changes made through this process. The days before today are dropped whenever a day is read,
+ * as no slot can be reserved in them.
+ * <p>A slot freed while its day is being read is also remembered by the running read, because the read may have
+ * seen the appointment before it was deleted.
+ */
+class SlotOccupancy {
+
+	private final AppointmentStorage storage;
+	private final ConcurrentNavigableMap<LocalDate, Integer> days = new ConcurrentSkipListMap<>();
+	private final Set<Run> runs = ConcurrentHashMap.newKeySet();
+
+	SlotOccupancy(AppointmentStorage storage) {
+		this.storage = storage;
+	}
+
+	/**
+	 * Takes the slot of the passed time, if it is free.
+	 *
+	 * @param time the time of the new appointment.
+	 * @return {@code false}, if the slot is already taken, {@code true} otherwise, also for the time outside
+	 * the work hours.
+	 */
+	boolean reserve(LocalDateTime time) {
+		int slot = slotOf(time);
+		if (slot < 0) {
+			return true;
+		}
+		LocalDate day = time.toLocalDate();
+		int bit = 1 << slot;
+		boolean[] reserved = new boolean[1];
+
+		// the day may be invalidated between loading and reserving
+		do {
+			load(day, day);
+		} while (days.computeIfPresent(day, (key, taken) -> {
+			reserved[0] = (taken & bit) == 0;
+			return taken | bit;
+		}) == null);
+		return reserved[0];
+	}
+
+	/**
+	 * Frees the slot of the passed time.
+	 *
+	 * @param time the time of the deleted appointment or of the appointment, which failed to be created.
+	 */
+	void release(LocalDateTime time) {
+		int slot = slotOf(time);
+		if (slot < 0) {
+			return;
+		}
+		LocalDate day = time.toLocalDate();
+		int bit = 1 << slot;
+
+		// the runs are told first: a run merged after that is already in the days and is freed below
+		for (Run run : runs) {
+			run.release(day, bit);
+		}
+		days.computeIfPresent(day, (key, slots) -> slots & ~bit);
+	}
+
+	/**
+	 * Forgets the days, so that they are read from the data storage again. Used after the appointments were
+	 * deleted by a condition the index cannot evaluate.
+	 */
+	void invalidate(LocalDate startDate, LocalDate endDate) {
+		days.subMap(startDate, true, endDate, true).clear();
+	}
+
+	/**
+	 * Returns the free slots between the dates, the end date inclusive, in the order of time.
+	 */
+	List<LocalDateTime> getFreeSlots(LocalDate startDate, LocalDate endDate) {
+		load(startDate, endDate);
+
+		List<LocalDateTime> free = new ArrayList<>();
+		for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+			int taken = days.getOrDefault(day, 0);
+			for (int slot = 0; slot < RandomHelper.SLOTS_PER_DAY; slot++) {
+				if ((taken & 1 << slot) == 0) {
+					free.add(day.atTime(RandomHelper.START_WORK_HOUR + slot, 0));
+				}
+			}
+		}
+		return free;
+	}
+
+	/**
+	 * Reads the days between the dates missing in the index from the data storage, one request per run of
+	 * consecutive missing days.
+	 */
+	void load(LocalDate startDate, LocalDate endDate) {
+		LocalDate runStart = null;
+		for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+			if (!days.containsKey(day)) {
+				if (runStart == null) {
+					runStart = day;
+				}
+			} else if (runStart != null) {
+				loadRun(runStart, day.minusDays(1));
+				runStart = null;
+			}
+		}
+		if (runStart != null) {
+			loadRun(runStart, endDate);
+		}
+	}
+
+	/**
+	 * Reads the passed days missing in the index from the data storage, one request per run of consecutive days.
+	 * Unlike {@link #load(LocalDate, LocalDate)}, the days between the passed ones are not read.
+	 */
+	void load(Collection<LocalDate> dates) {
+		LocalDate runStart = null;
+		LocalDate runEnd = null;
+		for (LocalDate day : new TreeSet<>(dates)) {
+			if (runEnd != null && !day.equals(runEnd.plusDays(1))) {
+				load(runStart, runEnd);
+				runStart = null;
+			}
+			if (runStart == null) {
+				runStart = day;
+			}
+			runEnd = day;
+		}
+		if (runStart != null) {
+			load(runStart, runEnd);
+		}
+	}
+
+	private void loadRun(LocalDate startDate, LocalDate endDate) {
+		days.headMap(LocalDate.now()).clear();
+
+		Run run = new Run(startDate, endDate);
+		int[] loaded = new int[run.released.length()];
+		runs.add(run);
+		try {
+			storage.forEachAppointment(startDate, endDate, app -> {
+				int slot = slotOf(app.getTime());
+				if (slot >= 0) {
+					loaded[(int) (app.getTime().toLocalDate().toEpochDay() - startDate.toEpochDay())] |= 1 << slot;
+				}
+			});
+
+			// the slots reserved meanwhile by the other threads are kept, the slots released meanwhile are not read
+			for (int i = 0; i < loaded.length; i++) {
+				days.merge(startDate.plusDays(i), loaded[i] & ~run.released.get(i), (taken, read) -> taken | read);
+			}
+		} finally {
+			runs.remove(run);
+		}
+	}
+
+	private static int slotOf(LocalDateTime time) {
+		int slot = time.getHour() - RandomHelper.START_WORK_HOUR;
+		return slot >= 0 && slot < RandomHelper.SLOTS_PER_DAY ? slot : -1;
+	}
+
+	/**
+	 * The days being read from the data storage and the slots released during the read.
+	 */
+	private static class Run {
+
+		private final LocalDate startDate;
+		private final AtomicIntegerArray released;
+
+		Run(LocalDate startDate, LocalDate endDate) {
+			this.startDate = startDate;
+			this.released = new AtomicIntegerArray((int) (endDate.toEpochDay() - startDate.toEpochDay()) + 1);
+		}
+
+		void release(LocalDate day, int bit) {
+			long index = day.toEpochDay() - startDate.toEpochDay();
+			if (index >= 0 && index < released.length()) {
+				released.getAndUpdate((int) index, slots -> slots | bit);
+			}
+		}
+	}
+}
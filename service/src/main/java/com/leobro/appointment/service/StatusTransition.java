@@ -0,0 +1,65 @@
+package com.leobro.appointment.service;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Request to move many appointments from one status to another. The appointments are selected either by their IDs
+ * or by the date interval, and only those having the "from" status are changed.
+ */
+public class StatusTransition {
+
+	private static final String FROM_STATUS_MISSING_ERROR = "From status is mandatory";
+	private static final String TO_STATUS_MISSING_ERROR = "To status is mandatory";
+
+	private List<Long> ids;
+	private LocalDate startDate;
+	private LocalDate endDate;
+
+	@NotNull(message = FROM_STATUS_MISSING_ERROR)
+	private Appointment.AppStatus fromStatus;
+
+	@NotNull(message = TO_STATUS_MISSING_ERROR)
+	private Appointment.AppStatus toStatus;
+
+	public List<Long> getIds() {
+		return ids;
+	}
+
+	public void setIds(List<Long> ids) {
+		this.ids = ids;
+	}
+
+	public LocalDate getStartDate() {
+		return startDate;
+	}
+
+	public void setStartDate(LocalDate startDate) {
+		this.startDate = startDate;
+	}
+
+	public LocalDate getEndDate() {
+		return endDate;
+	}
+
+	public void setEndDate(LocalDate endDate) {
+		this.endDate = endDate;
+	}
+
+	public Appointment.AppStatus getFromStatus() {
+		return fromStatus;
+	}
+
+	public void setFromStatus(Appointment.AppStatus fromStatus) {
+		this.fromStatus = fromStatus;
+	}
+
+	public Appointment.AppStatus getToStatus() {
+		return toStatus;
+	}
+
+	public void setToStatus(Appointment.AppStatus toStatus) {
+		this.toStatus = toStatus;
+	}
+}
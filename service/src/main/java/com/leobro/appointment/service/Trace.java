@@ -0,0 +1,160 @@
+package com.leobro.appointment.service;
+
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The timed spans of one request. The trace is attached to the thread working on the request, also to the threads
+ * the request is passed to, and the code of every layer opens a span by {@link #span(String)}. The spans are kept
+ * in memory and written to the log, when the request is finished, so no collector is needed. While the trace is
+ * attached, its ID is in the {@value #MDC_KEY} entry of the logging context.
+ * <p>A span opened on a thread without a trace is not recorded.
+ */
+public final class Trace {
+
+	public static final String MDC_KEY = "traceId";
+
+	private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+	private static final Span NO_SPAN = () -> {
+	};
+
+	private final String id;
+	private final long startNanos = System.nanoTime();
+	private final Queue<SpanRecord> spans = new ConcurrentLinkedQueue<>();
+
+	private Trace(String id) {
+		this.id = id;
+	}
+
+	/**
+	 * Creates the trace of a new request, not attached to any thread yet.
+	 *
+	 * @param id the ID of the trace or {@code null} to generate a random one.
+	 */
+	public static Trace create(String id) {
+		return new Trace(id != null ? id : String.format("%016x", ThreadLocalRandom.current().nextLong()));
+	}
+
+	/**
+	 * Returns the trace attached to the current thread or {@code null}.
+	 */
+	public static Trace current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Opens a span of the trace attached to the current thread. The span ends, when it is closed.
+	 *
+	 * @param name the name of the span, usually the layer and the operation, like {@code storage.getAppointment}.
+	 */
+	public static Span span(String name) {
+		Trace trace = CURRENT.get();
+		return trace == null ? NO_SPAN : trace.open(name);
+	}
+
+	/**
+	 * Records a span, which has already ended, like the time a task waited for an executor.
+	 */
+	public void record(String name, long spanStartNanos, long spanEndNanos) {
+		spans.add(new SpanRecord(name, Thread.currentThread().getName(), spanStartNanos - startNanos,
+				spanEndNanos - spanStartNanos));
+	}
+
+	private Span open(String name) {
+		long spanStart = System.nanoTime();
+		return () -> record(name, spanStart, System.nanoTime());
+	}
+
+	/**
+	 * Attaches the trace to the current thread until the returned scope is closed, then the previous trace is
+	 * attached again.
+	 */
+	public Span attach() {
+		Trace previous = CURRENT.get();
+		CURRENT.set(this);
+		MDC.put(MDC_KEY, id);
+		return () -> {
+			if (previous == null) {
+				CURRENT.remove();
+				MDC.remove(MDC_KEY);
+			} else {
+				CURRENT.set(previous);
+				MDC.put(MDC_KEY, previous.id);
+			}
+		};
+	}
+
+	/**
+	 * Returns the operation, which runs with the trace attached to its thread.
+	 */
+	public <T> Supplier<T> wrap(Supplier<T> operation) {
+		return () -> {
+			try (Span ignored = attach()) {
+				return operation.get();
+			}
+		};
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the time from the creation of the trace.
+	 */
+	public long getElapsedNanos() {
+		return System.nanoTime() - startNanos;
+	}
+
+	/**
+	 * Formats the spans in the order of their start, one per line, with the start offset from the creation of
+	 * the trace and the duration in milliseconds.
+	 */
+	public String format() {
+		List<SpanRecord> sorted = new ArrayList<>(spans);
+		sorted.sort((a, b) -> Long.compare(a.offsetNanos, b.offsetNanos));
+
+		StringBuilder builder = new StringBuilder();
+		for (SpanRecord span : sorted) {
+			builder.append(String.format(Locale.ROOT, "%n  +%9.3f ms %9.3f ms  %s [%s]",
+					toMillis(span.offsetNanos), toMillis(span.durationNanos), span.name, span.thread));
+		}
+		return builder.toString();
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * A span or a scope, which ends when it is closed.
+	 */
+	public interface Span extends AutoCloseable {
+
+		@Override
+		void close();
+	}
+
+	private static class SpanRecord {
+
+		private final String name;
+		private final String thread;
+		private final long offsetNanos;
+		private final long durationNanos;
+
+		SpanRecord(String name, String thread, long offsetNanos, long durationNanos) {
+			this.name = name;
+			this.thread = thread;
+			this.offsetNanos = offsetNanos;
+			this.durationNanos = durationNanos;
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.leobro.appointment.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs every task on a new virtual thread. A virtual thread blocked by I/O doesn't hold a platform thread, so
+ * the number of the tasks running at once is not limited by the threads, but by the resources they wait for, like
+ * the connections to the database. To keep the memory bounded, the tasks beyond the maximal number are rejected.
+ * <p>The virtual threads are created by reflection, because the application is compiled for a Java version
+ * without them. Use {@link #isSupported()} to check that the running Java has them.
+ */
+public class VirtualThreadExecutor implements Executor {
+
+	private final ThreadFactory factory;
+	private final Semaphore permits;
+
+	/**
+	 * Creates the executor.
+	 *
+	 * @param namePrefix the prefix of the thread names followed by a sequence number,
+	 * @param maxTasks   the maximal number of the tasks running at once.
+	 * @throws UnsupportedOperationException if the running Java has no virtual threads.
+	 */
+	public VirtualThreadExecutor(String namePrefix, int maxTasks) {
+		this(createFactory(namePrefix), maxTasks);
+	}
+
+	VirtualThreadExecutor(ThreadFactory factory, int maxTasks) {
+		this.factory = factory;
+		this.permits = new Semaphore(maxTasks);
+	}
+
+	/**
+	 * Whether the running Java has virtual threads.
+	 */
+	public static boolean isSupported() {
+		try {
+			createFactory("probe-");
+			return true;
+		} catch (UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
+	private static ThreadFactory createFactory(String namePrefix) {
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Method name = builderClass.getMethod("name", String.class, long.class);
+			Method factory = builderClass.getMethod("factory");
+
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory) factory.invoke(name.invoke(builder, namePrefix, 0L));
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// absent before Java 19 and a disabled preview feature in Java 19 and 20
+			throw new UnsupportedOperationException("Virtual threads are not supported by Java " +
+					System.getProperty("java.version"), e);
+		}
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		if (!permits.tryAcquire()) {
+			throw new RejectedExecutionException("Too many tasks are running");
+		}
+		try {
+			factory.newThread(() -> {
+				try {
+					task.run();
+				} finally {
+					permits.release();
+				}
+			}).start();
+		} catch (RuntimeException | Error e) {
+			permits.release();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package com.leobro.appointment.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class AppointmentSchedulerTest {
+
+	private static final double RATE = 10;
+	private static final double JITTER = 0.5;
+	private static final Duration LATENCY_THRESHOLD = Duration.ofMillis(100);
+	private static final Duration MAX_PAUSE = Duration.ofSeconds(2);
+	private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private AppointmentService service;
+	private AppointmentScheduler scheduler;
+
+	@Before
+	public void setUp() {
+		service = Mockito.mock(AppointmentService.class);
+		Mockito.when(service.createRandomAppointments(Mockito.anyInt(), Mockito.any(LocalDate.class)))
+				.thenReturn(new ServiceResponse(ServiceResponse.ResultType.OK, 1));
+
+		scheduler = new AppointmentScheduler(service, RATE, JITTER, 30, LATENCY_THRESHOLD, MAX_PAUSE, false);
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.shutdown();
+	}
+
+	private SchedulerStatus getStatus(ServiceResponse response) {
+		return (SchedulerStatus) response.getPayload();
+	}
+
+	@Test
+	public void when_start_then_createsAppointmentsRepeatedly() {
+		ServiceResponse response = scheduler.start();
+
+		Mockito.verify(service, Mockito.timeout(2000).atLeast(3)).createRandomAppointments(Mockito.eq(1),
+				Mockito.any(LocalDate.class));
+		assertThat(getStatus(response).isRunning(), is(true));
+	}
+
+	@Test
+	public void when_stop_then_noMoreAppointments() throws InterruptedException {
+		scheduler.start();
+		Mockito.verify(service, Mockito.timeout(2000)).createRandomAppointments(Mockito.anyInt(),
+				Mockito.any(LocalDate.class));
+
+		ServiceResponse response = scheduler.stop();
+		Thread.sleep(100);
+		Mockito.clearInvocations(service);
+		Thread.sleep(500);
+
+		Mockito.verifyZeroInteractions(service);
+		assertThat(getStatus(response).isRunning(), is(false));
+	}
+
+	@Test
+	public void when_setRateInvalid_then_responseIsError() {
+		assertThat(scheduler.setRate(0).getResult(), is(ServiceResponse.ResultType.ERROR));
+		assertThat(scheduler.setRate(AppointmentScheduler.MAX_RATE + 1).getResult(),
+				is(ServiceResponse.ResultType.ERROR));
+	}
+
+	@Test
+	public void when_setRate_then_statusHasNewRate() {
+		ServiceResponse response = scheduler.setRate(RATE * 2);
+
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.OK));
+		assertThat(getStatus(response).getRate(), is(RATE * 2));
+	}
+
+	@Test
+	public void when_fast_then_delayWithinJitter() {
+		scheduler.recordCreation(TimeUnit.MILLISECONDS.toNanos(1), false, 1);
+
+		for (int i = 0; i < 100; i++) {
+			long delay = scheduler.getNextDelayNanos();
+			assertThat(delay, greaterThanOrEqualTo((long) (INTERVAL_NANOS * (1 - JITTER))));
+			assertThat(delay, lessThanOrEqualTo((long) (INTERVAL_NANOS * (1 + JITTER))));
+		}
+	}
+
+	@Test
+	public void when_slow_then_backsOffUpToMaxPause_andRecovers() {
+		long slow = LATENCY_THRESHOLD.toNanos() * 10;
+
+		scheduler.recordCreation(slow, false, 1);
+		assertThat(scheduler.getNextDelayNanos(), is(2 * INTERVAL_NANOS));
+		scheduler.recordCreation(slow, false, 1);
+		assertThat(scheduler.getNextDelayNanos(), is(4 * INTERVAL_NANOS));
+		for (int i = 0; i < 10; i++) {
+			scheduler.recordCreation(slow, false, 1);
+		}
+		assertThat(scheduler.getNextDelayNanos(), is(MAX_PAUSE.toNanos()));
+		assertThat(getStatus(scheduler.getSchedulerStatus()).isThrottled(), is(true));
+
+		for (int i = 0; i < 30; i++) {
+			scheduler.recordCreation(0, false, 1);
+		}
+		assertThat(scheduler.getNextDelayNanos(), lessThanOrEqualTo((long) (INTERVAL_NANOS * (1 + JITTER))));
+		assertThat(getStatus(scheduler.getSchedulerStatus()).getCreated(), is(42L));
+	}
+
+	@Test
+	public void when_creationFails_then_backsOff() {
+		scheduler.recordCreation(0, true, 0);
+
+		assertThat(scheduler.getNextDelayNanos(), is(2 * INTERVAL_NANOS));
+	}
+
+	@Test
+	public void when_noSlotFree_then_saturatedAndBacksOff_untilCreatedAgain() {
+		scheduler.recordCreation(0, false, 0);
+
+		assertThat(scheduler.getNextDelayNanos(), is(2 * INTERVAL_NANOS));
+		assertThat(getStatus(scheduler.getSchedulerStatus()).isSaturated(), is(true));
+
+		scheduler.recordCreation(0, false, 1);
+
+		assertThat(getStatus(scheduler.getSchedulerStatus()).isSaturated(), is(false));
+		assertThat(scheduler.getNextDelayNanos(), lessThanOrEqualTo((long) (INTERVAL_NANOS * (1 + JITTER))));
+	}
+}
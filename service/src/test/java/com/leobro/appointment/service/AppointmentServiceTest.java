@@ -1,5 +1,6 @@
 package com.leobro.appointment.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -8,10 +9,21 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 public class AppointmentServiceTest {
@@ -36,7 +48,7 @@ public class AppointmentServiceTest {
 		appointment = createAppointment();
 		storage = Mockito.mock(AppointmentStorage.class);
 
-		service = new AppointmentService(storage);
+		service = new AppointmentService(storage, Runnable::run);
 	}
 
 	private static Appointment createAppointment() {
@@ -71,34 +83,156 @@ public class AppointmentServiceTest {
 	}
 
 	@Test
-	public void when_createRandomAppointments_then_callsStorageCreateAppointment() {
+	public void when_createAppointmentAndSlotTaken_then_resultIsConflict() {
+		Mockito.when(storage.createAppointment(Mockito.any(Appointment.class))).thenReturn(CREATED_ID);
+		service.createAppointment(appointment);
+
+		ServiceResponse response = service.createAppointment(createAppointment());
+
+		Mockito.verify(storage, Mockito.times(1)).createAppointment(Mockito.any(Appointment.class));
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.CONFLICT));
+	}
+
+	@Test
+	public void when_createAppointmentAndSlotTakenInStorage_then_resultIsConflict() {
+		Mockito.doAnswer(invocation -> {
+			Consumer<Appointment> consumer = invocation.getArgument(2);
+			consumer.accept(createAppointment());
+			return null;
+		}).when(storage).forEachAppointment(Mockito.any(LocalDate.class), Mockito.any(LocalDate.class),
+				Mockito.any());
+
+		ServiceResponse response = service.createAppointment(appointment);
+
+		Mockito.verify(storage, Mockito.never()).createAppointment(Mockito.any(Appointment.class));
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.CONFLICT));
+	}
+
+	@Test
+	public void when_appointmentDeletedWhileDayLoaded_then_slotFree() {
+		Mockito.when(storage.createAppointment(Mockito.any(Appointment.class))).thenReturn(CREATED_ID);
+		Mockito.when(storage.deleteAppointment(Mockito.anyLong())).thenReturn(appointment);
+		Mockito.doAnswer(invocation -> {
+			Consumer<Appointment> consumer = invocation.getArgument(2);
+			consumer.accept(createAppointment());
+			service.deleteAppointment(ID);
+			return null;
+		}).when(storage).forEachAppointment(Mockito.any(LocalDate.class), Mockito.any(LocalDate.class),
+				Mockito.any());
+
+		ServiceResponse response = service.createAppointment(appointment);
+
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.CREATED));
+	}
+
+	@Test
+	public void when_createAppointmentAndException_then_slotReleased() {
+		Mockito.when(storage.createAppointment(Mockito.any(Appointment.class)))
+				.thenThrow(RuntimeException.class)
+				.thenReturn(CREATED_ID);
+		service.createAppointment(appointment);
+
+		ServiceResponse response = service.createAppointment(createAppointment());
+
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.CREATED));
+	}
+
+	@Test
+	public void when_createRandomAppointments_then_callsStorageCreateAppointmentsOnce() {
+		Mockito.when(storage.createAppointments(Mockito.anyList())).thenReturn(Collections.singletonList(CREATED_ID));
+
 		ServiceResponse response = service.createRandomAppointments(5, LocalDate.now().plusDays(1));
 
-		Mockito.verify(storage, Mockito.atLeastOnce()).createAppointment(Mockito.any(Appointment.class));
+		Mockito.verify(storage).createAppointments(Mockito.anyList());
+		Mockito.verify(storage, Mockito.never()).createAppointment(Mockito.any(Appointment.class));
 		assertThat(response.getResult(), is(ServiceResponse.ResultType.OK));
+		assertThat(response.getPayload(), is(1));
+	}
+
+	@Test
+	public void when_createRandomAppointmentsOverManyChunks_then_createsExactQuantityChunkByChunk() {
+		int quantity = AppointmentService.RANDOM_CHUNK_SIZE * 2 + 1;
+		List<Integer> chunkSizes = new ArrayList<>();
+		Mockito.when(storage.createAppointments(Mockito.anyList())).thenAnswer(invocation -> {
+			List<Appointment> chunk = invocation.getArgument(0);
+			chunkSizes.add(chunk.size());
+			return Collections.nCopies(chunk.size(), CREATED_ID);
+		});
+
+		ServiceResponse response = service.createRandomAppointments(quantity, LocalDate.now().plusDays(365));
+
+		assertThat(chunkSizes, is(Arrays.asList(AppointmentService.RANDOM_CHUNK_SIZE,
+				AppointmentService.RANDOM_CHUNK_SIZE, 1)));
+		assertThat(response.getPayload(), is(quantity));
 	}
 
 	@Test
-	public void when_createRandomAppointmentsAndQuantityZero_then_doesntCallStorageCreateAppointment() {
+	public void when_createRandomAppointmentsAndFewSlotsFree_then_takesExactlyTheFreeSlots() {
+		LocalDate endDate = LocalDate.now().plusDays(2);
+		List<LocalDateTime> free = Arrays.asList(endDate.atTime(9, 0), endDate.atTime(12, 0), endDate.atTime(16, 0));
+		Mockito.doAnswer(invocation -> {
+			Consumer<Appointment> consumer = invocation.getArgument(2);
+			for (LocalDate day = invocation.getArgument(0); !day.isAfter(invocation.getArgument(1));
+				 day = day.plusDays(1)) {
+				for (int hour = RandomHelper.START_WORK_HOUR; hour < RandomHelper.END_WORK_HOUR; hour++) {
+					if (!free.contains(day.atTime(hour, 0))) {
+						Appointment taken = new Appointment();
+						taken.setTime(day.atTime(hour, 0));
+						consumer.accept(taken);
+					}
+				}
+			}
+			return null;
+		}).when(storage).forEachAppointment(Mockito.any(LocalDate.class), Mockito.any(LocalDate.class),
+				Mockito.any());
+		List<LocalDateTime> created = new ArrayList<>();
+		Mockito.when(storage.createAppointments(Mockito.anyList())).thenAnswer(invocation -> {
+			List<Appointment> chunk = invocation.getArgument(0);
+			chunk.forEach(app -> created.add(app.getTime()));
+			return Collections.nCopies(chunk.size(), CREATED_ID);
+		});
+
+		ServiceResponse partly = service.createRandomAppointments(2, endDate);
+		ServiceResponse rest = service.createRandomAppointments(5, endDate);
+
+		assertThat(partly.getPayload(), is(2));
+		assertThat(rest.getPayload(), is(1));
+		assertThat(created.stream().sorted().collect(Collectors.toList()), is(free));
+		// the range is read once, then kept up to date by the index
+		Mockito.verify(storage, Mockito.times(1)).forEachAppointment(Mockito.any(LocalDate.class),
+				Mockito.any(LocalDate.class), Mockito.any());
+	}
+
+	@Test
+	public void when_createRandomAppointmentsAndEndDateTooFar_then_doesntCallStorage() {
+		ServiceResponse response = service.createRandomAppointments(1,
+				LocalDate.now().plusDays(AppointmentService.MAX_RANDOM_DAYS));
+
+		Mockito.verifyZeroInteractions(storage);
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.ERROR));
+	}
+
+	@Test
+	public void when_createRandomAppointmentsAndQuantityZero_then_doesntCallStorageCreateAppointments() {
 		ServiceResponse response = service.createRandomAppointments(0, LocalDate.now().plusDays(1));
 
-		Mockito.verify(storage, Mockito.never()).createAppointment(Mockito.any(Appointment.class));
+		Mockito.verify(storage, Mockito.never()).createAppointments(Mockito.anyList());
 		assertThat(response.getResult(), is(ServiceResponse.ResultType.ERROR));
 	}
 
 	@Test
-	public void when_createRandomAppointmentsAndQuantityNegative_then_doesntCallStorageCreateAppointment() {
+	public void when_createRandomAppointmentsAndQuantityNegative_then_doesntCallStorageCreateAppointments() {
 		ServiceResponse response = service.createRandomAppointments(-5, LocalDate.now().plusDays(1));
 
-		Mockito.verify(storage, Mockito.never()).createAppointment(Mockito.any(Appointment.class));
+		Mockito.verify(storage, Mockito.never()).createAppointments(Mockito.anyList());
 		assertThat(response.getResult(), is(ServiceResponse.ResultType.ERROR));
 	}
 
 	@Test
-	public void when_createRandomAppointmentsAndDateInPast_then_doesntCallStorageCreateAppointment() {
+	public void when_createRandomAppointmentsAndDateInPast_then_doesntCallStorageCreateAppointments() {
 		ServiceResponse response = service.createRandomAppointments(5, LocalDate.now().minusDays(1));
 
-		Mockito.verify(storage, Mockito.never()).createAppointment(Mockito.any(Appointment.class));
+		Mockito.verify(storage, Mockito.never()).createAppointments(Mockito.anyList());
 		assertThat(response.getResult(), is(ServiceResponse.ResultType.ERROR));
 	}
 
@@ -150,10 +284,88 @@ public class AppointmentServiceTest {
 	}
 
 	@Test
-	public void when_updateAppointmentStatus_then_callsStorageUpdateAppointmentStatus() {
+	public void when_streamAllAppointments_then_callsStorageForEachAppointmentOnlyWhenConsumed() {
+		LocalDate startDate = LocalDate.of(YEAR, Month.AUGUST, 20);
+		LocalDate endDate = LocalDate.of(YEAR, Month.AUGUST, 21);
+
+		ServiceResponse response = service.streamAllAppointments(startDate, endDate);
+
+		Mockito.verify(storage, Mockito.never()).forEachAppointment(Mockito.any(LocalDate.class),
+				Mockito.any(LocalDate.class), Mockito.any());
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.OK));
+
+		((AppointmentStream) response.getPayload()).forEach(app -> {
+		});
+
+		Mockito.verify(storage).forEachAppointment(Mockito.eq(startDate), Mockito.eq(endDate), Mockito.any());
+	}
+
+	@Test
+	public void when_streamAllAppointmentsAndDatesWrong_then_responseIsError() {
+		LocalDate laterDate = LocalDate.of(YEAR, Month.AUGUST, 21);
+		LocalDate earlierDate = LocalDate.of(YEAR, Month.AUGUST, 20);
+
+		ServiceResponse response = service.streamAllAppointments(laterDate, earlierDate);
+
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.ERROR));
+	}
+
+	@Test
+	public void when_getAppointmentsPageAndMoreAppointments_then_returnsLimitAndNextCursor() {
+		appointment.setId(CREATED_ID);
+		Mockito.when(storage.getAppointmentsPage(Mockito.any(LocalDate.class), Mockito.any(LocalDate.class),
+				Mockito.isNull(), Mockito.anyInt()))
+				.thenReturn(new ArrayList<>(Collections.nCopies(3, appointment)));
+		LocalDate startDate = LocalDate.of(YEAR, Month.AUGUST, 20);
+		LocalDate endDate = LocalDate.of(YEAR, Month.AUGUST, 21);
+
+		ServiceResponse response = service.getAppointmentsPage(startDate, endDate, null, 2);
+
+		Mockito.verify(storage).getAppointmentsPage(startDate, endDate, null, 3);
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.OK));
+		AppointmentPage page = (AppointmentPage) response.getPayload();
+		assertThat(page.getAppointments().size(), is(2));
+		assertThat(PageCursor.decode(page.getNextCursor()), is(new PageCursor(PRICE, CREATED_ID)));
+	}
+
+	@Test
+	public void when_getAppointmentsPageWithCursorAndLastPage_then_passesCursorAndNoNextCursor() {
+		PageCursor cursor = new PageCursor(PRICE, CREATED_ID);
+		Mockito.when(storage.getAppointmentsPage(Mockito.any(LocalDate.class), Mockito.any(LocalDate.class),
+				Mockito.any(PageCursor.class), Mockito.anyInt()))
+				.thenReturn(new ArrayList<>(Collections.singletonList(appointment)));
+		LocalDate startDate = LocalDate.of(YEAR, Month.AUGUST, 20);
+		LocalDate endDate = LocalDate.of(YEAR, Month.AUGUST, 21);
+
+		ServiceResponse response = service.getAppointmentsPage(startDate, endDate, cursor.encode(), 2);
+
+		Mockito.verify(storage).getAppointmentsPage(startDate, endDate, cursor, 3);
+		AppointmentPage page = (AppointmentPage) response.getPayload();
+		assertThat(page.getAppointments().size(), is(1));
+		assertThat(page.getNextCursor(), is(nullValue()));
+	}
+
+	@Test
+	public void when_getAppointmentsPageAndCursorOrLimitWrong_then_doesntCallStorage() {
+		LocalDate startDate = LocalDate.of(YEAR, Month.AUGUST, 20);
+		LocalDate endDate = LocalDate.of(YEAR, Month.AUGUST, 21);
+
+		ServiceResponse response = service.getAppointmentsPage(startDate, endDate, "not a cursor", 0);
+
+		Mockito.verify(storage, Mockito.never()).getAppointmentsPage(Mockito.any(LocalDate.class),
+				Mockito.any(LocalDate.class), Mockito.any(), Mockito.anyInt());
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.ERROR));
+		assertThat(((List<String>) response.getPayload()).size(), is(2));
+	}
+
+	@Test
+	public void when_updateAppointmentStatus_then_callsStorageUpdateAppointmentStatusOnly() {
+		Mockito.when(storage.updateAppointmentStatus(ID, APP_STATUS)).thenReturn(DATE_TIME);
+
 		ServiceResponse response = service.updateAppointmentStatus(ID, APP_STATUS);
 
 		Mockito.verify(storage).updateAppointmentStatus(ID, APP_STATUS);
+		Mockito.verifyNoMoreInteractions(storage);
 		assertThat(response.getResult(), is(ServiceResponse.ResultType.OK));
 	}
 
@@ -167,6 +379,109 @@ public class AppointmentServiceTest {
 		assertThat(response.getResult(), is(ServiceResponse.ResultType.NOT_FOUND));
 	}
 
+	@Test
+	public void when_updateAppointmentStatusAndVersionChanged_then_responseIsPreconditionFailed() {
+		Mockito.when(storage.updateAppointmentStatus(ID, APP_STATUS, 3)).thenReturn(null);
+		LocalDate day = DATE_TIME.toLocalDate();
+		String before = service.getWatermark(day, day);
+
+		ServiceResponse response = service.updateAppointmentStatus(ID, APP_STATUS, 3);
+
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.PRECONDITION_FAILED));
+		assertThat(service.getWatermark(day, day), is(before));
+	}
+
+	@Test
+	public void when_updateAppointmentStatusAndVersionCurrent_then_responseIsOk() {
+		Mockito.when(storage.updateAppointmentStatus(ID, APP_STATUS, 3)).thenReturn(DATE_TIME);
+
+		ServiceResponse response = service.updateAppointmentStatus(ID, APP_STATUS, 3);
+
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.OK));
+	}
+
+	@Test
+	public void when_updateAppointmentStatus_then_watermarkOfItsDayChanges() {
+		Mockito.when(storage.updateAppointmentStatus(ID, APP_STATUS)).thenReturn(DATE_TIME);
+		LocalDate day = DATE_TIME.toLocalDate();
+		String before = service.getWatermark(day, day.plusDays(1));
+		String otherDay = service.getWatermark(day.plusDays(1), day.plusDays(2));
+
+		service.updateAppointmentStatus(ID, APP_STATUS);
+
+		assertThat(service.getWatermark(day, day.plusDays(1)), not(before));
+		assertThat(service.getWatermark(day.plusDays(1), day.plusDays(2)), is(otherDay));
+	}
+
+	@Test
+	public void when_updateAppointmentStatusFails_then_allWatermarksChange() {
+		Mockito.when(storage.updateAppointmentStatus(ID, APP_STATUS)).thenThrow(RuntimeException.class);
+		LocalDate day = DATE_TIME.toLocalDate().plusYears(1);
+		String before = service.getWatermark(day, day);
+
+		ServiceResponse response = service.updateAppointmentStatus(ID, APP_STATUS);
+
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.FATAL));
+		assertThat(service.getWatermark(day, day), not(before));
+	}
+
+	@Test
+	public void when_updateAppointmentStatusesByIds_then_allWatermarksChange() {
+		StatusTransition transition = createTransition();
+		transition.setIds(Collections.singletonList(CREATED_ID));
+		LocalDate day = DATE_TIME.toLocalDate().plusYears(1);
+		String before = service.getWatermark(day, day);
+
+		service.updateAppointmentStatuses(transition);
+
+		assertThat(service.getWatermark(day, day), not(before));
+	}
+
+	@Test
+	public void when_updateAppointmentStatusesByIds_then_callsStorageUpdateAppointmentStatusesByIds() {
+		StatusTransition transition = createTransition();
+		transition.setIds(Collections.singletonList(CREATED_ID));
+		Mockito.when(storage.updateAppointmentStatuses(Mockito.anyCollection(), Mockito.any(), Mockito.any()))
+				.thenReturn(1);
+
+		ServiceResponse response = service.updateAppointmentStatuses(transition);
+
+		Mockito.verify(storage).updateAppointmentStatuses(transition.getIds(), Appointment.AppStatus.WAIT,
+				Appointment.AppStatus.PASS);
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.OK));
+		assertThat(response.getPayload(), is(1));
+	}
+
+	@Test
+	public void when_updateAppointmentStatusesByDates_then_callsStorageUpdateAppointmentStatusesByDates() {
+		StatusTransition transition = createTransition();
+		transition.setStartDate(LocalDate.of(YEAR, Month.AUGUST, 20));
+		transition.setEndDate(LocalDate.of(YEAR, Month.AUGUST, 21));
+
+		ServiceResponse response = service.updateAppointmentStatuses(transition);
+
+		Mockito.verify(storage).updateAppointmentStatuses(transition.getStartDate(), transition.getEndDate(),
+				Appointment.AppStatus.WAIT, Appointment.AppStatus.PASS);
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.OK));
+	}
+
+	@Test
+	public void when_updateAppointmentStatusesWithoutSelection_then_responseIsError() {
+		ServiceResponse response = service.updateAppointmentStatuses(createTransition());
+
+		Mockito.verifyZeroInteractions(storage);
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.ERROR));
+	}
+
+	private static StatusTransition createTransition() {
+		StatusTransition transition = new StatusTransition();
+
+		transition.setFromStatus(Appointment.AppStatus.WAIT);
+		transition.setToStatus(Appointment.AppStatus.PASS);
+
+		return transition;
+	}
+
 	@Test
 	public void when_deleteAppointment_then_callsStorageDeleteAppointment() {
 		Mockito.when(storage.deleteAppointment(Mockito.anyLong())).thenReturn(appointment);
@@ -178,6 +493,18 @@ public class AppointmentServiceTest {
 		assertThat(response.getPayload(), is(appointment));
 	}
 
+	@Test
+	public void when_deleteAppointment_then_slotReleased() {
+		Mockito.when(storage.createAppointment(Mockito.any(Appointment.class))).thenReturn(CREATED_ID);
+		Mockito.when(storage.deleteAppointment(Mockito.anyLong())).thenReturn(appointment);
+		service.createAppointment(appointment);
+		service.deleteAppointment(ID);
+
+		ServiceResponse response = service.createAppointment(createAppointment());
+
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.CREATED));
+	}
+
 	@Test
 	public void when_deleteAppointmentAndNotFound_then_responseIsNotFound() {
 		Mockito.when(storage.deleteAppointment(Mockito.anyLong())).thenThrow(NoSuchElementException.class);
@@ -186,4 +513,100 @@ public class AppointmentServiceTest {
 
 		assertThat(response.getResult(), is(ServiceResponse.ResultType.NOT_FOUND));
 	}
+
+	@Test
+	public void when_deleteAppointments_then_callsStorageDeleteAppointments() {
+		Mockito.when(storage.deleteAppointments(Mockito.any(LocalDate.class), Mockito.any(LocalDate.class),
+				Mockito.any(Appointment.AppStatus.class)))
+				.thenReturn(2);
+		LocalDate startDate = LocalDate.of(YEAR, Month.AUGUST, 20);
+		LocalDate endDate = LocalDate.of(YEAR, Month.AUGUST, 21);
+
+		ServiceResponse response = service.deleteAppointments(startDate, endDate, APP_STATUS);
+
+		Mockito.verify(storage).deleteAppointments(startDate, endDate, APP_STATUS);
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.OK));
+		assertThat(response.getPayload(), is(2));
+	}
+
+	@Test
+	public void when_deleteAppointmentsAndDatesWrong_then_doesntCallStorageDeleteAppointments() {
+		LocalDate laterDate = LocalDate.of(YEAR, Month.AUGUST, 21);
+		LocalDate earlierDate = LocalDate.of(YEAR, Month.AUGUST, 20);
+
+		ServiceResponse response = service.deleteAppointments(laterDate, earlierDate, APP_STATUS);
+
+		Mockito.verifyZeroInteractions(storage);
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.ERROR));
+	}
+
+	@Test
+	public void when_getAvailability_then_returnsFreeSlotsOnly() {
+		LocalDate date = LocalDate.now().plusDays(1);
+		Appointment app = createAppointment();
+		app.setTime(date.atTime(HOUR, MINUTE));
+		service.createAppointment(app);
+
+		ServiceResponse response = service.getAvailability(date, date);
+
+		@SuppressWarnings("unchecked")
+		List<LocalDateTime> slots = (List<LocalDateTime>) response.getPayload();
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.OK));
+		assertThat(slots.size(), is(RandomHelper.SLOTS_PER_DAY - 1));
+		assertThat(slots.get(0), is(date.atTime(RandomHelper.START_WORK_HOUR, 0)));
+		assertThat(slots, not(hasItem(date.atTime(HOUR, MINUTE))));
+	}
+
+	@Test
+	public void when_getAvailabilityAndDateIntervalTooLong_then_responseIsError() {
+		LocalDate date = LocalDate.now();
+
+		ServiceResponse response = service.getAvailability(date, date.plusDays(AppointmentService.MAX_AVAILABILITY_DAYS));
+
+		Mockito.verifyZeroInteractions(storage);
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.ERROR));
+	}
+
+	@Test
+	public void when_getAppointmentAsync_then_completesWithStorageResult() throws Exception {
+		Mockito.when(storage.getAppointment(Mockito.anyLong())).thenReturn(appointment);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		service = new AppointmentService(storage, executor);
+
+		try {
+			ServiceResponse response = service.getAppointmentAsync(ID).get(5, TimeUnit.SECONDS);
+
+			assertThat(response.getResult(), is(ServiceResponse.ResultType.OK));
+			assertThat(response.getPayload(), is(appointment));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void when_asyncAndExecutorRejects_then_responseIsUnavailable() throws Exception {
+		service = new AppointmentService(storage, command -> {
+			throw new RejectedExecutionException();
+		});
+
+		ServiceResponse response = service.getAppointmentAsync(ID).get();
+
+		Mockito.verifyZeroInteractions(storage);
+		assertThat(response.getResult(), is(ServiceResponse.ResultType.UNAVAILABLE));
+	}
+
+	@Test
+	public void when_asyncOperationsComplete_then_responsesCountedByResult() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		service.bindTo(registry);
+		Mockito.when(storage.getAppointment(ID)).thenReturn(appointment);
+		Mockito.when(storage.getAppointment(ID + 1)).thenThrow(new NoSuchElementException());
+
+		service.getAppointmentAsync(ID).get();
+		service.getAppointmentAsync(ID + 1).get();
+		service.getAppointmentAsync(ID + 1).get();
+
+		assertThat(registry.counter(AppointmentService.RESPONSES, "result", "OK").count(), is(1.0));
+		assertThat(registry.counter(AppointmentService.RESPONSES, "result", "NOT_FOUND").count(), is(2.0));
+	}
 }
@@ -0,0 +1,68 @@
+package com.leobro.appointment.service;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Month;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class DayWatermarksTest {
+
+	private static final LocalDate DAY = LocalDate.of(2030, Month.AUGUST, 20);
+	private static final Duration LIFETIME = Duration.ofMinutes(5);
+	private static final long START_MILLIS = LIFETIME.toMillis() * 1000;
+
+	private Clock clock;
+	private DayWatermarks watermarks;
+
+	@Before
+	public void setUp() {
+		clock = mock(Clock.class);
+		given(clock.millis()).willReturn(START_MILLIS);
+		watermarks = new DayWatermarks(clock, LIFETIME);
+	}
+
+	@Test
+	public void when_otherDayRaised_then_watermarkUnchanged() {
+		String before = watermarks.get(DAY, DAY);
+
+		watermarks.raise(DAY.plusDays(1));
+
+		assertThat(watermarks.get(DAY, DAY), is(before));
+	}
+
+	@Test
+	public void when_dayRaised_then_watermarkChanges() {
+		String before = watermarks.get(DAY, DAY.plusDays(1));
+
+		watermarks.raise(DAY.plusDays(1));
+
+		assertThat(watermarks.get(DAY, DAY.plusDays(1)), not(before));
+	}
+
+	@Test
+	public void when_withinLifetime_then_watermarkUnchanged() {
+		String before = watermarks.get(DAY, DAY);
+
+		given(clock.millis()).willReturn(START_MILLIS + LIFETIME.toMillis() - 1);
+
+		assertThat(watermarks.get(DAY, DAY), is(before));
+	}
+
+	@Test
+	public void when_lifetimeOver_then_watermarkChanges() {
+		String before = watermarks.get(DAY, DAY);
+
+		given(clock.millis()).willReturn(START_MILLIS + LIFETIME.toMillis());
+
+		assertThat(watermarks.get(DAY, DAY), not(before));
+	}
+}
@@ -0,0 +1,64 @@
+package com.leobro.appointment.service;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RandomHelperTest {
+
+	private static final LocalDateTime NOW = LocalDateTime.of(2030, Month.AUGUST, 20, 13, 30);
+	private static final LocalDate TODAY = NOW.toLocalDate();
+
+	private static List<LocalDateTime> getTimes(int quantity, LocalDate endDate) {
+		return RandomHelper.getRandomAppointments(quantity, endDate, NOW)
+				.map(Appointment::getTime)
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void when_getRandomAppointments_then_exactQuantityOfDistinctSlotsInOrder() {
+		List<LocalDateTime> times = getTimes(1000, TODAY.plusDays(365));
+
+		assertThat(times.size(), is(1000));
+		for (int i = 1; i < times.size(); i++) {
+			assertThat(times.get(i).isAfter(times.get(i - 1)), is(true));
+		}
+	}
+
+	@Test
+	public void when_getRandomAppointments_then_onlyFutureWorkHours() {
+		for (LocalDateTime time : getTimes(100, TODAY.plusDays(30))) {
+			assertThat(time.isAfter(NOW), is(true));
+			assertThat(time.getHour() >= RandomHelper.START_WORK_HOUR, is(true));
+			assertThat(time.getHour() < RandomHelper.END_WORK_HOUR, is(true));
+			assertThat(time.getMinute(), is(0));
+		}
+	}
+
+	@Test
+	public void when_getRandomAppointmentsAndQuantityExceedsSlots_then_takesEverySlot() {
+		List<LocalDateTime> times = getTimes(100, TODAY.plusDays(1));
+
+		// 14:00 to 16:00 today and the whole next day
+		assertThat(times.size(), is(3 + RandomHelper.SLOTS_PER_DAY));
+		assertThat(times.get(0), is(TODAY.atTime(14, 0)));
+		assertThat(times.get(times.size() - 1), is(TODAY.plusDays(1).atTime(RandomHelper.END_WORK_HOUR - 1, 0)));
+	}
+
+	@Test
+	public void when_getRandomAppointmentsAfterWorkHours_then_startsNextDay() {
+		List<LocalDateTime> times = RandomHelper.getRandomAppointments(100, TODAY.plusDays(1), TODAY.atTime(23, 10))
+				.map(Appointment::getTime)
+				.collect(Collectors.toList());
+
+		assertThat(times.size(), is(RandomHelper.SLOTS_PER_DAY));
+		assertThat(times.get(0), is(TODAY.plusDays(1).atTime(RandomHelper.START_WORK_HOUR, 0)));
+	}
+}
@@ -0,0 +1,67 @@
+package com.leobro.appointment.service;
+
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class TraceTest {
+
+	private static final String TRACE_ID = "trace-1";
+
+	@After
+	public void tearDown() {
+		MDC.clear();
+	}
+
+	@Test
+	public void when_spanInAttachedTrace_then_recorded() {
+		Trace trace = Trace.create(TRACE_ID);
+
+		try (Trace.Span ignored = trace.attach()) {
+			assertThat(Trace.current(), is(sameInstance(trace)));
+			assertThat(MDC.get(Trace.MDC_KEY), is(TRACE_ID));
+			try (Trace.Span span = Trace.span("storage.getAppointment")) {
+				assertThat(span, is(not(nullValue())));
+			}
+		}
+
+		assertThat(trace.format(), containsString("storage.getAppointment"));
+		assertThat(Trace.current(), is(nullValue()));
+		assertThat(MDC.get(Trace.MDC_KEY), is(nullValue()));
+	}
+
+	@Test
+	public void when_spanWithoutTrace_then_notRecorded() {
+		Trace trace = Trace.create(TRACE_ID);
+
+		try (Trace.Span ignored = Trace.span("storage.getAppointment")) {
+			assertThat(Trace.current(), is(nullValue()));
+		}
+
+		assertThat(trace.format(), is(""));
+	}
+
+	@Test
+	public void when_wrappedOperationRunsOnAnotherThread_then_traceAttachedThere() throws Exception {
+		Trace trace = Trace.create(TRACE_ID);
+		Trace[] seen = new Trace[1];
+
+		Thread thread = new Thread(() -> trace.wrap(() -> seen[0] = Trace.current()).get());
+		thread.start();
+		thread.join();
+
+		assertThat(seen[0], is(sameInstance(trace)));
+	}
+
+	@Test
+	public void when_createWithoutId_then_randomId() {
+		assertThat(Trace.create(null).getId().length(), is(16));
+	}
+}
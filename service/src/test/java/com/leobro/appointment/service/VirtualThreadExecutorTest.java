@@ -0,0 +1,60 @@
+package com.leobro.appointment.service;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadExecutorTest {
+
+	// platform threads stand in for the virtual ones, which the running Java may not have
+	private final Executor executor = new VirtualThreadExecutor(Thread::new, 1);
+
+	@Test
+	public void when_execute_then_taskRuns() throws InterruptedException {
+		CountDownLatch done = new CountDownLatch(1);
+
+		executor.execute(done::countDown);
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void when_executeBeyondMaxTasks_then_rejected_andAcceptedAfterCompletion() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		boolean rejected = false;
+		try {
+			executor.execute(done::countDown);
+		} catch (RejectedExecutionException e) {
+			rejected = true;
+		}
+		assertThat(rejected, is(true));
+
+		release.countDown();
+		// the permit is returned after the running task ends
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (done.getCount() > 0 && System.nanoTime() < deadline) {
+			try {
+				executor.execute(done::countDown);
+			} catch (RejectedExecutionException e) {
+				Thread.sleep(10);
+			}
+		}
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+}